@@ -0,0 +1,56 @@
+package application.bench;
+
+import application.repository.RepositoryOrchestrator;
+import application.repository.SqliteDatabaseHandler;
+import application.services.EngineBridge;
+import application.utils.SchedulerDataPreparer;
+import scheduler.common.models.Slot;
+import scheduler.common.models.TaskData;
+import scheduler.common.models.Variable;
+import scheduler.common.proto.EngineOutput;
+import scheduler.common.utils.ProtoMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Temp databases shared by the benchmarks: a generated school, optionally with a stub-engine schedule saved.
+ */
+public class BenchFixtures {
+
+    private BenchFixtures() {
+    }
+
+    public static File createSchoolDb(DatasetGenerator.Preset preset, boolean withSchedule) throws IOException, InterruptedException {
+        File dbFile = File.createTempFile("bench_" + preset.name().toLowerCase() + "_", ".db");
+        dbFile.deleteOnExit();
+
+        RepositoryOrchestrator repo = open(dbFile);
+        repo.initAllDb();
+        new DatasetGenerator(preset.spec()).populate(repo);
+
+        if (withSchedule) {
+            repo.getScheduleRepository().saveAll(solve(repo));
+        }
+        return dbFile;
+    }
+
+    public static RepositoryOrchestrator open(File dbFile) {
+        return new RepositoryOrchestrator(new SqliteDatabaseHandler(dbFile.getAbsolutePath()));
+    }
+
+    public static Map<Variable, Slot> solve(RepositoryOrchestrator repo) throws InterruptedException {
+        List<TaskData> tasks = new SchedulerDataPreparer(repo).prepare();
+        return solve(tasks);
+    }
+
+    public static Map<Variable, Slot> solve(List<TaskData> tasks) throws InterruptedException {
+        EngineOutput output = StubEngine.solve(EngineBridge.buildInput(tasks), 1);
+        if (!output.getSuccess()) {
+            throw new IllegalStateException("Stub engine failed: " + output.getMessage());
+        }
+        return ProtoMapper.fromEngineOutput(output);
+    }
+}
@@ -0,0 +1,95 @@
+package application.bench;
+
+import application.repository.ScheduleRepository;
+import application.repository.SqliteDatabaseHandler;
+import application.services.EngineBridge;
+import scheduler.common.models.Slot;
+import scheduler.common.models.TaskData;
+import scheduler.common.models.Variable;
+import scheduler.common.proto.EngineInput;
+import scheduler.common.proto.EngineOutput;
+import scheduler.common.utils.ProtoMapper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives the whole engine bridge (serialize, spawn, parse, save) against {@link StubEngine} on synthetic inputs.
+ * <p>
+ * Usage: {@code mvn -Pbench package exec:java [-Dexec.args="<engine-script> <sizes...>"]}.
+ * The engine script defaults to {@code src/bench/scripts/stub-engine.sh} ({@code .cmd} on Windows).
+ */
+public class BridgeBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {100, 1_000, 5_000, 10_000, 20_000};
+    private static final int WARMUP_RUNS = 1;
+
+    public static void main(String[] args) throws Exception {
+        String enginePath = args.length > 0 ? args[0] : defaultEngineScript();
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) sizes[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        File dbFile = File.createTempFile("bench_", ".db");
+        dbFile.deleteOnExit();
+        ScheduleRepository scheduleRepository = new ScheduleRepository(new SqliteDatabaseHandler(dbFile.getAbsolutePath()));
+        scheduleRepository.initDb();
+
+        System.out.printf("%-8s %12s %12s %12s %12s %12s%n", "tasks", "serialize", "spawn", "parse", "save", "total");
+        for (int size : sizes) {
+            List<TaskData> tasks = SyntheticTasks.generate(size, 42L);
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                runOnce(enginePath, tasks, scheduleRepository);
+            }
+            long[] t = runOnce(enginePath, tasks, scheduleRepository);
+            System.out.printf("%-8d %10.1fms %10.1fms %10.1fms %10.1fms %10.1fms%n",
+                    size, ms(t[0]), ms(t[1]), ms(t[2]), ms(t[3]), ms(t[0] + t[1] + t[2] + t[3]));
+        }
+    }
+
+    /**
+     * @return nanoseconds spent in serialize, spawn (including solve), parse and save
+     */
+    private static long[] runOnce(String enginePath, List<TaskData> tasks, ScheduleRepository repository) throws Exception {
+        File in = File.createTempFile("bench_in_", ".bin");
+        File out = File.createTempFile("bench_out_", ".bin");
+        try {
+            long t0 = System.nanoTime();
+            EngineInput input = EngineBridge.buildInput(tasks);
+            EngineBridge.writeInput(input, in);
+
+            long t1 = System.nanoTime();
+            EngineBridge.runProcess(enginePath, in, out, line -> {
+            });
+
+            long t2 = System.nanoTime();
+            EngineOutput output = EngineBridge.readOutput(out);
+            if (!output.getSuccess()) {
+                throw new IllegalStateException("Stub engine failed: " + output.getMessage());
+            }
+            Map<Variable, Slot> schedule = ProtoMapper.fromEngineOutput(output);
+
+            long t3 = System.nanoTime();
+            repository.saveAll(schedule);
+
+            long t4 = System.nanoTime();
+            return new long[]{t1 - t0, t2 - t1, t3 - t2, t4 - t3};
+        } finally {
+            Files.deleteIfExists(in.toPath());
+            Files.deleteIfExists(out.toPath());
+        }
+    }
+
+    private static String defaultEngineScript() {
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("win");
+        return new File("src/bench/scripts/" + (windows ? "stub-engine.cmd" : "stub-engine.sh")).getAbsolutePath();
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
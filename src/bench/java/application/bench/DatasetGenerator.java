@@ -0,0 +1,187 @@
+package application.bench;
+
+import application.models.*;
+import application.repository.RepositoryOrchestrator;
+import application.repository.SqliteDatabaseHandler;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Fills a SQLite database with a synthetic school through the regular repositories (batched inserts).
+ * <p>
+ * Usage: {@code DatasetGenerator <db-file> [small|large|district] [seed]}. The same preset and seed always
+ * produce the same database, ids included.
+ */
+public class DatasetGenerator {
+
+    private static final int MAX_PERIODS_PER_SUBJECT = 3;
+
+    private final Spec spec;
+    private final Random random;
+
+    public DatasetGenerator(Spec spec) {
+        this.spec = spec;
+        this.random = new Random(spec.seed());
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: DatasetGenerator <db-file> [small|large|district] [seed]");
+            System.exit(2);
+        }
+        Preset preset = args.length > 1 ? Preset.valueOf(args[1].toUpperCase()) : Preset.SMALL;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+
+        File dbFile = new File(args[0]);
+        if (dbFile.exists() && !dbFile.delete()) {
+            throw new IllegalStateException("Cannot overwrite " + dbFile.getAbsolutePath());
+        }
+
+        RepositoryOrchestrator repo = new RepositoryOrchestrator(new SqliteDatabaseHandler(dbFile.getAbsolutePath()));
+        repo.initAllDb();
+
+        long start = System.nanoTime();
+        Stats stats = new DatasetGenerator(preset.spec.withSeed(seed)).populate(repo);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Generated %s (seed %d) in %.1f s: %s%n", preset, seed, elapsed / 1e9, stats);
+    }
+
+    public Stats populate(RepositoryOrchestrator repo) {
+        // Sessions: the rows exist already (initAllDb), only the busy slots are generated
+        Map<ESession, BusyMask> sessionBusy = new EnumMap<>(ESession.class);
+        for (ESession session : ESession.values()) {
+            BusyMask mask = randomBusy(BusyMask.session(session), spec.sessionBusyFraction());
+            sessionBusy.put(session, mask);
+            repo.getSessionRepository().save(new Session(session, mask));
+        }
+
+        List<Subject> subjects = new ArrayList<>(spec.subjects());
+        for (int i = 0; i < spec.subjects(); i++) {
+            subjects.add(new Subject(nextId(), "Môn " + (i + 1)));
+        }
+        repo.getSubjectRepository().saveAll(subjects);
+
+        Map<String, Integer> subjectIndex = new HashMap<>();
+        for (int i = 0; i < subjects.size(); i++) {
+            subjectIndex.put(subjects.get(i).getId(), i);
+        }
+
+        List<Teacher> teachers = new ArrayList<>(spec.teachers());
+        for (int i = 0; i < spec.teachers(); i++) {
+            teachers.add(new Teacher("Giáo viên " + (i + 1), nextId(), randomBusy(BusyMask.FULL, spec.teacherBusyFraction())));
+        }
+        repo.getTeacherRepository().saveAll(teachers);
+
+        List<Grade> grades = new ArrayList<>(spec.grades());
+        List<Clazz> classes = new ArrayList<>();
+        List<Curriculum> curriculums = new ArrayList<>();
+        List<Assignment> assignments = new ArrayList<>();
+
+        // Teachers are split into subject groups; each group is used round robin
+        int[] nextTeacherInGroup = new int[subjects.size()];
+
+        for (int g = 0; g < spec.grades(); g++) {
+            int level = 6 + g;
+            ESession session = g % 2 == 0 ? ESession.MORNING : ESession.AFTERNOON;
+            Grade grade = new Grade(nextId(), "Khối " + level, level, new Session(session));
+            grades.add(grade);
+
+            List<Curriculum> gradeCurriculums = randomCurriculum(grade.getId(), subjects, sessionBusy.get(session).freeIn(session));
+            curriculums.addAll(gradeCurriculums);
+
+            for (int c = 0; c < spec.classesPerGrade(); c++) {
+                Clazz clazz = new Clazz(nextId(), level + "A" + (c + 1), grade.getId());
+                classes.add(clazz);
+
+                for (Curriculum curriculum : gradeCurriculums) {
+                    int group = subjectIndex.get(curriculum.getSubjectId());
+                    Teacher teacher = pickTeacher(teachers, group, subjects.size(), nextTeacherInGroup);
+                    assignments.add(new Assignment(nextId(), teacher.getId(), curriculum.getSubjectId(), clazz.getId()));
+                }
+            }
+        }
+
+        repo.getGradeRepository().saveAll(grades);
+        repo.getClassRepository().saveAll(classes);
+        repo.getCurriculumRepository().saveAll(curriculums);
+        repo.getAssignmentRepository().saveAll(assignments);
+
+        return new Stats(grades.size(), classes.size(), subjects.size(), teachers.size(), curriculums.size(), assignments.size());
+    }
+
+    private List<Curriculum> randomCurriculum(String gradeId, List<Subject> subjects, int capacity) {
+        List<Curriculum> list = new ArrayList<>();
+        int used = 0;
+        for (Subject subject : subjects) {
+            if (random.nextDouble() >= spec.curriculumDensity()) continue;
+
+            int periods = 1 + random.nextInt(MAX_PERIODS_PER_SUBJECT);
+            // Never generate a grade that cannot fit into its session
+            if (used + periods > capacity) continue;
+            used += periods;
+
+            boolean doubled = periods >= 2 && random.nextInt(3) == 0;
+            list.add(new Curriculum(gradeId, subject.getId(), periods, doubled));
+        }
+        return list;
+    }
+
+    private Teacher pickTeacher(List<Teacher> teachers, int subjectIndex, int subjectCount, int[] nextInGroup) {
+        // Group k holds teachers k, k + subjectCount, k + 2 * subjectCount, ...
+        int groupSize = Math.max(1, (teachers.size() - subjectIndex + subjectCount - 1) / subjectCount);
+        int member = nextInGroup[subjectIndex]++ % groupSize;
+        int index = subjectIndex + member * subjectCount;
+        return teachers.get(Math.min(index, teachers.size() - 1));
+    }
+
+    /**
+     * Marks each slot of {@code slots} busy with probability {@code fraction}.
+     */
+    private BusyMask randomBusy(BusyMask slots, double fraction) {
+        long bits = 0L;
+        for (int i = 0; i < BusyMask.SIZE; i++) {
+            if ((slots.bits() & (1L << i)) != 0 && random.nextDouble() < fraction) bits |= 1L << i;
+        }
+        return new BusyMask(bits);
+    }
+
+    private String nextId() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    public enum Preset {
+        SMALL(new Spec(4, 4, 12, 40, 0.9, 0.10, 0.05, 1L)),
+        LARGE(new Spec(7, 20, 18, 260, 0.85, 0.15, 0.05, 1L)),
+        DISTRICT(new Spec(7, 1_000, 25, 14_000, 0.8, 0.15, 0.05, 1L));
+
+        private final Spec spec;
+
+        Preset(Spec spec) {
+            this.spec = spec;
+        }
+
+        public Spec spec() {
+            return spec;
+        }
+    }
+
+    /**
+     * @param curriculumDensity   probability that a subject is taught in a grade
+     * @param teacherBusyFraction fraction of the 60 weekly slots a teacher marks as busy
+     * @param sessionBusyFraction fraction of a session's 30 slots marked as busy
+     */
+    public record Spec(int grades, int classesPerGrade, int subjects, int teachers,
+                       double curriculumDensity, double teacherBusyFraction, double sessionBusyFraction,
+                       long seed) {
+
+        public Spec withSeed(long newSeed) {
+            return new Spec(grades, classesPerGrade, subjects, teachers,
+                    curriculumDensity, teacherBusyFraction, sessionBusyFraction, newSeed);
+        }
+    }
+
+    public record Stats(int grades, int classes, int subjects, int teachers, int curriculums, int assignments) {
+    }
+}
@@ -0,0 +1,136 @@
+package application.bench;
+
+import scheduler.common.models.ESession;
+import scheduler.common.models.EWeekDay;
+import scheduler.common.models.Slot;
+import scheduler.common.models.TaskData;
+import scheduler.common.models.Variable;
+import scheduler.common.proto.EngineInput;
+import scheduler.common.proto.EngineOutput;
+import scheduler.common.utils.ProtoMapper;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Stand-in for the private CP-SAT engine, honouring the same contract: {@code StubEngine <in> <out>}.
+ * <p>
+ * Places every lesson greedily into the first slot where the teacher and the class are both free and not busy,
+ * so the output is conflict-free. Lessons are spread over the week first; days are only doubled up when the
+ * week runs out. Double-period tasks are placed as pairs of consecutive periods.
+ * Set {@code STUB_ENGINE_DELAY_MS} to simulate solve time.
+ * <p>
+ * Also exposes {@link #solve(EngineInput, int)} so it can be loaded as an in-process engine.
+ */
+public class StubEngine {
+
+    private static final String DELAY_ENV = "STUB_ENGINE_DELAY_MS";
+    private static final int DAYS = EWeekDay.values().length;
+    private static final int PERIODS_PER_SESSION = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: StubEngine <input.bin> <output.bin>");
+            System.exit(2);
+        }
+
+        EngineInput input;
+        try (InputStream is = new BufferedInputStream(new FileInputStream(args[0]))) {
+            input = EngineInput.parseFrom(is);
+        }
+
+        EngineOutput output = solve(input, 1);
+
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+            output.writeTo(os);
+        }
+        System.out.println("Stub engine finished, success=" + output.getSuccess());
+    }
+
+    public static EngineOutput solve(EngineInput input, int threads) throws InterruptedException {
+        long delay = readDelay();
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+
+        List<TaskData> tasks = input.getTasksList().stream().map(ProtoMapper::fromProto).toList();
+        Map<Variable, Slot> result = new LinkedHashMap<>();
+
+        // Occupancy per entity: bit (day * 10 + matrixPeriod) set = slot taken
+        Map<String, Long> teacherUsed = new HashMap<>();
+        Map<String, Long> classUsed = new HashMap<>();
+
+        for (TaskData task : tasks) {
+            int offset = task.session() == ESession.AFTERNOON ? PERIODS_PER_SESSION : 0;
+            long blocked = toBits(task.teacherBusyMatrix()) | toBits(task.classBusyMatrix())
+                    | teacherUsed.getOrDefault(task.teacherId(), 0L)
+                    | classUsed.getOrDefault(task.classId(), 0L);
+
+            int remaining = task.periodsPerWeek();
+            int lesson = 0;
+            long taken = 0L;
+
+            // Pass 0 spreads the subject (one lesson or double period per day), pass 1 fills any free slot left
+            for (int pass = 0; pass < 2 && remaining > 0; pass++) {
+                for (int d = 0; d < DAYS && remaining > 0; d++) {
+                    for (int p = 0; p < PERIODS_PER_SESSION && remaining > 0; p++) {
+                        int block = task.shouldBeDoubled() && remaining >= 2 ? 2 : 1;
+                        if (p + block > PERIODS_PER_SESSION) break;
+
+                        long bits = 0L;
+                        for (int k = 0; k < block; k++) {
+                            bits |= 1L << bitIndex(d, offset + p + k);
+                        }
+                        if ((blocked & bits) != 0) continue;
+
+                        for (int k = 0; k < block; k++) {
+                            result.put(new Variable(task.id(), task.assignmentId(), lesson++),
+                                    new Slot(EWeekDay.values()[d], task.session(), p + k + 1));
+                        }
+                        blocked |= bits;
+                        taken |= bits;
+                        remaining -= block;
+                        if (pass == 0) break;
+                    }
+                }
+            }
+
+            if (remaining > 0) {
+                return EngineOutput.newBuilder()
+                        .setSuccess(false)
+                        .setMessage("Stub engine could not place assignment " + task.assignmentId())
+                        .build();
+            }
+
+            teacherUsed.merge(task.teacherId(), taken, (a, b) -> a | b);
+            classUsed.merge(task.classId(), taken, (a, b) -> a | b);
+        }
+
+        return ProtoMapper.toEngineOutput(result);
+    }
+
+    private static int bitIndex(int day, int matrixPeriod) {
+        return day * 10 + matrixPeriod;
+    }
+
+    private static long toBits(boolean[][] matrix) {
+        long bits = 0L;
+        if (matrix == null) return bits;
+        for (int d = 0; d < matrix.length && d < DAYS; d++) {
+            for (int p = 0; p < matrix[d].length && p < 10; p++) {
+                if (matrix[d][p]) bits |= 1L << bitIndex(d, p);
+            }
+        }
+        return bits;
+    }
+
+    private static long readDelay() {
+        String value = System.getenv(DELAY_ENV);
+        if (value == null || value.isBlank()) return 0;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
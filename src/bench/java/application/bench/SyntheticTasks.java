@@ -0,0 +1,59 @@
+package application.bench;
+
+import scheduler.common.models.ESession;
+import scheduler.common.models.TaskData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds engine inputs of a given size without a database. Classes get ten subjects each and teachers are
+ * filled up to {@link #TEACHER_LOAD} periods, so the stub engine can always place everything.
+ */
+public class SyntheticTasks {
+
+    private static final int SUBJECTS_PER_CLASS = 10;
+    private static final int TEACHER_LOAD = 18;
+
+    private SyntheticTasks() {
+    }
+
+    public static List<TaskData> generate(int taskCount, long seed) {
+        Random random = new Random(seed);
+        List<TaskData> tasks = new ArrayList<>(taskCount);
+
+        int teacher = 0;
+        int teacherPeriods = 0;
+
+        for (int i = 0; i < taskCount; i++) {
+            int classIndex = i / SUBJECTS_PER_CLASS;
+            int subjectIndex = i % SUBJECTS_PER_CLASS;
+            // 10 subjects x at most 2.5 periods on average stays under the 30 slots of one session
+            int periods = 1 + random.nextInt(3);
+            boolean doubled = periods >= 2 && random.nextInt(4) == 0;
+            ESession session = classIndex % 2 == 0 ? ESession.MORNING : ESession.AFTERNOON;
+
+            if (teacherPeriods + periods > TEACHER_LOAD) {
+                teacher++;
+                teacherPeriods = 0;
+            }
+            teacherPeriods += periods;
+
+            tasks.add(new TaskData(
+                    i,
+                    "A" + i,
+                    "C" + classIndex,
+                    "S" + subjectIndex,
+                    periods,
+                    doubled,
+                    session,
+                    10 + classIndex % 3,
+                    "T" + teacher,
+                    new boolean[6][10],
+                    new boolean[6][10]
+            ));
+        }
+        return tasks;
+    }
+}
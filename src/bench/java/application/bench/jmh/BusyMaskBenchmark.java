@@ -0,0 +1,64 @@
+package application.bench.jmh;
+
+import application.models.BusyMask;
+import application.models.ESession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Availability operations done for every teacher and session row: the merge and capacity check of the preparer,
+ * the conversion to the engine's matrices, and the legacy text codec used by the migration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusyMaskBenchmark {
+
+    private BusyMask teacher;
+    private BusyMask session;
+    private boolean[][] matrix;
+    private String text;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7L);
+        long bits = 0L;
+        for (int i = 0; i < BusyMask.SIZE; i++) {
+            if (random.nextInt(5) == 0) bits |= 1L << i;
+        }
+        teacher = new BusyMask(bits);
+        session = new BusyMask(bits >>> 3).intersect(BusyMask.session(ESession.MORNING));
+        matrix = teacher.toMatrix();
+        text = teacher.toText();
+    }
+
+    @Benchmark
+    public int unionAndFreeCount() {
+        return teacher.union(session).freeIn(ESession.MORNING);
+    }
+
+    @Benchmark
+    public boolean[][] toMatrix() {
+        return teacher.toMatrix();
+    }
+
+    @Benchmark
+    public BusyMask fromMatrix() {
+        return BusyMask.fromMatrix(matrix);
+    }
+
+    @Benchmark
+    public String toText() {
+        return teacher.toText();
+    }
+
+    @Benchmark
+    public BusyMask fromText() {
+        return BusyMask.fromText(text);
+    }
+}
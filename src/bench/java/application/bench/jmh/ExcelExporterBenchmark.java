@@ -0,0 +1,64 @@
+package application.bench.jmh;
+
+import application.bench.BenchFixtures;
+import application.bench.DatasetGenerator;
+import application.repository.RepositoryOrchestrator;
+import application.utils.ExcelExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two halves of the Excel export: loading the schedule and writing the workbook.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExcelExporterBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    public DatasetGenerator.Preset preset;
+
+    private File dbFile;
+    private File xlsxFile;
+    private RepositoryOrchestrator repo;
+    private ExcelExporter prepared;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFile = BenchFixtures.createSchoolDb(preset, true);
+        xlsxFile = File.createTempFile("bench_export_", ".xlsx");
+        repo = BenchFixtures.open(dbFile);
+
+        // export() reads the exporter's caches only, so one prepared instance serves every iteration
+        prepared = new ExcelExporter(repo);
+        prepared.prepareData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbFile.delete();
+        xlsxFile.delete();
+    }
+
+    /**
+     * The exporter accumulates into its maps, so each call needs a fresh instance.
+     */
+    @Benchmark
+    public ExcelExporter prepareData() {
+        ExcelExporter exporter = new ExcelExporter(repo);
+        exporter.prepareData();
+        return exporter;
+    }
+
+    @Benchmark
+    public void export() throws IOException {
+        prepared.export(xlsxFile.getAbsolutePath(), new Date());
+    }
+}
@@ -0,0 +1,71 @@
+package application.bench.jmh;
+
+import application.bench.BenchFixtures;
+import application.bench.DatasetGenerator;
+import application.models.BusyMask;
+import application.models.RunTiming;
+import application.models.Teacher;
+import application.repository.RepositoryOrchestrator;
+import application.utils.IncrementalDataPreparer;
+import application.utils.SchedulerDataPreparer;
+import org.openjdk.jmh.annotations.*;
+import scheduler.common.models.TaskData;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SchedulerDataPreparer#prepare()} against generated schools of increasing size, and the
+ * {@link IncrementalDataPreparer} after a single teacher edit (the common "tweak and regenerate" loop).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreparerBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    public DatasetGenerator.Preset preset;
+
+    private File dbFile;
+    private RepositoryOrchestrator repo;
+    private IncrementalDataPreparer incremental;
+    private List<Teacher> teachers;
+    private int nextTeacher;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFile = BenchFixtures.createSchoolDb(preset, false);
+        repo = BenchFixtures.open(dbFile);
+        teachers = repo.getTeacherRepository().getAll();
+        incremental = new IncrementalDataPreparer(repo);
+        incremental.prepare(new RunTiming());
+    }
+
+    // Toggles one busy slot of the next teacher, outside the measured time
+    @Setup(Level.Invocation)
+    public void editTeacher() {
+        Teacher teacher = teachers.get(nextTeacher++ % teachers.size());
+        BusyMask mask = teacher.getBusyMask();
+        teacher.setBusyMask(mask.with(0, 0, !mask.isBusy(0, 0)));
+        repo.getTeacherRepository().update(teacher);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbFile.delete();
+    }
+
+    @Benchmark
+    public List<TaskData> prepare() {
+        return new SchedulerDataPreparer(repo).prepare();
+    }
+
+    @Benchmark
+    public List<TaskData> prepareIncremental() {
+        return incremental.prepare(new RunTiming());
+    }
+}
@@ -0,0 +1,56 @@
+package application.bench.jmh;
+
+import application.bench.StubEngine;
+import application.bench.SyntheticTasks;
+import application.services.EngineBridge;
+import org.openjdk.jmh.annotations.*;
+import scheduler.common.models.Slot;
+import scheduler.common.models.TaskData;
+import scheduler.common.models.Variable;
+import scheduler.common.proto.EngineInput;
+import scheduler.common.proto.EngineOutput;
+import scheduler.common.utils.ProtoMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two mapping steps {@code SchedulerEngineService} runs around the engine call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtoMapperBenchmark {
+
+    @Param({"1000", "10000"})
+    public int tasks;
+
+    private List<TaskData> taskData;
+    private EngineOutput output;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        taskData = SyntheticTasks.generate(tasks, 42L);
+        output = StubEngine.solve(EngineBridge.buildInput(taskData), 1);
+        if (!output.getSuccess()) {
+            throw new IllegalStateException("Stub engine failed: " + output.getMessage());
+        }
+    }
+
+    /**
+     * {@link ProtoMapper#toProto} for every task, wrapped into the request message.
+     */
+    @Benchmark
+    public EngineInput toProto() {
+        return EngineBridge.buildInput(taskData);
+    }
+
+    @Benchmark
+    public Map<Variable, Slot> fromEngineOutput() {
+        return ProtoMapper.fromEngineOutput(output);
+    }
+}
@@ -0,0 +1,69 @@
+package application.bench.jmh;
+
+import application.bench.BenchFixtures;
+import application.bench.DatasetGenerator;
+import application.models.ScheduleItem;
+import application.models.Teacher;
+import application.repository.RepositoryOrchestrator;
+import application.repository.ScheduleRepository;
+import org.openjdk.jmh.annotations.*;
+import scheduler.common.models.Slot;
+import scheduler.common.models.Variable;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule persistence against a temp database holding a generated school and its stub-engine schedule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleRepositoryBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    public DatasetGenerator.Preset preset;
+
+    private File dbFile;
+    private ScheduleRepository scheduleRepository;
+    private Map<Variable, Slot> schedule;
+    private List<String> teacherIds;
+    private int nextTeacher;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFile = BenchFixtures.createSchoolDb(preset, false);
+        RepositoryOrchestrator repo = BenchFixtures.open(dbFile);
+        schedule = BenchFixtures.solve(repo);
+        scheduleRepository = repo.getScheduleRepository();
+        scheduleRepository.saveAll(schedule);
+        teacherIds = repo.getTeacherRepository().getAll().stream().map(Teacher::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbFile.delete();
+    }
+
+    /**
+     * Replaces the whole schedule, as after every engine run.
+     */
+    @Benchmark
+    public void saveAll() {
+        scheduleRepository.saveAll(schedule);
+    }
+
+    /**
+     * One teacher's timetable; cycles through the teachers so no single row set stays hot in the page cache.
+     */
+    @Benchmark
+    public List<ScheduleItem> getByTeacherId() {
+        String teacherId = teacherIds.get(nextTeacher++ % teacherIds.size());
+        return scheduleRepository.getByTeacherId(teacherId);
+    }
+}
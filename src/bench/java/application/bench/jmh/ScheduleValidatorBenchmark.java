@@ -0,0 +1,59 @@
+package application.bench.jmh;
+
+import application.bench.BenchFixtures;
+import application.bench.DatasetGenerator;
+import application.models.RunTiming;
+import application.repository.RepositoryOrchestrator;
+import application.utils.DomainReducer;
+import application.utils.ScheduleValidator;
+import application.utils.SchedulerDataPreparer;
+import application.utils.SolverModel;
+import org.openjdk.jmh.annotations.*;
+import scheduler.common.models.Slot;
+import scheduler.common.models.Variable;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScheduleValidator#validate} on a stub-engine solution of a generated school.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleValidatorBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    public DatasetGenerator.Preset preset;
+
+    private File dbFile;
+    private SolverModel model;
+    private Map<Variable, Slot> schedule;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFile = BenchFixtures.createSchoolDb(preset, false);
+        RepositoryOrchestrator repo = BenchFixtures.open(dbFile);
+        model = new SchedulerDataPreparer(repo).buildModel(new RunTiming());
+        schedule = BenchFixtures.solve(model.toTaskData(DomainReducer.reduce(model).domains()));
+
+        ScheduleValidator.Report report = ScheduleValidator.validate(model, schedule);
+        if (!report.isValid()) {
+            throw new IllegalStateException("Stub solution rejected: " + report.violations());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbFile.delete();
+    }
+
+    @Benchmark
+    public ScheduleValidator.Report validate() {
+        return ScheduleValidator.validate(model, schedule);
+    }
+}
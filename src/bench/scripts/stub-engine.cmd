@@ -0,0 +1,5 @@
+@echo off
+rem Launches the stub engine with the same contract as the real one: stub-engine.cmd <input.bin> <output.bin>
+rem Requires `mvn -Pbench package` so that target\classes and target\libs are populated.
+set DIR=%~dp0..\..\..
+java -cp "%DIR%\target\classes;%DIR%\target\libs\*" application.bench.StubEngine %*
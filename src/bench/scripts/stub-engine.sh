@@ -0,0 +1,5 @@
+#!/bin/sh
+# Launches the stub engine with the same contract as the real one: stub-engine.sh <input.bin> <output.bin>
+# Requires `mvn -Pbench package` so that target/classes and target/libs are populated.
+DIR="$(cd "$(dirname "$0")/../../.." && pwd)"
+exec java -cp "$DIR/target/classes:$DIR/target/libs/*" application.bench.StubEngine "$@"
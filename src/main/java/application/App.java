@@ -1,7 +1,10 @@
 package application;
 
 import application.controllers.MainController;
-import application.repository.IDatabaseHandler;
+import application.diagnostics.FlightRecorderService;
+import application.diagnostics.InstrumentedDatabaseHandler;
+import application.diagnostics.QueryProfiler;
+import application.diagnostics.UiActionTracker;
 import application.repository.RepositoryOrchestrator;
 import application.repository.SqliteDatabaseHandler;
 import javafx.application.Application;
@@ -11,6 +14,8 @@ import javafx.stage.Stage;
 
 public class App extends Application {
 
+    private RepositoryOrchestrator repositoryOrchestrator;
+
     public static void main(String[] args) {
         Application.launch(App.class, args);
     }
@@ -18,24 +23,38 @@ public class App extends Application {
     @Override
     public void start(Stage stage) throws Exception {
 
-        IDatabaseHandler databaseHandler = new SqliteDatabaseHandler();
-        RepositoryOrchestrator repositoryOrchestrator = new RepositoryOrchestrator(databaseHandler);
+        // Continuous recording so "Xuất hồ sơ hiệu năng" always has the last minutes available
+        FlightRecorderService.start();
+
+        InstrumentedDatabaseHandler databaseHandler = new InstrumentedDatabaseHandler(new SqliteDatabaseHandler());
+        QueryProfiler queryProfiler = new QueryProfiler();
+        databaseHandler.addListener(queryProfiler);
+
+        repositoryOrchestrator = new RepositoryOrchestrator(databaseHandler);
         repositoryOrchestrator.initAllDb();
 
         FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource("MainLayout.fxml"));
 
         fxmlLoader.setControllerFactory(type -> {
             if (type == MainController.class) {
-                return new MainController(repositoryOrchestrator);
+                return new MainController(repositoryOrchestrator, queryProfiler);
             } else {
                 throw new IllegalArgumentException("Unknown type: " + type.getName());
             }
         });
 
         Scene scene = new Scene(fxmlLoader.load());
+        UiActionTracker.install(scene, queryProfiler);
         stage.setTitle("Scheduler");
         stage.setMaximized(true);
         stage.setScene(scene);
         stage.show();
     }
+
+    @Override
+    public void stop() {
+        // Edits still waiting in the background writer would be lost with its daemon thread
+        if (repositoryOrchestrator != null) repositoryOrchestrator.getWriteBehind().close();
+        FlightRecorderService.stop();
+    }
 }
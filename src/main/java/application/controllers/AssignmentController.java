@@ -2,65 +2,118 @@ package application.controllers;
 
 import application.models.Assignment;
 import application.models.Clazz;
+import application.models.SchoolSnapshot;
 import application.models.Subject;
 import application.models.Teacher;
+import application.repository.EntityVersionRepository;
 import application.repository.RepositoryOrchestrator;
+import application.repository.WriteBehindWriter;
+import application.services.TeacherWorkloadService;
+import application.utils.AsyncLoader;
+import application.utils.EditJournal;
+import application.views.AssignmentMatrix;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
-import javafx.geometry.Pos;
 import javafx.scene.control.*;
-import javafx.scene.layout.ColumnConstraints;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.StackPane;
-import javafx.scene.layout.VBox;
 import javafx.util.StringConverter;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class AssignmentController {
+public class AssignmentController implements RefreshableView {
+
+    private static final Set<String> DEPENDENCIES = Set.of(
+            EntityVersionRepository.TEACHER, EntityVersionRepository.CLASS, EntityVersionRepository.GRADE,
+            EntityVersionRepository.CURRICULUM, EntityVersionRepository.ASSIGNMENT);
 
     private final RepositoryOrchestrator repo;
-    // --- Pending Changes (Waiting to be saved) ---
-    // Key = "subjectId_classId", Value = Assignment Object (New state)
-    private final Map<String, Assignment> pendingChanges = new HashMap<>();
+    private final WriteBehindWriter writer;
+    private final TeacherWorkloadService workloads;
+    private Runnable stopWorkloads;
+    // --- Edits: applied in memory at once, saved by the background writer ---
+    private final EditJournal journal = new EditJournal();
+    private final AsyncLoader loader = new AsyncLoader();
+    // Keys ("subjectId_classId") whose write is still waiting in the writer
+    private final Set<String> pendingWrites = new HashSet<>();
+    private RuntimeException reportedWriteError;
     @FXML
-    private GridPane assignmentGrid;
+    private AssignmentMatrix assignmentMatrix;
     @FXML
     private ToggleButton tglQuickMode;
     @FXML
     private ComboBox<Teacher> cbQuickTeacher;
     @FXML
     private Button btnCancelChanges;
+    @FXML
+    private Button btnUndo;
+    @FXML
+    private Button btnRedo;
     // --- Data Cache (Loaded from DB) ---
     private List<Subject> subjects;
     private List<Clazz> classes;
     private List<Teacher> teachers;
-    // Cache map for fast lookup: Key = "subjectId_classId", Value = Assignment Object
-    private Map<String, Assignment> assignmentDbCache;
+    private SchoolSnapshot snapshot;
+    // Current assignments: Key = "subjectId_classId", Value = Assignment Object. Ahead of the database while
+    // writes are pending
+    private Map<String, Assignment> assignmentDbCache = new HashMap<>();
     private boolean isTransposed = false;
 
-    public AssignmentController(RepositoryOrchestrator repo) {
+    public AssignmentController(RepositoryOrchestrator repo, TeacherWorkloadService workloads) {
         this.repo = repo;
+        this.writer = repo.getWriteBehind();
+        this.workloads = workloads;
     }
 
     public void initialize() {
-        loadDataFromDb();
         setupQuickModeControls();
-        buildGrid();
-        updateCancelButtonVisibility();
+        stopWorkloads = workloads.addListener(this::refreshQuickTeachers);
+        assignmentMatrix.setOnCellClicked(this::onCellClicked);
+        updateEditButtons();
+        loadDataFromDb();
+    }
+
+    @Override
+    public Set<String> dependencies() {
+        return DEPENDENCIES;
+    }
+
+    /**
+     * Another view changed assignments or what they refer to: edits made before can no longer be undone safely.
+     */
+    @Override
+    public void refresh() {
+        journal.clear();
+        updateEditButtons();
+        loadDataFromDb();
+    }
+
+    @Override
+    public void dispose() {
+        if (stopWorkloads != null) stopWorkloads.run();
     }
 
     /**
-     * Loads all necessary data from the database.
+     * Loads all necessary data from the database in the background, then draws the matrix.
      */
     private void loadDataFromDb() {
-        subjects = repo.getSubjectRepository().getAll();
-        classes = repo.getClassRepository().getAll();
-        teachers = repo.getTeacherRepository().getAll();
+        assignmentMatrix.setPlaceholder("Đang tải dữ liệu phân công...");
+        // One consistent read; the grid must not mix assignments with a newer class or teacher list
+        loader.load(() -> repo.loadSnapshot(false), loaded -> {
+            applySnapshot(loaded);
+            cbQuickTeacher.setItems(FXCollections.observableArrayList(teachers));
+            buildGrid();
+        });
+    }
+
+    private void applySnapshot(SchoolSnapshot loaded) {
+        snapshot = loaded;
+        subjects = snapshot.getSubjects();
+        classes = snapshot.getClasses();
+        teachers = snapshot.getTeachers();
 
         // Load existing assignments and convert to Map for O(1) access
-        List<Assignment> dbAssignments = repo.getAssignmentRepository().getAll();
+        List<Assignment> dbAssignments = snapshot.getAssignments();
         assignmentDbCache = dbAssignments.stream()
                 .collect(Collectors.toMap(
                         a -> genKey(a.getSubjectId(), a.getClassId()),
@@ -73,20 +126,8 @@ public class AssignmentController {
      * Configures the Quick Mode Toolbar (ComboBox for Teachers).
      */
     private void setupQuickModeControls() {
-        cbQuickTeacher.setItems(FXCollections.observableArrayList(teachers));
-
         // Display Teacher Name nicely
-        cbQuickTeacher.setConverter(new StringConverter<>() {
-            @Override
-            public String toString(Teacher t) {
-                return (t == null) ? "" : t.getName();
-            }
-
-            @Override
-            public Teacher fromString(String string) {
-                return null; // Not needed
-            }
-        });
+        cbQuickTeacher.setConverter(teacherConverter());
 
         // Default state: Disabled until toggle is ON
         cbQuickTeacher.setDisable(true);
@@ -102,7 +143,7 @@ public class AssignmentController {
             tglQuickMode.setText("BẬT");
             tglQuickMode.setStyle("-fx-base: #22c55e; -fx-text-fill: white; -fx-font-weight: bold;"); // Green
             cbQuickTeacher.setDisable(false);
-            updateCancelButtonVisibility();
+            updateEditButtons();
         } else {
             tglQuickMode.setText("TẮT");
             tglQuickMode.setStyle("-fx-base: #cbd5e1; -fx-text-fill: black; -fx-font-weight: bold;"); // Gray
@@ -112,12 +153,22 @@ public class AssignmentController {
         }
     }
 
-    private void updateCancelButtonVisibility() {
-        if (tglQuickMode.isSelected() && !pendingChanges.isEmpty()) {
-            btnCancelChanges.setVisible(true);
-        } else {
-            btnCancelChanges.setVisible(false);
-        }
+    private void updateEditButtons() {
+        btnUndo.setDisable(!journal.canUndo());
+        btnRedo.setDisable(!journal.canRedo());
+        btnCancelChanges.setVisible(tglQuickMode.isSelected() && journal.canUndo());
+    }
+
+    @FXML
+    public void handleUndo() {
+        journal.undo();
+        updateEditButtons();
+    }
+
+    @FXML
+    public void handleRedo() {
+        journal.redo();
+        updateEditButtons();
     }
 
     @FXML
@@ -125,102 +176,64 @@ public class AssignmentController {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Xác nhận hủy");
         alert.setHeaderText("Hủy bỏ tất cả thay đổi?");
-        alert.setContentText("Bạn có chắc chắn muốn hủy bỏ tất cả các thay đổi chưa lưu không?");
+        alert.setContentText("Bạn có chắc chắn muốn hoàn tác tất cả các thay đổi đã thực hiện trên màn hình này không?");
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            pendingChanges.clear();
-            buildGrid();
-            updateCancelButtonVisibility();
+            while (journal.undo()) {
+                // Each undo queues its own write; the writer merges them per cell
+            }
+            updateEditButtons();
         }
     }
 
     /**
-     * Rebuilds the entire Matrix Grid.
+     * Points the matrix at the current data and orientation. It draws only the visible cells, so this creates no
+     * nodes and transposing is one repaint.
      */
-
     private void buildGrid() {
-        assignmentGrid.getChildren().clear();
-        assignmentGrid.getColumnConstraints().clear();
-        assignmentGrid.getRowConstraints().clear();
-        // A. Top-left corner
-        String cornerText = isTransposed ? "Lớp \\ Môn" : "Môn \\ Lớp";
-        StackPane corner = new StackPane(new Label(cornerText));
-        corner.setStyle("-fx-background-color: #94a3b8; -fx-padding: 5;");
-        assignmentGrid.add(corner, 0, 0);
-
-        // B. Determine which list is for Rows and which is for Columns
+        // Determine which list is for Rows and which is for Columns
         List<?> rowEntities = isTransposed ? classes : subjects;
         List<?> colEntities = isTransposed ? subjects : classes;
-        ColumnConstraints headerCol = new ColumnConstraints();
-        headerCol.setMinWidth(50);
-        headerCol.setPrefWidth(100);
-        assignmentGrid.getColumnConstraints().add(headerCol);
-
-        double COLUMN_WIDTH = 100.0;
-        for (int i = 0; i < colEntities.size(); i++) {
-            ColumnConstraints colConst = new ColumnConstraints();
-            colConst.setMinWidth(COLUMN_WIDTH);
-            colConst.setPrefWidth(COLUMN_WIDTH);
-            colConst.setMaxWidth(COLUMN_WIDTH);
-            assignmentGrid.getColumnConstraints().add(colConst);
-        }
-
-        // C. Draw Row Headers (Column 0)
-        for (int r = 0; r < rowEntities.size(); r++) {
-            Object entity = rowEntities.get(r);
-            String labelText = getNameOf(entity);
-
-            Label lbl = new Label(labelText);
-            lbl.setStyle("-fx-font-weight: bold; -fx-text-fill: #1e293b;");
-
-            StackPane cell = new StackPane(lbl);
-            cell.setPrefHeight(50);
-//            cell.setPrefWidth(150); // Row header should be a bit wide
-            cell.setStyle("-fx-background-color: #e2e8f0; -fx-border-color: #cbd5e1;");
 
-            assignmentGrid.add(cell, 0, r + 1);
-        }
+        assignmentMatrix.setModel(new AssignmentMatrix.Model() {
+            @Override
+            public int rowCount() {
+                return rowEntities.size();
+            }
 
-        // D. Draw Column Headers (Row 0)
-        for (int c = 0; c < colEntities.size(); c++) {
-            Object entity = colEntities.get(c);
-            String labelText = getNameOf(entity);
+            @Override
+            public int columnCount() {
+                return colEntities.size();
+            }
 
-            Label lbl = new Label(labelText);
-            lbl.setStyle("-fx-font-weight: bold; -fx-text-fill: #1e293b;");
+            @Override
+            public String corner() {
+                return isTransposed ? "Lớp \\ Môn" : "Môn \\ Lớp";
+            }
 
-            StackPane cell = new StackPane(lbl);
-            cell.setPrefWidth(40);
-//            cell.setPrefHeight(40);
-            cell.setStyle("-fx-background-color: #e2e8f0; -fx-border-color: #cbd5e1;");
+            @Override
+            public String rowHeader(int row) {
+                return getNameOf(rowEntities.get(row));
+            }
 
-            assignmentGrid.add(cell, c + 1, 0);
-        }
+            @Override
+            public String columnHeader(int column) {
+                return getNameOf(colEntities.get(column));
+            }
 
-        // E. Draw data cells
-        for (int r = 0; r < rowEntities.size(); r++) {
-            for (int c = 0; c < colEntities.size(); c++) {
-
-                // Logic to determine Subject and Class based on r, c coordinates
-                Subject subject;
-                Clazz clazz;
-
-                if (isTransposed) {
-                    // Row is Class, Column is Subject
-                    clazz = (Clazz) rowEntities.get(r);
-                    subject = (Subject) colEntities.get(c);
-                } else {
-                    // Row is Subject, Column is Class (Default)
-                    subject = (Subject) rowEntities.get(r);
-                    clazz = (Clazz) colEntities.get(c);
-                }
+            @Override
+            public String teacher(int row, int column) {
+                Teacher t = currentTeacher(keyAt(row, column));
+                return t != null ? t.getName() : null;
+            }
 
-                // Call the cell creation function as before (no need to modify createAssignmentCell)
-                // Note: r + 1 and c + 1 are the display positions on the Grid
-                createAssignmentCell(r + 1, c + 1, subject, clazz);
+            @Override
+            public boolean isPending(int row, int column) {
+                // Pending = edited, write not yet committed
+                return pendingWrites.contains(keyAt(row, column));
             }
-        }
+        });
     }
 
     // Helper to get display name
@@ -230,130 +243,132 @@ public class AssignmentController {
         return "?";
     }
 
-    /**
-     * Creates a single cell in the matrix.
-     */
-    private void createAssignmentCell(int row, int col, Subject subject, Clazz clazz) {
-        String key = genKey(subject.getId(), clazz.getId());
-
-        // Determine the Teacher to display:
-        // Priority 1: Pending Change (Unsaved)
-        // Priority 2: Database Cache (Saved)
-        Assignment effectiveAssignment = null;
-        boolean isPending = false;
-
-        if (pendingChanges.containsKey(key)) {
-            effectiveAssignment = pendingChanges.get(key);
-            isPending = true;
-        } else {
-            effectiveAssignment = assignmentDbCache.get(key);
-        }
+    // Row is Subject, Column is Class (Default); the other way round when transposed
+    private Subject subjectAt(int row, int column) {
+        return subjects.get(isTransposed ? column : row);
+    }
 
-        Teacher displayTeacher;
-        if (effectiveAssignment != null) {
-            displayTeacher = findTeacherById(effectiveAssignment.getTeacherId());
-        } else {
-            displayTeacher = null;
-        }
+    private Clazz classAt(int row, int column) {
+        return classes.get(isTransposed ? row : column);
+    }
 
-        // Create UI Components
-        VBox cell = new VBox();
-        cell.setAlignment(Pos.CENTER);
-        cell.setPrefSize(120, 50); // Fixed size for uniformity
-
-        Label lblTeacher = new Label();
-        styleCell(cell, lblTeacher, displayTeacher, isPending);
-
-        // --- Interaction Logic ---
-        cell.setOnMouseClicked(e -> {
-            if (tglQuickMode.isSelected()) {
-                // Quick Mode: Assign immediately from Toolbar
-                Teacher selected = cbQuickTeacher.getValue();
-                if (selected != null) {
-                    handleLocalUpdate(cell, lblTeacher, subject, clazz, selected);
-                } else {
-                    showAlert(Alert.AlertType.WARNING, "Chưa chọn giáo viên!", "Vui lòng chọn giáo viên ở thanh công cụ phía trên.");
-                }
+    private String keyAt(int row, int column) {
+        return genKey(subjectAt(row, column).getId(), classAt(row, column).getId());
+    }
+
+    /**
+     * Click on a matrix cell.
+     */
+    private void onCellClicked(int row, int column) {
+        Subject subject = subjectAt(row, column);
+        Clazz clazz = classAt(row, column);
+
+        if (tglQuickMode.isSelected()) {
+            // Quick Mode: Assign immediately from Toolbar
+            Teacher selected = cbQuickTeacher.getValue();
+            if (selected != null) {
+                handleLocalUpdate(subject, clazz, selected);
             } else {
-                // Normal Mode: Show Dialog
-                showSelectTeacherDialog(cell, lblTeacher, subject, clazz, displayTeacher);
+                showAlert(Alert.AlertType.WARNING, "Chưa chọn giáo viên!", "Vui lòng chọn giáo viên ở thanh công cụ phía trên.");
             }
-        });
-
-        cell.getChildren().add(lblTeacher);
-        assignmentGrid.add(cell, col, row);
+        } else {
+            // Normal Mode: Show Dialog
+            showSelectTeacherDialog(subject, clazz, currentTeacher(genKey(subject.getId(), clazz.getId())));
+        }
     }
 
     /**
-     * Handles updating the "Pending Map" and UI when a user assigns a teacher.
+     * Records the assignment of a teacher as an undoable edit. Clicking again with the same teacher changes nothing;
+     * use undo to go back.
      */
-    private void handleLocalUpdate(VBox cell, Label label, Subject s, Clazz c, Teacher t) {
+    private void handleLocalUpdate(Subject s, Clazz c, Teacher t) {
         String key = genKey(s.getId(), c.getId());
-
-        // Check if we are toggling off the change (clicking again with same teacher)
-        if (pendingChanges.containsKey(key)) {
-            Assignment pending = pendingChanges.get(key);
-            if (pending.getTeacherId().equals(t.getId())) {
-                // Revert change
-                pendingChanges.remove(key);
-
-                // Restore original state
-                Assignment original = assignmentDbCache.get(key);
-                Teacher originalTeacher = (original != null) ? findTeacherById(original.getTeacherId()) : null;
-
-                styleCell(cell, label, originalTeacher, false);
-                updateCancelButtonVisibility();
-                return;
-            }
-        }
+        Assignment current = assignmentDbCache.get(key);
+        if (current != null && t.getId().equals(current.getTeacherId())) return;
 
         // Create new Assignment Object
         Assignment assignment = new Assignment();
-        // Check if we are updating an existing DB record to keep the ID, else gen new UUID
-        Assignment existingInDb = assignmentDbCache.get(key);
-        if (existingInDb != null) {
-            assignment.setId(existingInDb.getId());
-        } else {
-            assignment.setId(UUID.randomUUID().toString());
-        }
-
+        // Keep the ID of an existing record, else gen new UUID
+        assignment.setId(current != null ? current.getId() : UUID.randomUUID().toString());
         assignment.setSubjectId(s.getId());
         assignment.setClassId(c.getId());
         assignment.setTeacherId(t.getId());
 
-        // Add to Pending
-        pendingChanges.put(key, assignment);
-
-        // Update UI Visuals immediately
-        styleCell(cell, label, t, true);
-        updateCancelButtonVisibility();
+        journal.perform(new AssignTeacherEdit(key, s.getId(), c.getId(), current, assignment));
+        updateEditButtons();
     }
 
     /**
-     * Styles the cell based on state (Assigned, Unassigned, Pending).
+     * Sets the assignment of one cell (null = unassigned): memory and cell at once, database through the writer.
      */
-    private void styleCell(VBox cell, Label label, Teacher t, boolean isPending) {
-        if (t == null) {
-            label.setText("Empty");
-            label.setStyle("-fx-text-fill: #ef4444; -fx-font-style: italic; -fx-font-size: 11px;");
-            cell.setStyle("-fx-background-color: #fff1f2; -fx-border-color: #ffe4e6; -fx-cursor: hand;"); // Red tint
-        } else {
-            if (isPending) {
-                label.setText(t.getName() + " (*)");
-                label.setStyle("-fx-text-fill: #854d0e; -fx-font-weight: bold;"); // Dark Yellow text
-                cell.setStyle("-fx-background-color: #fef9c3; -fx-border-color: #eab308; -fx-border-width: 1.5; -fx-cursor: hand;"); // Yellow bg
-            } else {
-                label.setText(t.getName());
-                label.setStyle("-fx-text-fill: #0f172a;");
-                cell.setStyle("-fx-background-color: white; -fx-border-color: #e2e8f0; -fx-cursor: hand;");
+    private void setAssignment(String key, String subjectId, String classId, Assignment assignment) {
+        if (assignment != null) assignmentDbCache.put(key, assignment);
+        else assignmentDbCache.remove(key);
+        pendingWrites.add(key);
+        assignmentMatrix.repaint();
+
+        String writeKey = "assignment:" + key;
+        writer.submit(writeKey, r -> {
+            // The cell's final state, whatever was written for it before
+            r.getAssignmentRepository().deleteByClassAndSubject(classId, subjectId);
+            if (assignment != null) r.getAssignmentRepository().save(assignment);
+        }, error -> Platform.runLater(() -> onWritten(key, writeKey, error)));
+    }
+
+    private void onWritten(String key, String writeKey, RuntimeException error) {
+        if (error == null) {
+            if (!writer.isQueued(writeKey)) {
+                pendingWrites.remove(key);
+                assignmentMatrix.repaint();
             }
+            return;
+        }
+
+        // One alert per failed batch; the batch was rolled back, so start again from what is saved
+        if (error == reportedWriteError) return;
+        reportedWriteError = error;
+        showAlert(Alert.AlertType.ERROR, "Lỗi", "Không thể lưu phân công: " + error.getMessage());
+        pendingWrites.clear();
+        journal.clear();
+        updateEditButtons();
+        loadDataFromDb();
+    }
+
+    private Teacher currentTeacher(String key) {
+        Assignment assignment = assignmentDbCache.get(key);
+        return assignment != null ? findTeacherById(assignment.getTeacherId()) : null;
+    }
+
+    private final class AssignTeacherEdit implements EditJournal.Edit {
+        private final String key;
+        private final String subjectId;
+        private final String classId;
+        private final Assignment before;
+        private final Assignment after;
+
+        AssignTeacherEdit(String key, String subjectId, String classId, Assignment before, Assignment after) {
+            this.key = key;
+            this.subjectId = subjectId;
+            this.classId = classId;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void apply() {
+            setAssignment(key, subjectId, classId, after);
+        }
+
+        @Override
+        public void revert() {
+            setAssignment(key, subjectId, classId, before);
         }
     }
 
     /**
      * Shows a dialog to select a teacher.
      */
-    private void showSelectTeacherDialog(VBox cell, Label label, Subject s, Clazz c, Teacher current) {
+    private void showSelectTeacherDialog(Subject s, Clazz c, Teacher current) {
         ChoiceDialog<Teacher> dialog = new ChoiceDialog<>(current, teachers);
         dialog.setTitle("Assign Teacher");
         dialog.setHeaderText("Subject: " + s.getName() + " - Class: " + c.getClassName());
@@ -362,55 +377,30 @@ public class AssignmentController {
         // Fix display in ComboBox inside Dialog
         ComboBox<Teacher> combo = (ComboBox<Teacher>) dialog.getDialogPane().lookup(".combo-box");
         if (combo != null) {
-            combo.setConverter(new StringConverter<>() {
-                @Override
-                public String toString(Teacher t) {
-                    return t == null ? "" : t.getName();
-                }
-
-                @Override
-                public Teacher fromString(String s) {
-                    return null; // Not needed
-                }
-            });
+            combo.setConverter(teacherConverter());
         }
 
         Optional<Teacher> result = dialog.showAndWait();
         result.ifPresent(selectedTeacher -> {
-            handleLocalUpdate(cell, label, s, c, selectedTeacher);
+            handleLocalUpdate(s, c, selectedTeacher);
         });
     }
 
     /**
-     * Triggered by "Save Changes" button in FXML.
+     * Triggered by "Save Changes" button in FXML. Edits are saved in the background anyway; this waits for the
+     * pending ones.
      */
     @FXML
     public void handleSaveChanges() {
-        if (pendingChanges.isEmpty()) {
-            showAlert(Alert.AlertType.INFORMATION, "Thông báo", "Không có thay đổi nào để lưu.");
+        if (pendingWrites.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "Thông báo", "Không có thay đổi nào đang chờ lưu.");
             return;
         }
 
-        try {
-            // 1. Convert pending map to list
-            List<Assignment> batchList = new ArrayList<>(pendingChanges.values());
-
-            // 2. Call Repository Batch Save (INSERT OR REPLACE)
-            repo.getAssignmentRepository().saveAll(batchList);
-
-            // 3. Clear pending
-            pendingChanges.clear();
-
-            // 4. Reload from DB to verify and reset UI
-            loadDataFromDb();
-            buildGrid();
-            updateCancelButtonVisibility();
-
-            showAlert(Alert.AlertType.INFORMATION, "Success", "Saved " + batchList.size() + " assignments successfully!");
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "Error", "Save failed: " + e.getMessage());
+        int count = pendingWrites.size();
+        // A failure is reported by onWritten
+        if (writer.flush() == null) {
+            showAlert(Alert.AlertType.INFORMATION, "Thành công", "Đã lưu " + count + " phân công.");
         }
     }
 
@@ -433,16 +423,19 @@ public class AssignmentController {
             Optional<String> confirmResult = confirmDialog.showAndWait();
             if (confirmResult.isPresent() && confirmResult.get().equals("Delete")) {
                 try {
+                    // Queued edits first, so none of them brings a row back afterwards
+                    writer.flush();
                     // Perform deletion of all assignments
                     repo.getAssignmentRepository().deleteAll();
 
-                    // Clear local caches
-                    pendingChanges.clear();
+                    // Clear local caches; the deletion cannot be undone
+                    pendingWrites.clear();
                     assignmentDbCache.clear();
+                    journal.clear();
 
                     // Rebuild grid
                     buildGrid();
-                    updateCancelButtonVisibility();
+                    updateEditButtons();
 
                     // Show success message
                     Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
@@ -471,16 +464,42 @@ public class AssignmentController {
     }
     // --- Helpers ---
 
+    /**
+     * Teacher name with the saved weekly periods, flagged when overloaded, for the teacher pickers.
+     */
+    private StringConverter<Teacher> teacherConverter() {
+        return new StringConverter<>() {
+            @Override
+            public String toString(Teacher t) {
+                if (t == null) return "";
+                int periods = workloads.periodsOf(t.getId());
+                String label = t.getName() + " (" + periods + " tiết";
+                return TeacherWorkloadService.isOverloaded(periods) ? label + " - QUÁ TẢI)" : label + ")";
+            }
+
+            @Override
+            public Teacher fromString(String string) {
+                return null; // Not needed
+            }
+        };
+    }
+
+    // Re-labels the quick mode teachers with the new totals, keeping the chosen one
+    private void refreshQuickTeachers() {
+        if (teachers == null) return;
+        Teacher selected = cbQuickTeacher.getValue();
+        cbQuickTeacher.getItems().setAll(teachers);
+        cbQuickTeacher.setValue(selected);
+    }
+
     private String genKey(String subjectId, String classId) {
         return subjectId + "_" + classId;
     }
 
     private Teacher findTeacherById(String id) {
         if (id == null) return null;
-        return teachers.stream()
-                .filter(t -> t.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        // Called for every visible cell on each repaint
+        return snapshot.getTeacher(id);
     }
 
     private void showAlert(Alert.AlertType type, String title, String content) {
@@ -1,7 +1,10 @@
 package application.controllers;
 
 import application.models.*;
+import application.repository.EntityVersionRepository;
 import application.repository.RepositoryOrchestrator;
+import application.utils.AsyncLoader;
+import application.utils.PendingChanges;
 import application.views.TimeGridSelector;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
@@ -16,10 +19,20 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-public class ClassConfigController {
+public class ClassConfigController implements RefreshableView {
+
+    // Grades and classes are patched into the accordion from change events
+    private static final Set<String> DEPENDENCIES = Set.of(
+            EntityVersionRepository.SESSION, EntityVersionRepository.CURRICULUM, EntityVersionRepository.ASSIGNMENT,
+            EntityVersionRepository.TEACHER);
     private final RepositoryOrchestrator repo;
     private Clazz currentSelectingClass;
     private Grade currentEditingGrade = null;
@@ -62,9 +75,24 @@ public class ClassConfigController {
     private Button btnDeleteGrade;
 
     private TimeGridSelector timeGridSelector;
+    private final AsyncLoader accordionLoader = new AsyncLoader();
+    private final AsyncLoader curriculumLoader = new AsyncLoader();
+    private final AsyncLoader patchLoader = new AsyncLoader();
+    private final PendingChanges changes;
+    // Accordion pane and row list of each grade, by grade id
+    private final Map<String, TitledPane> gradePanes = new HashMap<>();
+    private final Map<String, ListView<NavItem>> gradeLists = new HashMap<>();
+    // One selector per session, reused: switching grades only swaps the mask
+    private final Map<ESession, TimeGridSelector> timeGridSelectors = new EnumMap<>(ESession.class);
+    // What the curriculum table renders, read in bulk with its rows so cells never touch the database.
+    // Subjects are seeded once and never edited, so their names are read on the first load only
+    private Map<String, String> subjectNames = Map.of();
+    private Map<String, Teacher> subjectTeachers = Map.of();
 
     public ClassConfigController(RepositoryOrchestrator repo) {
         this.repo = repo;
+        this.changes = new PendingChanges(repo.getChangeBus(),
+                Set.of(EntityVersionRepository.GRADE, EntityVersionRepository.CLASS), c -> patchChanges());
     }
 
     public void initialize() {
@@ -81,7 +109,7 @@ public class ClassConfigController {
                 currentEditingGrade.setSession(dbSession);
                 repo.getGradeRepository().save(currentEditingGrade);
                 // Re-create time grid when session changes, and reset matrix
-                updateTimeGridForGrade(currentEditingGrade, true);
+                updateTimeGridForGrade(currentEditingGrade, null);
             }
         });
 
@@ -114,8 +142,7 @@ public class ClassConfigController {
         // Subject col
         colSubject.setCellValueFactory(data -> {
             String subId = data.getValue().getSubjectId();
-            Subject s = repo.getSubjectRepository().getById(subId);
-            return new SimpleStringProperty(s != null ? s.getName() : subId);
+            return new SimpleStringProperty(subjectNames.getOrDefault(subId, subId));
         });
 
         // Periods col (2 way binding)
@@ -190,14 +217,7 @@ public class ClassConfigController {
         // Teacher col
         colTeacher.setCellValueFactory(data -> {
             if (currentSelectingClass == null) return new SimpleObjectProperty<>(null);
-            Curriculum c = data.getValue();
-
-            Assignment a = repo.getAssignmentRepository().getByClassAndSubject(currentSelectingClass.getId(), c.getSubjectId());
-            if (a == null) return new SimpleObjectProperty<>();
-
-            Teacher t = repo.getTeacherRepository().getById(a.getTeacherId());
-            if (t != null) return new SimpleObjectProperty<>(t);
-            return new SimpleObjectProperty<>(null);
+            return new SimpleObjectProperty<>(subjectTeachers.get(data.getValue().getSubjectId()));
         });
         colTeacher.setCellFactory(col -> new TableCell<Curriculum, Teacher>() {
             {
@@ -250,89 +270,256 @@ public class ClassConfigController {
         lblTotalPeriods.setText("Tổng số tiết: " + total);
     }
 
+    @Override
+    public Set<String> dependencies() {
+        return DEPENDENCIES;
+    }
+
+    @Override
+    public void refresh() {
+        loadAccordionData();
+    }
+
+    @Override
+    public void dispose() {
+        changes.close();
+    }
+
+    /**
+     * Reads grades and their classes in the background, then rebuilds the accordion.
+     */
     private void loadAccordionData() {
-        List<Grade> grades = repo.getGradeRepository().getAll();
+        accordionLoader.load(() -> repo.inReadTransaction(() -> {
+            List<GradeClasses> result = new ArrayList<>();
+            for (Grade grade : repo.getGradeRepository().getAll()) {
+                result.add(new GradeClasses(grade, repo.getClassRepository().getByGrade(grade.getId())));
+            }
+            return result;
+        }), grades -> {
+            buildAccordion(grades);
+            // Rows written while the accordion was loading may be older in it than in the database
+            patchChanges();
+        });
+    }
+
+    private record GradeClasses(Grade grade, List<Clazz> classes) {
+    }
+
+    private void buildAccordion(List<GradeClasses> grades) {
         boolean selected = false;
         gradeAccordion.getPanes().clear();
-        for (Grade grade : grades) {
-            TitledPane pane = new TitledPane();
-            pane.setText(grade.getName());
-
-            ListView<NavItem> list = new ListView<>();
-            List<NavItem> items = new ArrayList<>();
-            NavItem gradeItem = new NavItem("Cấu hình chung " + grade.getName(), grade, true);
-            items.add(gradeItem);
-
-            List<Clazz> classes = repo.getClassRepository().getByGrade(grade.getId());
-            for (Clazz c : classes) {
-                items.add(new NavItem("   Lớp " + c.getClassName(), c, false));
+        gradePanes.clear();
+        gradeLists.clear();
+        for (GradeClasses entry : grades) {
+            TitledPane pane = createGradePane(entry.grade(), entry.classes());
+            gradeAccordion.getPanes().add(pane);
+
+            if (!selected) {
+                selected = true;
+                ListView<NavItem> list = gradeLists.get(entry.grade().getId());
+                Platform.runLater(() -> list.getSelectionModel().select(0));
             }
+        }
+        // Auto open first selection
+        if (!gradeAccordion.getPanes().isEmpty()) {
+            gradeAccordion.setExpandedPane(gradeAccordion.getPanes().get(0));
+        }
+    }
 
-            list.getItems().addAll(items);
+    private TitledPane createGradePane(Grade grade, List<Clazz> classes) {
+        TitledPane pane = new TitledPane();
+        pane.setText(grade.getName());
 
-            list.setCellFactory(_ -> new ListCell<>() {
-                @Override
-                protected void updateItem(NavItem item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty || item == null) {
-                        setText(null);
+        ListView<NavItem> list = new ListView<>();
+        List<NavItem> items = new ArrayList<>();
+        NavItem gradeItem = new NavItem("Cấu hình chung " + grade.getName(), grade, true);
+        items.add(gradeItem);
+
+        for (Clazz c : classes) {
+            items.add(classItem(c));
+        }
+
+        list.getItems().addAll(items);
+
+        list.setCellFactory(_ -> new ListCell<>() {
+            @Override
+            protected void updateItem(NavItem item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else {
+                    setText(item.label());
+                    if (item.isGradeConfig()) {
+                        // Style for Grade
+                        setStyle("-fx-font-weight: bold; -fx-text-fill: #2980b9;");
                     } else {
-                        setText(item.label());
-                        if (item.isGradeConfig()) {
-                            // Style for Grade
-                            setStyle("-fx-font-weight: bold; -fx-text-fill: #2980b9;");
-                        } else {
-                            // Style clazz
-                            setStyle("-fx-padding: 0 0 0 10;"); // Indent left
-                        }
+                        // Style clazz
+                        setStyle("-fx-padding: 0 0 0 10;"); // Indent left
                     }
                 }
-            });
+            }
+        });
 
-            double CELL_HEIGHT = 25.0;
-            list.setFixedCellSize(CELL_HEIGHT);
+        double CELL_HEIGHT = 25.0;
+        list.setFixedCellSize(CELL_HEIGHT);
 
-            // ListView height = (element count * row's height) + 2px (border)
-            list.prefHeightProperty().bind(
-                    Bindings.size(list.getItems()).multiply(CELL_HEIGHT).add(2.0)
-            );
+        // ListView height = (element count * row's height) + 2px (border)
+        list.prefHeightProperty().bind(
+                Bindings.size(list.getItems()).multiply(CELL_HEIGHT).add(2.0)
+        );
 
-            // Click event
-            list.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-                if (newVal != null) {
-                    handleSelection(newVal); // Load data to the main panel
-                }
-            });
-            pane.setContent(list);
-            gradeAccordion.getPanes().add(pane);
+        // Click event
+        list.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                handleSelection(newVal); // Load data to the main panel
+            }
+        });
+        pane.setContent(list);
 
-            if (!selected) {
-                selected = true;
-                Platform.runLater(() -> list.getSelectionModel().select(gradeItem));
+        gradePanes.put(grade.getId(), pane);
+        gradeLists.put(grade.getId(), list);
+        return pane;
+    }
+
+    private static NavItem classItem(Clazz c) {
+        return new NavItem("   Lớp " + c.getClassName(), c, false);
+    }
+
+    private record PatchRows(Map<String, Grade> grades, Map<String, Clazz> classes) {
+    }
+
+    /**
+     * Re-reads only the grades and classes written since the last patch (null when deleted) and adds, renames or
+     * removes their panes and rows; the rest of the accordion, its selection and expanded pane stay as they are.
+     */
+    private void patchChanges() {
+        // Applied once the accordion is built
+        if (accordionLoader.isLoading()) return;
+        PendingChanges.Batch batch = changes.peek();
+        if (batch.isEmpty()) return;
+
+        patchLoader.load(() -> repo.inReadTransaction(() -> {
+            Map<String, Grade> grades = new HashMap<>();
+            for (String id : batch.ids(EntityVersionRepository.GRADE)) {
+                grades.put(id, repo.getGradeRepository().getById(id));
+            }
+            Map<String, Clazz> classes = new HashMap<>();
+            for (String id : batch.ids(EntityVersionRepository.CLASS)) {
+                classes.put(id, repo.getClassRepository().getById(id));
             }
+            return new PatchRows(grades, classes);
+        }), rows -> {
+            changes.acknowledge(batch);
+            // Grades first: a new grade's pane must exist before its classes are added to it
+            rows.grades().forEach(this::patchGrade);
+            rows.classes().forEach(this::patchClass);
+        });
+    }
+
+    private void patchGrade(String id, Grade fresh) {
+        TitledPane pane = gradePanes.get(id);
+        if (fresh == null) {
+            if (pane != null) gradeAccordion.getPanes().remove(pane);
+            gradePanes.remove(id);
+            gradeLists.remove(id);
+        } else if (pane != null) {
+            pane.setText(fresh.getName());
+        } else {
+            gradeAccordion.getPanes().add(createGradePane(fresh, List.of()));
         }
-        // Auto open first selection
-        if (!gradeAccordion.getPanes().isEmpty()) {
-            gradeAccordion.setExpandedPane(gradeAccordion.getPanes().get(0));
+    }
+
+    private void patchClass(String id, Clazz fresh) {
+        for (Map.Entry<String, ListView<NavItem>> entry : gradeLists.entrySet()) {
+            List<NavItem> items = entry.getValue().getItems();
+            // Row 0 is the grade itself
+            for (int i = 1; i < items.size(); i++) {
+                if (!((Clazz) items.get(i).data()).getId().equals(id)) continue;
+                if (fresh != null && fresh.getGradeId().equals(entry.getKey())) {
+                    // Replacing the row re-selects it; only done for an actual rename
+                    if (!items.get(i).label().equals(classItem(fresh).label())) items.set(i, classItem(fresh));
+                    return;
+                }
+                items.remove(i);
+                break;
+            }
         }
+        ListView<NavItem> list = fresh != null ? gradeLists.get(fresh.getGradeId()) : null;
+        if (list != null) list.getItems().add(classItem(fresh));
     }
 
-    private void loadCurriculumTable(String gradeId) {
-        List<Subject> subjects = repo.getSubjectRepository().getAll();
-        curriculumTable.getItems().clear();
+    private record CurriculumRows(Map<String, String> subjectNames, List<Curriculum> rows,
+                                  Map<String, Teacher> teachers, Grade grade, Session session) {
+    }
 
-        for (Subject s : subjects) {
-            Curriculum curriculum = repo.getCurriculumRepository().getByGradeAndSubject(gradeId, s.getId());
-            if (curriculum == null) {
+    /**
+     * Loads the curriculum of a grade, its session's busy slots, and the teachers of a class if one is given, in the
+     * background; selecting another grade or class first cancels it. One query per table, whatever the number of
+     * subjects.
+     */
+    private void loadCurriculumTable(String gradeId, String classId) {
+        curriculumTable.getItems().clear();
+        curriculumTable.setPlaceholder(new Label("Đang tải chương trình học..."));
+        timeGridContainer.getChildren().clear();
+        Map<String, String> knownSubjects = subjectNames;
+        curriculumLoader.load(() -> repo.inReadTransaction(() -> {
+            Map<String, String> names = knownSubjects;
+            if (names.isEmpty()) {
+                names = new LinkedHashMap<>();
+                for (Subject s : repo.getSubjectRepository().getAll()) {
+                    names.put(s.getId(), s.getName());
+                }
+            }
+            Map<String, Curriculum> bySubject = new HashMap<>();
+            for (Curriculum c : repo.getCurriculumRepository().getByGrade(gradeId)) {
+                bySubject.put(c.getSubjectId(), c);
+            }
+            List<Curriculum> rows = new ArrayList<>();
+            for (String subjectId : names.keySet()) {
                 // If not exists, create new
-                curriculum = new Curriculum(gradeId, s.getId(), 0, false);
+                rows.add(bySubject.getOrDefault(subjectId, new Curriculum(gradeId, subjectId, 0, false)));
             }
-            curriculumTable.getItems().add(curriculum);
-        }
+            Map<String, Teacher> teachers = classId != null
+                    ? repo.getTeacherRepository().getBySubjectOfClass(classId)
+                    : Map.of();
+            Grade grade = repo.getGradeRepository().getById(gradeId);
+            Session session = grade != null
+                    ? repo.getSessionRepository().getByName(grade.getSession().getSessionName())
+                    : null;
+            return new CurriculumRows(names, rows, teachers, grade, session);
+        }), table -> {
+            subjectNames = table.subjectNames();
+            subjectTeachers = table.teachers();
+            curriculumTable.getItems().setAll(table.rows());
+            curriculumTable.setPlaceholder(new Label("Chưa có môn học"));
+
+            // Refresh to update Spinner's state (Enable/Disable)
+            curriculumTable.refresh();
+            updateTotalPeriods();
+            showTimeGrid(table.grade(), table.session());
+        });
+    }
 
-        // Refresh to update Spinner's state (Enable/Disable)
-        curriculumTable.refresh();
-        updateTotalPeriods();
+    /**
+     * Read-only time grid of the selected grade or class, once its session is loaded.
+     */
+    private void showTimeGrid(Grade grade, Session session) {
+        if (grade == null) {
+            // Clear time grid when the grade is gone
+            timeGridContainer.getChildren().clear();
+            timeGridSelector = null; // clear reference
+            return;
+        }
+        if (currentSelectingClass != null) {
+            // Show the session a class inherits from its grade
+            if (grade.getSession().getSessionName() == ESession.MORNING) {
+                sessionGroup.selectToggle(btnMorning);
+            } else {
+                sessionGroup.selectToggle(btnAfternoon);
+            }
+        }
+        updateTimeGridForGrade(grade, session);
+        timeGridSelector.setReadOnly(true);
     }
 
     private void handleSelection(NavItem item) {
@@ -363,13 +550,6 @@ public class ClassConfigController {
             } else {
                 sessionGroup.selectToggle(btnAfternoon);
             }
-
-            // Update time grid for the selected grade
-            updateTimeGridForGrade(g, false); // false to load existing matrix
-            if (timeGridSelector != null) {
-                timeGridSelector.setReadOnly(true);
-            }
-
         } else {
             // CASE 2: VIEWING CLASS
             Clazz c = (Clazz) item.data();
@@ -387,45 +567,32 @@ public class ClassConfigController {
 
             setButtonVisibility(false, true, false);
 
-            // Disable session toggle for Class view (inherited from Grade)
+            // Disable session toggle for Class view (inherited from Grade, shown once it is loaded)
             btnMorning.setDisable(true);
             btnAfternoon.setDisable(true);
-
-            // Show inherited session
-            Grade g = repo.getGradeRepository().getById(c.getGradeId());
-            if (g != null) {
-                if (g.getSession().getSessionName() == ESession.MORNING) {
-                    sessionGroup.selectToggle(btnMorning);
-                } else {
-                    sessionGroup.selectToggle(btnAfternoon);
-                }
-                // Update time grid for the selected grade
-                updateTimeGridForGrade(g, false); // false to load existing matrix
-                if (timeGridSelector != null) {
-                    timeGridSelector.setReadOnly(true);
-                }
-            } else {
-                // Clear time grid when viewing a class
-                timeGridContainer.getChildren().clear();
-                timeGridSelector = null; // clear reference
-            }
         }
 
-        loadCurriculumTable(gradeId);
+        // The time grid is shown when the background read delivers the grade's session
+        loadCurriculumTable(gradeId, currentSelectingClass != null ? currentSelectingClass.getId() : null);
     }
 
-    private void updateTimeGridForGrade(Grade grade, boolean resetMatrix) {
+    /**
+     * Shows the time grid of the grade's session with the busy slots of {@code session}, or cleared if it is null.
+     */
+    private void updateTimeGridForGrade(Grade grade, Session session) {
         if (grade == null) {
             timeGridContainer.getChildren().clear();
             return;
         }
-        timeGridContainer.getChildren().clear();
-        timeGridSelector = new TimeGridSelector(grade.getSession().getSessionName());
-        Session session = repo.getSessionRepository().getByName(grade.getSession().getSessionName());
-        if (!resetMatrix) {
-            timeGridSelector.setBusyMatrix(session.getBusyMatrix());
+        ESession sessionName = grade.getSession().getSessionName();
+        timeGridSelector = timeGridSelectors.computeIfAbsent(sessionName, TimeGridSelector::new);
+        timeGridSelector.setReadOnly(false);
+        if (session == null) {
+            timeGridSelector.clear();
+        } else {
+            timeGridSelector.setBusyMask(session.getBusyMask());
         }
-        timeGridContainer.getChildren().add(timeGridSelector);
+        timeGridContainer.getChildren().setAll(timeGridSelector);
     }
 
     @FXML
@@ -466,11 +633,9 @@ public class ClassConfigController {
 
             // Create new class
             Clazz newClass = new Clazz(java.util.UUID.randomUUID().toString(), className, currentEditingGrade.getId());
+            // The accordion picks the new class up from the change event
             repo.getClassRepository().save(newClass);
 
-            // Reload accordion to show new class
-            loadAccordionData();
-
             // Show success message
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Thành công");
@@ -494,15 +659,13 @@ public class ClassConfigController {
             // Delete assignments first
             repo.getAssignmentRepository().deleteByClassId(currentSelectingClass.getId());
 
-            // Delete class
+            // Delete class; its row leaves the accordion with the change event
             repo.getClassRepository().delete(currentSelectingClass.getId());
 
-            // Reload accordion
-            loadAccordionData();
-
             // Clear selection
             currentSelectingClass = null;
             lblClassName.setText("Chọn lớp để cấu hình");
+            curriculumLoader.cancel();
             curriculumTable.getItems().clear();
             setButtonVisibility(false, false, false);
 
@@ -658,9 +821,6 @@ public class ClassConfigController {
                 repo.getClassRepository().save(newClass);
             }
 
-            // Reload accordion
-            loadAccordionData();
-
             // Show success message
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Thành công");
@@ -703,12 +863,10 @@ public class ClassConfigController {
                     // 2. Delete the grade itself
                     repo.getGradeRepository().delete(currentEditingGrade.getId());
 
-                    // Reload accordion
-                    loadAccordionData();
-
                     // Clear selection
                     currentEditingGrade = null;
                     lblClassName.setText("Chọn lớp để cấu hình");
+                    curriculumLoader.cancel();
                     curriculumTable.getItems().clear();
                     setButtonVisibility(false, false, false);
                     btnSave.setDisable(true);
@@ -738,12 +896,10 @@ public class ClassConfigController {
             if (result.isPresent() && result.get() == ButtonType.OK) {
                 repo.getGradeRepository().delete(currentEditingGrade.getId());
 
-                // Reload accordion
-                loadAccordionData();
-
                 // Clear selection
                 currentEditingGrade = null;
                 lblClassName.setText("Chọn lớp để cấu hình");
+                curriculumLoader.cancel();
                 curriculumTable.getItems().clear();
                 setButtonVisibility(false, false, false);
                 btnSave.setDisable(true);
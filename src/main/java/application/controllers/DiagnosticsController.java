@@ -0,0 +1,167 @@
+package application.controllers;
+
+import application.diagnostics.ActionProfile;
+import application.diagnostics.QueryProfiler;
+import application.diagnostics.QueryStats;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Shows what {@link QueryProfiler} collected: the recorded UI actions on the left, the statements of the selected
+ * action on the right, with suspected N+1 statements highlighted.
+ */
+public class DiagnosticsController {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final QueryProfiler profiler;
+
+    @FXML
+    private Spinner<Integer> thresholdSpinner;
+    @FXML
+    private ListView<ActionProfile> actionList;
+    @FXML
+    private TableView<QueryStats> statsTable;
+    @FXML
+    private TableColumn<QueryStats, String> colSql;
+    @FXML
+    private TableColumn<QueryStats, Long> colCount;
+    @FXML
+    private TableColumn<QueryStats, String> colTotal;
+    @FXML
+    private TableColumn<QueryStats, String> colMean;
+    @FXML
+    private TableColumn<QueryStats, String> colMax;
+    @FXML
+    private TableColumn<QueryStats, Long> colRows;
+    @FXML
+    private TableColumn<QueryStats, String> colHistogram;
+    @FXML
+    private Label lblSummary;
+
+    public DiagnosticsController(QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @FXML
+    public void initialize() {
+        thresholdSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 1000, profiler.getNPlusOneThreshold()));
+        thresholdSpinner.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) profiler.setNPlusOneThreshold(newVal);
+        });
+
+        actionList.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(ActionProfile item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    setStyle("");
+                    return;
+                }
+                String flag = item.getSuspectedNPlusOne().isEmpty() ? "" : "  ⚠ N+1";
+                setText(item.getStartedAt().format(TIME_FORMAT) + "  " + item.getName()
+                        + "\n" + item.getQueryCount() + " truy vấn, " + item.getRows() + " dòng" + flag);
+                setStyle(flag.isEmpty() ? "" : "-fx-text-fill: #c0392b;");
+            }
+        });
+        actionList.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> showAction(newVal));
+
+        colSql.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getSql()));
+        colCount.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getCount()));
+        colTotal.setCellValueFactory(c -> new SimpleStringProperty(format(c.getValue().getTotalMillis())));
+        colMean.setCellValueFactory(c -> new SimpleStringProperty(format(c.getValue().getMeanMillis())));
+        colMax.setCellValueFactory(c -> new SimpleStringProperty(format(c.getValue().getMaxMillis())));
+        colRows.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getRows()));
+        colHistogram.setCellValueFactory(c -> new SimpleStringProperty(histogram(c.getValue())));
+        colHistogram.setText("Độ trễ " + String.join(" / ", QueryStats.BUCKET_LABELS));
+
+        handleRefresh();
+    }
+
+    @FXML
+    public void handleRefresh() {
+        List<ActionProfile> items = new ArrayList<>();
+        items.add(profiler.getSessionProfile());
+        // Newest action first
+        List<ActionProfile> actions = profiler.getActions();
+        for (int i = actions.size() - 1; i >= 0; i--) items.add(actions.get(i));
+
+        actionList.getItems().setAll(items);
+        actionList.getSelectionModel().selectFirst();
+    }
+
+    @FXML
+    public void handleReset() {
+        profiler.reset();
+        handleRefresh();
+    }
+
+    @FXML
+    public void handleExportCsv() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Xuất thống kê truy vấn");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        fileChooser.setInitialFileName("query-profile.csv");
+
+        File file = fileChooser.showSaveDialog(statsTable.getScene().getWindow());
+        if (file == null) return;
+
+        try {
+            profiler.exportCsv(file.toPath());
+            lblSummary.setText("Đã xuất: " + file.getAbsolutePath());
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Lỗi");
+            alert.setHeaderText(null);
+            alert.setContentText("Không thể xuất CSV: " + e.getMessage());
+            alert.showAndWait();
+        }
+    }
+
+    private void showAction(ActionProfile action) {
+        if (action == null) {
+            statsTable.getItems().clear();
+            lblSummary.setText("");
+            return;
+        }
+
+        List<QueryStats> stats = new ArrayList<>(action.getStats());
+        stats.sort((a, b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+        statsTable.getItems().setAll(stats);
+
+        statsTable.setRowFactory(tv -> new TableRow<>() {
+            @Override
+            protected void updateItem(QueryStats item, boolean empty) {
+                super.updateItem(item, empty);
+                boolean suspected = !empty && item != null && action.isSuspectedNPlusOne(item.getSql());
+                setStyle(suspected ? "-fx-background-color: #fdecea;" : "");
+            }
+        });
+
+        double totalMs = stats.stream().mapToDouble(QueryStats::getTotalMillis).sum();
+        lblSummary.setText(String.format("%s: %d truy vấn, %d dòng, %.1f ms — %d nghi vấn N+1 (ngưỡng %d)",
+                action.getName(), action.getQueryCount(), action.getRows(), totalMs,
+                action.getSuspectedNPlusOne().size(), profiler.getNPlusOneThreshold()));
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.2f", millis);
+    }
+
+    private static String histogram(QueryStats stats) {
+        return Arrays.stream(stats.getHistogram()).mapToObj(String::valueOf).collect(Collectors.joining(" / "));
+    }
+}
@@ -1,22 +1,36 @@
 package application.controllers;
 
+import application.diagnostics.FlightRecorderService;
+import application.diagnostics.QueryProfiler;
 import application.repository.RepositoryOrchestrator;
 import application.services.SchedulerEngineService;
+import application.services.TeacherWorkloadService;
+import application.utils.IncrementalDataPreparer;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.layout.StackPane;
 import javafx.stage.FileChooser;
+import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public class MainController {
 
     private final RepositoryOrchestrator repo;
+    private final QueryProfiler queryProfiler;
+    private final IncrementalDataPreparer dataPreparer;
+    private final TeacherWorkloadService workloads;
+    private final ViewRegistry viewRegistry;
+    private ViewRegistry.Entry currentView;
+    private Stage diagnosticsStage;
     @FXML
     public Button btnSessions;
     @FXML
@@ -33,74 +47,83 @@ public class MainController {
     private Button btnConfig;
 
     // Constructor receiving Repo from the main App
-    public MainController(RepositoryOrchestrator repo) {
+    public MainController(RepositoryOrchestrator repo, QueryProfiler queryProfiler) {
         this.repo = repo;
+        this.queryProfiler = queryProfiler;
+        this.dataPreparer = new IncrementalDataPreparer(repo);
+        this.workloads = new TeacherWorkloadService(repo);
+        this.viewRegistry = new ViewRegistry(repo);
     }
 
     public void initialize() {
         // Default to loading the teacher screen first
         showTeacherConfig();
+
+        // The screens usually visited next are built while the user is still on the first one
+        viewRegistry.preload("ClassConfig.fxml", () -> new ClassConfigController(repo));
+        viewRegistry.preload("AssignmentView.fxml", () -> new AssignmentController(repo, workloads));
+        viewRegistry.preload("ScheduleView.fxml", this::newScheduleController);
     }
 
     @FXML
     public void showTeacherConfig() {
-        loadView("TeacherConfig.fxml", new TeacherController(repo));
+        showView("TeacherConfig.fxml", () -> new TeacherController(repo, workloads));
         setActiveButton(btnTeachers);
     }
 
     @FXML
     public void showClassConfig() {
-        loadView("ClassConfig.fxml", new ClassConfigController(repo));
+        showView("ClassConfig.fxml", () -> new ClassConfigController(repo));
         setActiveButton(btnClasses);
     }
 
     @FXML
     public void showAssignmentTable() {
-        loadView("AssignmentView.fxml", new AssignmentController(repo));
+        showView("AssignmentView.fxml", () -> new AssignmentController(repo, workloads));
         setActiveButton(btnAssignment);
     }
 
     @FXML
     public void showScheduler() {
-        ScheduleController scheduleController = new ScheduleController(repo);
-        scheduleController.setOnReGenerateRequest(this::showScheduleGenerator);
-        loadView("ScheduleView.fxml", scheduleController);
+        showView("ScheduleView.fxml", this::newScheduleController);
         setActiveButton(btnScheduler);
     }
 
 
     @FXML
     public void showSessionConfig() {
-        SessionViewController sessionViewController = new SessionViewController(repo);
-        loadView("SessionView.fxml", sessionViewController);
+        showView("SessionView.fxml", () -> new SessionViewController(repo));
         setActiveButton(btnSessions);
     }
 
     @FXML
     public void showScheduleGenerator() {
-        ScheduleGeneratorController runController = new ScheduleGeneratorController(repo);
+        ScheduleGeneratorController runController = new ScheduleGeneratorController(repo, dataPreparer);
 
         // Khi chạy xong -> Chuyển sang trang Kết quả
         runController.setOnFinished(this::showScheduleResult);
 
-        loadView("ScheduleGenerator.fxml", runController);
+        // A run page is never reused: each run starts from a fresh one
+        setContent(viewRegistry.load("ScheduleGenerator.fxml", runController, false));
     }
 
     // Hàm hiển thị trang Kết quả
     public void showScheduleResult() {
-        ScheduleController resultController = new ScheduleController(repo);
-
-        // --- THÊM ĐOẠN NÀY ---
-        // Khi bấm nút "Chạy lại" ở trang kết quả -> Quay lại trang Generator
-        resultController.setOnReGenerateRequest(this::showScheduleGenerator);
-        // ---------------------
-
-        loadView("ScheduleView.fxml", resultController);
+        // The schedule table is not version-tracked; a new run always gets a freshly loaded result view
+        viewRegistry.evict("ScheduleView.fxml");
+        showView("ScheduleView.fxml", this::newScheduleController);
 
         // (Tùy chọn) Highlight nút nào đó trên menu nếu cần
         // setActiveButton(btnSchedule);
     }
 
+    private ScheduleController newScheduleController() {
+        ScheduleController scheduleController = new ScheduleController(repo);
+        // Khi bấm nút "Chạy lại" ở trang kết quả -> Quay lại trang Generator
+        scheduleController.setOnReGenerateRequest(this::showScheduleGenerator);
+        return scheduleController;
+    }
+
     @FXML
     public void showConfigDialog() {
         Alert configAlert = new Alert(Alert.AlertType.CONFIRMATION);
@@ -136,9 +159,21 @@ public class MainController {
             }
         });
 
+        // In-process mode only makes sense for a JVM artifact (.jar)
+        javafx.scene.control.CheckBox inProcessCheck = new javafx.scene.control.CheckBox("Chạy trong tiến trình (chỉ với file .jar)");
+        inProcessCheck.setSelected(SchedulerEngineService.isInProcessMode());
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        javafx.scene.control.Spinner<Integer> threadSpinner = new javafx.scene.control.Spinner<>(
+                1, maxThreads, Math.min(SchedulerEngineService.getEngineThreads(), maxThreads));
+        threadSpinner.setEditable(true);
+
         grid.add(new javafx.scene.control.Label("Engine Path:"), 0, 0);
         grid.add(pathField, 1, 0);
         grid.add(btnBrowse, 2, 0);
+        grid.add(inProcessCheck, 1, 1);
+        grid.add(new javafx.scene.control.Label("Số luồng:"), 0, 2);
+        grid.add(threadSpinner, 1, 2);
 
         configAlert.getDialogPane().setContent(grid);
 
@@ -146,39 +181,81 @@ public class MainController {
         if (result.isPresent() && result.get() == javafx.scene.control.ButtonType.OK) {
             String newPath = pathField.getText();
             SchedulerEngineService.setEnginePath(newPath);
+            SchedulerEngineService.setInProcessMode(inProcessCheck.isSelected() && newPath.toLowerCase().endsWith(".jar"));
+            SchedulerEngineService.setEngineThreads(threadSpinner.getValue());
         }
     }
 
-    // Helper function to load FXML and set Controller manually
-    private void loadView(String fxmlFile, Object controllerInstance) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/" + fxmlFile));
-
-            loader.setControllerFactory(param -> {
-                // param is the Class type declared in fx:controller of FXML
-                // If type matches the controllerInstance we have -> return it
-                if (param == controllerInstance.getClass()) {
-                    return controllerInstance;
-                }
+    /**
+     * Saves the last minutes of the continuous flight recording to a .jfr file chosen by the user,
+     * to attach to performance reports.
+     */
+    @FXML
+    public void exportPerformanceRecording() {
+        if (!FlightRecorderService.isRunning()) {
+            showAlert(Alert.AlertType.WARNING, "Không có bản ghi", "Java Flight Recorder không khả dụng trên máy này.");
+            return;
+        }
 
-                // Case where FXML has other child controllers (nested controllers)
-                try {
-                    return param.getDeclaredConstructor().newInstance();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            });
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Lưu hồ sơ hiệu năng");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight Recording", "*.jfr"));
+        fileChooser.setInitialFileName("scheduler-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
 
-            Parent view = loader.load();
+        File file = fileChooser.showSaveDialog(contentArea.getScene().getWindow());
+        if (file == null) return;
 
-            contentArea.getChildren().clear();
-            contentArea.getChildren().add(view);
+        try {
+            FlightRecorderService.dump(file.toPath());
+            showAlert(Alert.AlertType.INFORMATION, "Đã lưu", "Đã lưu hồ sơ hiệu năng vào:\n" + file.getAbsolutePath());
+        } catch (IOException | IllegalStateException e) {
+            showAlert(Alert.AlertType.ERROR, "Lỗi", "Không thể lưu hồ sơ hiệu năng: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Opens the query diagnostics window (non-modal, so it can stay open while using the other screens).
+     */
+    @FXML
+    public void showDiagnostics() {
+        if (diagnosticsStage != null) {
+            diagnosticsStage.toFront();
+            return;
+        }
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/Diagnostics.fxml"));
+            loader.setControllerFactory(param -> new DiagnosticsController(queryProfiler));
+
+            diagnosticsStage = new Stage();
+            diagnosticsStage.setTitle("Chẩn đoán truy vấn");
+            diagnosticsStage.setScene(new Scene(loader.load()));
+            diagnosticsStage.setOnHidden(e -> diagnosticsStage = null);
+            diagnosticsStage.show();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void showAlert(Alert.AlertType type, String title, String content) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
+    // Shows a cached view, or builds and caches it on first visit
+    private void showView(String fxmlFile, Supplier<Object> controllerFactory) {
+        setContent(viewRegistry.show(fxmlFile, controllerFactory));
+    }
+
+    private void setContent(ViewRegistry.Entry entry) {
+        if (currentView == entry) return;
+        if (currentView != null) viewRegistry.hidden(currentView);
+        currentView = entry;
+        contentArea.getChildren().setAll(entry.view);
+    }
+
     // Function to change button color to indicate current tab
     private void setActiveButton(Button activeButton) {
         btnTeachers.setStyle("-fx-background-color: transparent;");
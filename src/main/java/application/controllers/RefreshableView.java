@@ -0,0 +1,27 @@
+package application.controllers;
+
+import java.util.Set;
+
+/**
+ * A main view that stays alive in the view cache between visits. When it is shown again it is not rebuilt; it is
+ * asked to reload only if data it displays was changed elsewhere in the meantime.
+ */
+public interface RefreshableView {
+
+    /**
+     * Entities ({@code EntityVersionRepository} names) this view displays and does not patch from change events.
+     */
+    Set<String> dependencies();
+
+    /**
+     * Called on the FX thread when the view is shown again and one of its {@link #dependencies()} changed since it
+     * was last hidden.
+     */
+    void refresh();
+
+    /**
+     * Called when the view leaves the cache for good, to drop its change subscriptions.
+     */
+    default void dispose() {
+    }
+}
@@ -1,13 +1,23 @@
 package application.controllers;
 
 import application.models.*;
+import application.repository.EntityVersionRepository;
 import application.repository.RepositoryOrchestrator;
+import application.utils.AsyncLoader;
 import application.utils.ExcelExporter;
+import application.utils.PendingChanges;
+import application.utils.TimetableIndex;
+import application.utils.TimetableMetrics;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.Dragboard;
+import javafx.scene.input.TransferMode;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
@@ -15,11 +25,25 @@ import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class ScheduleController {
+public class ScheduleController implements RefreshableView {
+
+    // The schedule itself is not version-tracked: a new run replaces this view instead of refreshing it.
+    // Teachers and classes are patched from change events. Session busy slots limit the drag targets.
+    private static final Set<String> DEPENDENCIES = Set.of(
+            EntityVersionRepository.GRADE, EntityVersionRepository.CURRICULUM, EntityVersionRepository.ASSIGNMENT,
+            EntityVersionRepository.SESSION);
+
+    private static final String EMPTY_STYLE = "-fx-background-color: white;";
+    private static final String TARGET_STYLE = "-fx-background-color: #d6eaf8;"; // Light blue: legal drop target
+    private static final String CONFLICT_STYLE = "-fx-background-color: #f1948a;"; // Red: more lessons in one slot
 
     private final RepositoryOrchestrator repo;
     private Runnable onReGenerateRequest;
@@ -40,18 +64,133 @@ public class ScheduleController {
     @FXML
     private VBox placeholderView;          // To show when no item is selected
     @FXML
+    private Label lblPlaceholder;
+    @FXML
     private GridPane scheduleGrid;
+    @FXML
+    private Label lblSchoolMetrics;
+    @FXML
+    private Label lblItemMetrics;
 
-    // Data for filtering
+    // Data for filtering; the sidebar rows start as the snapshot's lists and are patched from change events
     private FilteredList<Object> filteredData;
+    private final ObservableList<Object> sidebarTeachers = FXCollections.observableArrayList();
+    private final ObservableList<Object> sidebarClasses = FXCollections.observableArrayList();
+
+    // Loaded once per view, in the background; every render is answered from memory
+    private final AsyncLoader loader = new AsyncLoader();
+    private final AsyncLoader exportLoader = new AsyncLoader();
+    private final AsyncLoader patchLoader = new AsyncLoader();
+    private final PendingChanges changes;
+    private SchoolSnapshot snapshot;
+    private TimetableIndex timetable;
+    private TimetableMetrics metrics;
+
+    // Drag-and-drop state: empty cells by slot, the lesson being dragged and the slots it may go to
+    private final Map<Integer, Pane> emptyCells = new HashMap<>();
+    private ScheduleItem dragged;
+    private BusyMask dragTargets = BusyMask.EMPTY;
 
     public ScheduleController(RepositoryOrchestrator repo) {
         this.repo = repo;
+        this.changes = new PendingChanges(repo.getChangeBus(),
+                Set.of(EntityVersionRepository.TEACHER, EntityVersionRepository.CLASS), c -> patchChanges());
     }
 
     public void initialize() {
         initGridStructure();
         setupSidebar();
+        loadSchedule();
+    }
+
+    @Override
+    public Set<String> dependencies() {
+        return DEPENDENCIES;
+    }
+
+    @Override
+    public void refresh() {
+        loadSchedule();
+    }
+
+    @Override
+    public void dispose() {
+        changes.close();
+    }
+
+    private void loadSchedule() {
+        lblPlaceholder.setText("Đang tải thời khóa biểu...");
+        lblSchoolMetrics.setText("");
+        loader.load(() -> {
+            SchoolSnapshot loaded = repo.loadSnapshot(true);
+            return new Loaded(loaded, TimetableIndex.build(loaded.getSchedule()), TimetableMetrics.compute(loaded));
+        }, loaded -> {
+            snapshot = loaded.snapshot();
+            timetable = loaded.timetable();
+            metrics = loaded.metrics();
+
+            lblPlaceholder.setText("Chọn Giáo viên hoặc Lớp để xem TKB");
+            showSchoolMetrics();
+            sidebarTeachers.setAll(snapshot.getTeachers());
+            sidebarClasses.setAll(snapshot.getClasses());
+            onTabChanged();
+
+            // Rows written while the schedule was loading may be older in it than in the database
+            patchChanges();
+        });
+    }
+
+    private record Loaded(SchoolSnapshot snapshot, TimetableIndex timetable, TimetableMetrics metrics) {
+    }
+
+    private record PatchRows(Map<String, Teacher> teachers, Map<String, Clazz> classes) {
+    }
+
+    /**
+     * Re-reads only the teachers and classes written since the last patch (null when deleted), updates their sidebar
+     * rows and redraws the open timetable, whose cells show their names.
+     */
+    private void patchChanges() {
+        if (snapshot == null || loader.isLoading()) return;
+        PendingChanges.Batch batch = changes.peek();
+        if (batch.isEmpty()) return;
+
+        patchLoader.load(() -> repo.inReadTransaction(() -> {
+            Map<String, Teacher> teachers = new HashMap<>();
+            for (String id : batch.ids(EntityVersionRepository.TEACHER)) {
+                teachers.put(id, repo.getTeacherRepository().getById(id));
+            }
+            Map<String, Clazz> classes = new HashMap<>();
+            for (String id : batch.ids(EntityVersionRepository.CLASS)) {
+                classes.put(id, repo.getClassRepository().getById(id));
+            }
+            return new PatchRows(teachers, classes);
+        }), rows -> {
+            changes.acknowledge(batch);
+            // Rows are the snapshot's own objects: renamed in place, the timetable cells pick the new names up too
+            rows.teachers().forEach((id, fresh) -> patchRow(sidebarTeachers, id, fresh,
+                    t -> ((Teacher) t).getId(), t -> {
+                        ((Teacher) t).setName(fresh.getName());
+                        ((Teacher) t).setBusyMask(fresh.getBusyMask());
+                    }));
+            rows.classes().forEach((id, fresh) -> patchRow(sidebarClasses, id, fresh,
+                    c -> ((Clazz) c).getId(), c -> ((Clazz) c).setClassName(fresh.getClassName())));
+
+            listViewItems.refresh();
+            Object open = listViewItems.getSelectionModel().getSelectedItem();
+            if (open != null) renderSchedule(open);
+        });
+    }
+
+    private static void patchRow(ObservableList<Object> rows, String id, Object fresh,
+                                 Function<Object, String> idOf, Consumer<Object> update) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (!idOf.apply(rows.get(i)).equals(id)) continue;
+            if (fresh == null) rows.remove(i);
+            else update.accept(rows.get(i));
+            return;
+        }
+        if (fresh != null) rows.add(fresh);
     }
 
     /**
@@ -109,9 +248,6 @@ public class ScheduleController {
                 });
             }
         });
-
-        // 4. Initial Load (Default to Teacher tab)
-        loadSidebarData("teacher");
     }
 
     /**
@@ -119,6 +255,7 @@ public class ScheduleController {
      */
     @FXML
     public void onTabChanged() {
+        if (snapshot == null) return; // Still loading; the sidebar is filled once it is done
         txtSearch.clear(); // Clear search when switching tabs
         if (btnTabTeacher.isSelected()) {
             loadSidebarData("teacher");
@@ -130,17 +267,11 @@ public class ScheduleController {
     /**
      * Loads data into the Sidebar ListView based on the selected mode.
      */
-    @SuppressWarnings("unchecked")
     private void loadSidebarData(String type) {
-        List<Object> data;
-        if ("teacher".equals(type)) {
-            data = (List<Object>) (List<?>) repo.getTeacherRepository().getAll();
-        } else {
-            data = (List<Object>) (List<?>) repo.getClassRepository().getAll();
-        }
+        ObservableList<Object> data = "teacher".equals(type) ? sidebarTeachers : sidebarClasses;
 
-        // Wrap data in FilteredList for search functionality
-        filteredData = new FilteredList<>(FXCollections.observableArrayList(data), p -> true);
+        // Wrap data in FilteredList for search functionality; patched rows show through it
+        filteredData = new FilteredList<>(data, p -> true);
         listViewItems.setItems(filteredData);
 
         // Auto-select the first item if data exists (UI UX improvement)
@@ -200,30 +331,39 @@ public class ScheduleController {
         // 2. Fill empty slots with white background (Crucial for "Gap Technique" borders)
         fillEmptySlots();
 
-        // 3. Fetch lessons
+        // 3. Fetch lessons (already ordered by day, then period; colliding lessons next to each other)
         List<ScheduleItem> lessons;
+        BusyMask conflicts;
         if (filterEntity instanceof Clazz) {
-            lessons = repo.getScheduleRepository().getByClassId(((Clazz) filterEntity).getId());
+            lessons = timetable.ofClass(((Clazz) filterEntity).getId());
+            conflicts = timetable.classConflicts(((Clazz) filterEntity).getId());
         } else if (filterEntity instanceof Teacher) {
-            lessons = repo.getScheduleRepository().getByTeacherId(((Teacher) filterEntity).getId());
+            lessons = timetable.ofTeacher(((Teacher) filterEntity).getId());
+            conflicts = timetable.teacherConflicts(((Teacher) filterEntity).getId());
         } else {
             return;
         }
+        showItemMetrics(filterEntity);
+
+        // 4. Draw each lesson; a slot with colliding lessons is drawn once, with their count
+        int lastSlot = -1;
+        for (ScheduleItem item : lessons) {
+            int slot = TimetableIndex.slot(item.day(), item.session(), item.period());
+            if (slot >= 0 && slot == lastSlot) continue;
+            lastSlot = slot;
+            int collisions = 0;
+            if (slot >= 0 && conflicts.isBusy(slot / BusyMask.PERIODS_PER_DAY, slot % BusyMask.PERIODS_PER_DAY)) {
+                collisions = filterEntity instanceof Clazz clazz
+                        ? timetable.allAtClass(clazz.getId(), slot).size()
+                        : timetable.allAtTeacher(((Teacher) filterEntity).getId(), slot).size();
+            }
 
-        // 4. Sort by day, then by period
-        lessons.sort(Comparator.comparing(ScheduleItem::day)
-                .thenComparingInt(ScheduleItem::period));
-
-        // 5. Draw each lesson
-        for (int i = 0; i < lessons.size(); i++) {
-            ScheduleItem item = lessons.get(i);
-
-            Clazz c = repo.getClassRepository().getById(item.classId());
+            Clazz c = snapshot.getClazz(item.classId());
             String className = (c != null) ? c.getClassName() : "Unknown";
 
             ESession session = ESession.MORNING; // Default
             if (c != null) {
-                Grade g = repo.getGradeRepository().getById(c.getGradeId());
+                Grade g = snapshot.getGrade(c.getGradeId());
                 if (g != null) {
                     session = g.getSession().getSessionName();
                 }
@@ -232,26 +372,38 @@ public class ScheduleController {
 
             // Get Subject Name
             String subjectName = item.subjectId();
-            Subject s = repo.getSubjectRepository().getById(item.subjectId());
+            Subject s = snapshot.getSubject(item.subjectId());
             if (s != null) subjectName = s.getName();
 
             // Get Teacher Name
             String teacherName = "";
-            Teacher t = repo.getTeacherRepository().getById(item.teacherId());
+            Teacher t = snapshot.getTeacher(item.teacherId());
             if (t != null) teacherName = t.getName();
 
-            // Detect double period (consecutive)
-            boolean isDouble = false;
-            if (i > 0) {
-                ScheduleItem prev = lessons.get(i - 1);
-                if (isConsecutive(prev, item)) isDouble = true;
-            }
-            if (i < lessons.size() - 1) {
-                ScheduleItem next = lessons.get(i + 1);
-                if (isConsecutive(item, next)) isDouble = true;
-            }
+            // Detect double period (same subject in the neighbouring period)
+            boolean isDouble = timetable.isDoublePeriod(item);
 
-            drawLessonCell(dayInt, item.period(), subjectName, teacherName, className, isDouble, session);
+            drawLessonCell(item, dayInt, item.period(), subjectName, teacherName, className, isDouble, collisions, session);
+        }
+    }
+
+    private void showSchoolMetrics() {
+        TimetableMetrics.SchoolMetrics school = metrics.getSchool();
+        lblSchoolMetrics.setText(String.format(
+                "Toàn trường: %d tiết trống GV · %.1f ngày dạy/GV · %d tiết trống lớp · %d tiết dồn ngày · tiết đôi đạt %.0f%%",
+                school.teacherGaps(), school.averageTeacherDays(), school.classGaps(), school.sameDayLessons(),
+                school.doubledCompliance() * 100));
+    }
+
+    private void showItemMetrics(Object entity) {
+        if (entity instanceof Teacher teacher) {
+            TimetableMetrics.TeacherMetrics m = metrics.getTeacher(teacher.getId());
+            lblItemMetrics.setText(String.format("%s: %d tiết · %d ngày dạy · %d tiết trống",
+                    teacher.getName(), m.lessons(), m.days(), m.gaps()));
+        } else if (entity instanceof Clazz clazz) {
+            TimetableMetrics.ClassMetrics m = metrics.getClazz(clazz.getId());
+            lblItemMetrics.setText(String.format("Lớp %s: %d tiết · %d tiết trống · %d tiết dồn ngày · tiết đôi %d/%d",
+                    clazz.getClassName(), m.lessons(), m.gaps(), m.sameDayLessons(), m.doubledCompliant(), m.doubledAssignments()));
         }
     }
 
@@ -259,24 +411,106 @@ public class ScheduleController {
      * Fills all valid slots with a white Pane to create the "grid" effect using gaps.
      */
     private void fillEmptySlots() {
-        int days = 6; // Mon-Sat
-        // Periods: Morning (1-5) and Afternoon (7-11). Row 6 is excluded (Lunch).
-        int[] periods = {1, 2, 3, 4, 5, 7, 8, 9, 10, 11};
+        emptyCells.clear();
+        // Periods: Morning (rows 1-5) and Afternoon (rows 7-11). Row 6 is excluded (Lunch).
+        for (int day = 0; day < BusyMask.DAYS; day++) {
+            for (int period = 0; period < BusyMask.PERIODS_PER_DAY; period++) {
+                int slot = BusyMask.index(day, period);
+                int row = period < BusyMask.PERIODS_PER_SESSION ? period + 1 : period + 2;
 
-        for (int col = 1; col <= days; col++) {
-            for (int row : periods) {
                 Pane emptyCell = new Pane();
                 // Just white background. No borders.
-                emptyCell.setStyle("-fx-background-color: white;");
-                scheduleGrid.add(emptyCell, col, row);
+                emptyCell.setStyle(EMPTY_STYLE);
+                setupDropTarget(emptyCell, slot);
+                emptyCells.put(slot, emptyCell);
+                scheduleGrid.add(emptyCell, day + 1, row);
             }
         }
     }
 
     /**
-     * Draws a specific lesson cell.
+     * Starts dragging a lesson: the legal targets are worked out once from the in-memory masks and highlighted.
+     */
+    private void setupDragSource(VBox cell, ScheduleItem item) {
+        cell.setOnDragDetected(event -> {
+            Teacher teacher = snapshot.getTeacher(item.teacherId());
+            Session session = snapshot.getSession(item.session());
+            BusyMask unavailable = BusyMask.EMPTY;
+            if (teacher != null) unavailable = unavailable.union(teacher.getBusyMask());
+            if (session != null) unavailable = unavailable.union(session.getBusyMask());
+
+            dragged = item;
+            dragTargets = timetable.freeTargets(item, unavailable);
+            dragTargets.forEach(slot -> emptyCells.get(slot).setStyle(TARGET_STYLE));
+
+            Dragboard board = cell.startDragAndDrop(TransferMode.MOVE);
+            ClipboardContent content = new ClipboardContent();
+            content.putString(item.assignmentId());
+            board.setContent(content);
+            event.consume();
+        });
+
+        cell.setOnDragDone(event -> {
+            dragTargets.forEach(slot -> emptyCells.get(slot).setStyle(EMPTY_STYLE));
+            dragged = null;
+            dragTargets = BusyMask.EMPTY;
+            event.consume();
+        });
+    }
+
+    private void setupDropTarget(Pane cell, int slot) {
+        cell.setOnDragOver(event -> {
+            if (dragged != null && isTarget(slot)) {
+                event.acceptTransferModes(TransferMode.MOVE);
+            }
+            event.consume();
+        });
+
+        cell.setOnDragDropped(event -> {
+            boolean moved = dragged != null && isTarget(slot);
+            if (moved) moveLesson(dragged, slot);
+            event.setDropCompleted(moved);
+            event.consume();
+        });
+    }
+
+    private boolean isTarget(int slot) {
+        return dragTargets.isBusy(slot / BusyMask.PERIODS_PER_DAY, slot % BusyMask.PERIODS_PER_DAY);
+    }
+
+    /**
+     * Applies the move in memory (index, metrics, grid) right away and saves the single row in the background.
      */
-    private void drawLessonCell(int day, int period, String subject, String teacher, String className, boolean isDouble, ESession session) {
+    private void moveLesson(ScheduleItem item, int toSlot) {
+        int fromSlot = TimetableIndex.slot(item.day(), item.session(), item.period());
+        ScheduleItem moved = timetable.move(item, toSlot);
+        metrics.move(item.assignmentId(), fromSlot, toSlot);
+
+        renderSchedule(listViewItems.getSelectionModel().getSelectedItem());
+        showSchoolMetrics();
+
+        // Keyed by lesson: moving the same lesson again before the batch is written costs one update
+        repo.getWriteBehind().submit("schedule:" + moved.id(), r -> {
+            if (!r.getScheduleRepository().updateSlot(moved.id(), moved.day(), moved.session(), moved.period())) {
+                throw new IllegalStateException("Tiết học không còn trong cơ sở dữ liệu: " + moved.id());
+            }
+        }, error -> {
+            if (error == null) return;
+            Platform.runLater(() -> {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Lỗi");
+                alert.setHeaderText("Không thể lưu thay đổi thời khóa biểu");
+                alert.setContentText(error.getMessage());
+                alert.showAndWait();
+            });
+        });
+    }
+
+    /**
+     * Draws a specific lesson cell. {@code collisions} is the number of lessons sharing the slot (0 if only this one).
+     */
+    private void drawLessonCell(ScheduleItem item, int day, int period, String subject, String teacher, String className,
+                                boolean isDouble, int collisions, ESession session) {
 
         int colIndex = day - 1; // Col 1 -> Monday
         int rowIndex;
@@ -296,6 +530,7 @@ public class ScheduleController {
         // Determine what to show based on the active tab
         boolean viewingByClass = btnTabClass.isSelected(); // If "Class" tab is active, we show Teacher name in cell
         lblInfo.setText(viewingByClass ? teacher : className);
+        if (collisions > 1) lblInfo.setText("Trùng lịch: " + collisions + " tiết");
         lblInfo.setStyle("-fx-font-size: 13px; -fx-text-fill: #7f8c8d;");
 
         cell.getChildren().addAll(lblSub, lblInfo);
@@ -305,25 +540,19 @@ public class ScheduleController {
         if (isDouble) bgStyle = "-fx-background-color: #d4efdf;"; // Light mint
         if ("Sinh hoạt lớp".equalsIgnoreCase(subject) || "Chào cờ".equalsIgnoreCase(subject))
             bgStyle = "-fx-background-color: #fadbd8;"; // Light red
+        if (collisions > 1) bgStyle = CONFLICT_STYLE;
 
         // Apply style (Background ONLY, no border)
         cell.setStyle(bgStyle);
 
         // Force cell to fill the grid slot
         cell.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        setupDragSource(cell, item);
 
         // Add to grid (This will sit on top of the empty white slot created in fillEmptySlots)
         scheduleGrid.add(cell, colIndex, rowIndex);
     }
 
-    // Helper to check if two items are consecutive
-    private boolean isConsecutive(ScheduleItem a, ScheduleItem b) {
-        return a.day() == b.day()
-                && Math.abs(a.period() - b.period()) == 1
-                && Objects.equals(a.subjectId(), b.subjectId())
-                && Objects.equals(a.classId(), b.classId());
-    }
-
     @FXML
     public void handleReGenerate() {
         if (onReGenerateRequest != null) {
@@ -374,25 +603,31 @@ public class ScheduleController {
 
             File file = fileChooser.showSaveDialog(scheduleGrid.getScene().getWindow());
             if (file != null) {
-                try {
-                    ExcelExporter exporter = new ExcelExporter(repo);
-                    exporter.prepareData();
-                    Date date = Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-                    exporter.export(file.getAbsolutePath(), date);
-
+                Date date = Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+                // Reading the school and writing the workbook both happen off the FX thread
+                exportLoader.load(() -> {
+                    try {
+                        ExcelExporter exporter = new ExcelExporter(repo);
+                        exporter.prepareData();
+                        exporter.export(file.getAbsolutePath(), date);
+                        return file;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, exported -> {
                     Alert alert = new Alert(Alert.AlertType.INFORMATION);
                     alert.setTitle("Thành công");
                     alert.setHeaderText(null);
                     alert.setContentText("Xuất file Excel thành công!");
                     alert.showAndWait();
-                } catch (Exception e) {
+                }, e -> {
                     e.printStackTrace();
                     Alert alert = new Alert(Alert.AlertType.ERROR);
                     alert.setTitle("Lỗi");
                     alert.setHeaderText("Không thể xuất file");
                     alert.setContentText(e.getMessage());
                     alert.showAndWait();
-                }
+                });
             }
         });
     }
@@ -1,11 +1,16 @@
 package application.controllers;
 
-import application.models.Clazz;
-import application.models.Curriculum;
-import application.models.Teacher;
+import application.models.PhaseTiming;
+import application.models.RunTiming;
 import application.repository.RepositoryOrchestrator;
 import application.services.SchedulerEngineService;
-import application.utils.SchedulerDataPreparer;
+import application.utils.DomainReducer;
+import application.utils.IncrementalDataPreparer;
+import application.utils.ScheduleValidator;
+import application.utils.SolverModel;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
@@ -13,6 +18,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
+import javafx.util.Duration;
 import scheduler.common.models.Slot;
 import scheduler.common.models.TaskData;
 import scheduler.common.models.Variable;
@@ -26,6 +32,9 @@ public class ScheduleGeneratorController {
 
     private final SchedulerEngineService schedulerEngineService;
 
+    // Shared across runs so that only the rows edited since the last run are reloaded
+    private final IncrementalDataPreparer dataPreparer;
+
     // Callback to call main layout to update screen
     private Runnable onFinishedCallback;
 
@@ -42,11 +51,21 @@ public class ScheduleGeneratorController {
     @FXML
     private Button btnViewResult;
 
+    // Model sent to the engine; its result is validated against it before saving
+    private SolverModel preparedModel;
+
     // Keep ref to running tasks so that we can cancel
     private Worker<?> currentWorker;
 
-    public ScheduleGeneratorController(RepositoryOrchestrator repo) {
+    // Timings of the current run; the progress bar follows them, weighted by the last successful run
+    private RunTiming runTiming;
+    private volatile Map<String, Double> expectedPhaseMs = Map.of();
+    private Timeline progressTimeline;
+    private boolean timingRecorded;
+
+    public ScheduleGeneratorController(RepositoryOrchestrator repo, IncrementalDataPreparer dataPreparer) {
         this.repo = repo;
+        this.dataPreparer = dataPreparer;
         // Initialize service
         this.schedulerEngineService = new SchedulerEngineService();
     }
@@ -87,16 +106,28 @@ public class ScheduleGeneratorController {
 
     private void bindUiToWorker(Worker<?> worker) {
         // Unbind cũ nếu có
-        progressBar.progressProperty().unbind();
         lblSubStatus.textProperty().unbind();
 
-        // Bind mới
-        progressBar.progressProperty().bind(worker.progressProperty());
+        // Bind mới (progress bar is driven by the run timings, see startProgressTimeline)
         lblSubStatus.textProperty().bind(worker.messageProperty());
 
         this.currentWorker = worker;
     }
 
+    private void startProgressTimeline() {
+        progressTimeline = new Timeline(new KeyFrame(Duration.millis(100), e -> {
+            double progress = runTiming.progress(expectedPhaseMs);
+            progressBar.setProgress(progress);
+            lblPercent.setText(Math.round(progress * 100) + "%");
+        }));
+        progressTimeline.setCycleCount(Timeline.INDEFINITE);
+        progressTimeline.play();
+    }
+
+    private void stopProgressTimeline() {
+        if (progressTimeline != null) progressTimeline.stop();
+    }
+
     // MAIN PROCESS FLOW
 
     private void startProcess() {
@@ -106,6 +137,11 @@ public class ScheduleGeneratorController {
         txtConsole.clear();
         lblPercent.setText("0%");
 
+        runTiming = new RunTiming();
+        timingRecorded = false;
+        schedulerEngineService.setRunTiming(runTiming);
+        startProgressTimeline();
+
         appendLog(">> BẮT ĐẦU QUY TRÌNH XẾP LỊCH TỰ ĐỘNG");
 
         // start phase 1
@@ -119,44 +155,25 @@ public class ScheduleGeneratorController {
         Task<List<TaskData>> prepTask = new Task<>() {
             @Override
             protected List<TaskData> call() throws Exception {
-                updateMessage("[INFO] Đang khởi tạo kết nối cơ sở dữ liệu...");
-                updateProgress(0, 100);
-
-                // 1. Load Data
-                updateMessage("[INFO] Đang tải danh sách giáo viên...");
-                List<Teacher> teachers = repo.getTeacherRepository().getAll();
-
-                appendLog("[INFO] Tìm thấy " + teachers.size() + " giáo viên.");
-                Thread.sleep(100); // UI visual delay
-                updateProgress(10, 100);
-
-                updateMessage("[INFO] Đang tải chương trình học...");
-                List<Curriculum> curriculums = repo.getCurriculumRepository().getAll();
-                appendLog("[INFO] Tìm thấy " + curriculums.size() + " chương trình học.");
-                Thread.sleep(100);
-                updateProgress(20, 100);
-
-                updateMessage("[INFO] Đang tải danh sách lớp học...");
-                List<Clazz> classes = repo.getClassRepository().getAll();
-                appendLog("[INFO] Tìm thấy " + classes.size() + " lớp.");
-                Thread.sleep(100);
-                updateProgress(30, 100);
-
-                // 2. Prepare Data
-                updateMessage("[INFO] Đang chuẩn bị dữ liệu...");
-                SchedulerDataPreparer preparer = new SchedulerDataPreparer(repo);
-                List<TaskData> taskDataList = preparer.prepare();
-
-                appendLog("[INFO] Đã tạo thành công " + taskDataList.size() + " tác vụ xếp lịch.");
-                updateProgress(40, 100);
-
-                return taskDataList;
+                updateMessage("[INFO] Đang tải dữ liệu từ cơ sở dữ liệu...");
+                expectedPhaseMs = repo.getRunTimingRepository().getLastSuccessfulDurations();
+
+                return dataPreparer.prepare(runTiming);
             }
         };
 
         // Done Prep -> Move to Phase 2
         prepTask.setOnSucceeded(e -> {
             List<TaskData> data = prepTask.getValue();
+            preparedModel = dataPreparer.getLastModel();
+            IncrementalDataPreparer.Stats stats = dataPreparer.getLastStats();
+            if (stats != null && !stats.fullLoad()) {
+                appendLog("[INFO] Cập nhật tăng dần: tải lại " + stats.changedEntities() + " thay đổi, dựng lại "
+                        + stats.rebuiltTasks() + "/" + stats.totalTasks() + " tác vụ, tính lại miền của "
+                        + stats.reducedTasks() + " tác vụ.");
+            }
+            if (stats != null) logDomainStats(stats.domains());
+            appendLog("[INFO] Đã tạo thành công " + data.size() + " tác vụ xếp lịch.");
             appendLog("[INFO] Giai đoạn chuẩn bị dữ liệu hoàn tất.");
             runEngine(data);
         });
@@ -167,6 +184,15 @@ public class ScheduleGeneratorController {
         new Thread(prepTask).start();
     }
 
+    private void logDomainStats(DomainReducer.Stats domains) {
+        appendLog(String.format("[INFO] Miền khả thi: trung bình %.1f -> %.1f ô/tác vụ, nhỏ nhất %d, %d tác vụ bị cố định (%d vòng lan truyền).",
+                domains.averageBefore(), domains.averageAfter(), domains.minDomain(), domains.forcedTasks(), domains.rounds()));
+        if (domains.isInfeasible()) {
+            appendLog("[WARN] Dữ liệu có thể không xếp được: " + domains.infeasibleTasks() + " tác vụ thiếu tiết trống, "
+                    + domains.overloadedClasses() + " lớp và " + domains.overloadedTeachers() + " giáo viên quá tải.");
+        }
+    }
+
     /**
      * Phase 2: Run SchedulerEngineService (Process ngoài)
      */
@@ -192,12 +218,25 @@ public class ScheduleGeneratorController {
         Task<Void> saveTask = new Task<>() {
             @Override
             protected Void call() throws Exception {
-                updateMessage("[INFO] Đang lưu kết quả vào CSDL...");
-                updateProgress(90, 100);
+                // Validation is timed as part of SAVE: nothing is written unless it passes
+                runTiming.begin(RunTiming.SAVE);
+                updateMessage("[INFO] Đang kiểm tra lời giải...");
+                ScheduleValidator.Report report = ScheduleValidator.validate(preparedModel, result);
+                if (!report.isValid()) {
+                    runTiming.end(0);
+                    // The reasons go to the run console (before the error line, runLater keeps the order)
+                    StringBuilder details = new StringBuilder("[ERROR] Vi phạm (hiển thị "
+                            + report.violations().size() + "/" + report.total() + "):");
+                    report.violations().forEach(v -> details.append("\n   - ").append(v));
+                    Platform.runLater(() -> appendLog(details.toString()));
+                    throw new IllegalStateException("[ERROR] Lời giải không hợp lệ, không lưu: " + report.total()
+                            + " vi phạm " + report.counts());
+                }
 
+                updateMessage("[INFO] Đang lưu kết quả vào CSDL...");
                 repo.getScheduleRepository().saveAll(result);
+                runTiming.end(result.size());
 
-                updateProgress(100, 100);
                 updateMessage("[INFO] Hoàn tất lưu trữ.");
                 return null;
             }
@@ -213,11 +252,11 @@ public class ScheduleGeneratorController {
     // --- UTILS & HANDLERS ---
 
     private void handleSuccess() {
+        recordTiming("SUCCESS");
         appendLog(">> HOÀN TẤT TOÀN BỘ QUY TRÌNH!");
         lblPercent.setText("100%");
         lblSubStatus.textProperty().unbind();
         lblSubStatus.setText("Đã xếp xong!");
-        progressBar.progressProperty().unbind();
         progressBar.setProgress(1);
 
         btnCancel.setDisable(true);
@@ -226,17 +265,45 @@ public class ScheduleGeneratorController {
     }
 
     private void handleError(Throwable ex) {
+        recordTiming("FAILED");
         appendLog(">> LỖI: " + ex.getMessage());
         ex.printStackTrace();
 
         lblSubStatus.textProperty().unbind();
         lblSubStatus.setText("Lỗi: " + ex.getMessage());
-        progressBar.progressProperty().unbind();
         progressBar.setProgress(0);
 
         btnCancel.setDisable(true);
     }
 
+    /**
+     * Stops the progress bar, prints the per-phase breakdown and stores the run in run_timings.
+     */
+    private void recordTiming(String status) {
+        if (timingRecorded) return;
+        timingRecorded = true;
+        stopProgressTimeline();
+        runTiming.finish();
+
+        appendLog(">> THỜI GIAN THỰC HIỆN:");
+        for (PhaseTiming phase : runTiming.getPhases()) {
+            String count = phase.count() > 0 ? " (" + phase.count() + ")" : "";
+            appendLog(String.format("   %-18s %10.1f ms%s", RunTiming.label(phase.phase()), phase.millis(), count));
+        }
+        appendLog(String.format("   %-18s %10.1f ms", "Tổng cộng", runTiming.getTotalNanos() / 1_000_000.0));
+
+        RunTiming finished = runTiming;
+        Thread writer = new Thread(() -> {
+            try {
+                repo.getRunTimingRepository().save(finished, status);
+            } catch (RuntimeException e) {
+                System.err.println("WARN: Could not save run timing: " + e.getMessage());
+            }
+        }, "run-timing-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
     private void appendLog(String message) {
         txtConsole.appendText(message + "\n");
         txtConsole.selectPositionCaret(txtConsole.getLength());
@@ -252,6 +319,7 @@ public class ScheduleGeneratorController {
                 schedulerEngineService.cancel();
             }
 
+            recordTiming("CANCELLED");
             appendLog(">> Đã hủy bỏ bởi người dùng.");
             lblSubStatus.textProperty().unbind();
             lblSubStatus.setText("Đã hủy.");
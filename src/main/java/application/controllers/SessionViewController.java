@@ -1,9 +1,12 @@
 package application.controllers;
 
+import application.models.BusyMask;
 import application.models.ESession;
 import application.models.Grade;
 import application.models.Session;
+import application.repository.EntityVersionRepository;
 import application.repository.RepositoryOrchestrator;
+import application.utils.AsyncLoader;
 import application.views.TimeGridSelector;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -13,10 +16,14 @@ import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.StackPane;
 
 import java.util.List;
+import java.util.Set;
 
-public class SessionViewController {
+public class SessionViewController implements RefreshableView {
+
+    private static final Set<String> DEPENDENCIES = Set.of(EntityVersionRepository.GRADE, EntityVersionRepository.SESSION);
 
     private final RepositoryOrchestrator repo;
+    private final AsyncLoader loader = new AsyncLoader();
     @FXML
     public Button btnSave;
     @FXML
@@ -36,13 +43,41 @@ public class SessionViewController {
 
     @FXML
     public void initialize() {
-        loadGradeChips();
         initializeGrids();
+
+        // Grades and the saved session masks arrive in the background; saving waits for them
+        btnSave.disableProperty().bind(loader.loadingProperty());
+        loadData();
+    }
+
+    @Override
+    public Set<String> dependencies() {
+        return DEPENDENCIES;
+    }
+
+    @Override
+    public void refresh() {
+        loadData();
     }
 
-    private void loadGradeChips() {
-        List<Grade> allGrades = repo.getGradeRepository().getAll();
+    private void loadData() {
+        loader.load(() -> repo.inReadTransaction(() -> new Loaded(
+                repo.getGradeRepository().getAll(),
+                repo.getSessionRepository().getByName(ESession.MORNING),
+                repo.getSessionRepository().getByName(ESession.AFTERNOON)
+        )), loaded -> {
+            loadGradeChips(loaded.grades());
+            if (loaded.morning() != null) morningGridSelector.setBusyMask(loaded.morning().getBusyMask());
+            if (loaded.afternoon() != null) afternoonGridSelector.setBusyMask(loaded.afternoon().getBusyMask());
+        });
+    }
+
+    private record Loaded(List<Grade> grades, Session morning, Session afternoon) {
+    }
 
+    private void loadGradeChips(List<Grade> allGrades) {
+        morningChipContainer.getChildren().clear();
+        afternoonChipContainer.getChildren().clear();
         for (Grade g : allGrades) {
             // Use Label instead of Button for read-only indicators
             Label chip = createGradeChip(g.getName());
@@ -58,19 +93,11 @@ public class SessionViewController {
     private void initializeGrids() {
         // Setup Morning Grid
         morningGridSelector = new TimeGridSelector(ESession.MORNING);
-        setupGrid(morningGridSelector, morningGridContainer, ESession.MORNING);
+        morningGridContainer.getChildren().add(morningGridSelector);
 
         // Setup Afternoon Grid
         afternoonGridSelector = new TimeGridSelector(ESession.AFTERNOON);
-        setupGrid(afternoonGridSelector, afternoonGridContainer, ESession.AFTERNOON);
-    }
-
-    private void setupGrid(TimeGridSelector grid, StackPane container, ESession sessionType) {
-        Session sessionData = repo.getSessionRepository().getByName(sessionType);
-        if (sessionData != null) {
-            grid.setBusyMatrix(sessionData.getBusyMatrix());
-        }
-        container.getChildren().add(grid);
+        afternoonGridContainer.getChildren().add(afternoonGridSelector);
     }
 
     /**
@@ -93,8 +120,8 @@ public class SessionViewController {
             validateSessionCapacity(ESession.AFTERNOON, afternoonGridSelector);
 
             // 2. Prepare Data
-            boolean[][] morningConfig = morningGridSelector.getBusyMatrix();
-            boolean[][] afternoonConfig = afternoonGridSelector.getBusyMatrix();
+            BusyMask morningConfig = morningGridSelector.getBusyMask();
+            BusyMask afternoonConfig = afternoonGridSelector.getBusyMask();
 
             Session morning = new Session(ESession.MORNING, morningConfig);
             Session afternoon = new Session(ESession.AFTERNOON, afternoonConfig);
@@ -1,7 +1,11 @@
 package application.controllers;
 
 import application.models.*;
+import application.repository.EntityVersionRepository;
 import application.repository.RepositoryOrchestrator;
+import application.services.TeacherWorkloadService;
+import application.utils.AsyncLoader;
+import application.utils.PendingChanges;
 import application.views.TimeGridSelector;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
@@ -17,22 +21,36 @@ import javafx.scene.layout.StackPane;
 import javafx.util.Callback;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
-public class TeacherController {
+public class TeacherController implements RefreshableView {
+
+    // Period totals need classes, grades and curricula; teachers and assignments are patched from change events
+    private static final Set<String> DEPENDENCIES = Set.of(
+            EntityVersionRepository.CLASS, EntityVersionRepository.GRADE, EntityVersionRepository.CURRICULUM);
 
     private final RepositoryOrchestrator repositoryOrchestrator;
+    private final TeacherWorkloadService workloads;
+    private Runnable stopWorkloads;
     private final ObservableList<Teacher> teacherList = FXCollections.observableArrayList();
     // Temporary assignment before save
     private final ObservableList<Assignment> currentAssignments = FXCollections.observableArrayList();
     // List of assignments to be deleted
     private final List<Assignment> assignmentsToDelete = new ArrayList<>();
+    // Ids of the open teacher's assignments that are in the database; the other rows of the table are unsaved
+    private final Set<String> savedAssignmentIds = new HashSet<>();
     // --- UI Controls ---
     @FXML
     public SplitPane root;
     private Teacher selectedTeacher = null;
+    // Subjects, classes and curricula for the table cells; not edited in this view
+    private SchoolSnapshot snapshot;
     @FXML
     private ListView<Teacher> teacherListView;
     @FXML
@@ -67,9 +85,17 @@ public class TeacherController {
     private Label totalPeriodsLabel;
     // --- Data & Logic ---
     private TimeGridSelector timeGridSelector;
+    private final AsyncLoader loader = new AsyncLoader();
+    private final AsyncLoader detailsLoader = new AsyncLoader();
+    private final AsyncLoader patchLoader = new AsyncLoader();
+    private final PendingChanges changes;
+    private final Label placeholder = new Label();
 
-    public TeacherController(RepositoryOrchestrator repositoryOrchestrator) {
+    public TeacherController(RepositoryOrchestrator repositoryOrchestrator, TeacherWorkloadService workloads) {
         this.repositoryOrchestrator = repositoryOrchestrator;
+        this.workloads = workloads;
+        this.changes = new PendingChanges(repositoryOrchestrator.getChangeBus(),
+                Set.of(EntityVersionRepository.TEACHER, EntityVersionRepository.ASSIGNMENT), c -> patchChanges());
     }
 
     public void initialize() {
@@ -78,7 +104,7 @@ public class TeacherController {
         setupAssignmentForm(); // Setup logic for assignment
         setupButtons();
 
-        loadData(); // Will be replaced by load from DB
+        loadData();
         Platform.runLater(() -> root.setDividerPosition(0, 0.2));
     }
 
@@ -89,15 +115,38 @@ public class TeacherController {
 
     private void setupTeacherList() {
         teacherListView.setItems(teacherList);
+        teacherListView.setPlaceholder(placeholder);
+        // Saved periods of each teacher, read from the workload totals rather than per row
+        teacherListView.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Teacher item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    setStyle("");
+                    return;
+                }
+                int periods = workloads.periodsOf(item.getId());
+                if (TeacherWorkloadService.isOverloaded(periods)) {
+                    setText(item.getName() + " (" + periods + " tiết - QUÁ TẢI)");
+                    setStyle("-fx-text-fill: red;");
+                } else {
+                    setText(item.getName() + " (" + periods + " tiết)");
+                    setStyle("");
+                }
+            }
+        });
+        stopWorkloads = workloads.addListener(teacherListView::refresh);
         teacherListView.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldVal, newVal) -> showTeacherDetails(newVal)
         );
-        Platform.runLater(() -> teacherListView.getSelectionModel().select(0));
     }
 
     private void setupButtons() {
         btnAdd.setOnAction(e -> createNewTeacher());
         btnSave.setOnAction(e -> saveCurrentTeacher());
+        // Saving before the teacher's assignments arrive would save an empty list
+        btnSave.disableProperty().bind(detailsLoader.loadingProperty());
         btnDelete.setOnAction(e -> deleteTeacher());
 
         // Batch Add button event
@@ -111,11 +160,11 @@ public class TeacherController {
         // Configuration for TableView columns
 
         colSubject.setCellValueFactory(data -> {
-            Subject s = repositoryOrchestrator.getSubjectRepository().getById(data.getValue().getSubjectId());
+            Subject s = snapshot.getSubject(data.getValue().getSubjectId());
             return new SimpleStringProperty(s.toString());
         });
         colClass.setCellValueFactory(data -> {
-            Clazz c = repositoryOrchestrator.getClassRepository().getById(data.getValue().getClassId());
+            Clazz c = snapshot.getClazz(data.getValue().getClassId());
             return new SimpleStringProperty(c.toString());
         });
         colPeriods.setCellValueFactory(data -> new SimpleObjectProperty<>(getPeriodsForAssignment(data.getValue())));
@@ -149,7 +198,7 @@ public class TeacherController {
                             a.getClassId().equals(clazz.getId()) && a.getSubjectId().equals(subject.getId())
             );
             if (exists) continue;
-            Curriculum cur = repositoryOrchestrator.getCurriculumRepository().getByGradeAndSubject(clazz.getGradeId(), subject.getId());
+            Curriculum cur = snapshot.getCurriculum(clazz.getGradeId(), subject.getId());
             if (cur == null || cur.getPeriodsPerWeek() == 0) {
                 System.out.println("Subject " + subject + " is not in curriculum for class " + clazz);
                 continue;
@@ -180,8 +229,8 @@ public class TeacherController {
         }
         totalPeriodsLabel.setText("Tổng số tiết: " + total);
 
-        // Red warning if teaching too many periods (e.g., > 20 periods)
-        if (total > 20) {
+        // Red warning if teaching too many periods; the unsaved rows count too
+        if (TeacherWorkloadService.isOverloaded(total)) {
             totalPeriodsLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
             totalPeriodsLabel.setText(totalPeriodsLabel.getText() + " (QUÁ TẢI)");
         } else {
@@ -190,12 +239,12 @@ public class TeacherController {
     }
 
     private int getPeriodsForAssignment(Assignment assignment) {
-        Clazz clazz = repositoryOrchestrator.getClassRepository().getById(assignment.getClassId());
+        Clazz clazz = snapshot.getClazz(assignment.getClassId());
         if (clazz == null) return 0;
 
         String gradeId = clazz.getGradeId();
 
-        Curriculum cur = repositoryOrchestrator.getCurriculumRepository().getByGradeAndSubject(gradeId, assignment.getSubjectId());
+        Curriculum cur = snapshot.getCurriculum(gradeId, assignment.getSubjectId());
         if (cur == null) return 0;
 
         return cur.getPeriodsPerWeek();
@@ -207,18 +256,28 @@ public class TeacherController {
         // Clear delete list when switching teacher
         assignmentsToDelete.clear();
 
-        // Lazy loading teacher's assignments
-        List<Assignment> assignments = repositoryOrchestrator.getAssignmentRepository().getByTeacherId(teacher.getId());
-        ObservableList<Assignment> observableList = FXCollections.observableArrayList(assignments);
-        teacher.setAssignments(observableList);
         selectedTeacher = teacher;
-
         nameField.setText(teacher.getName());
         codeField.setText(teacher.getId());
-        timeGridSelector.setBusyMatrix(teacher.getBusyMatrix());
+        timeGridSelector.setBusyMask(teacher.getBusyMask());
 
-        // Load this teacher's assignment list into the table
-        currentAssignments.setAll(teacher.getAssignments());
+        loadAssignments(teacher);
+    }
+
+    /**
+     * Lazy loading teacher's assignments; a newer selection cancels this one. Leaves the form fields alone.
+     */
+    private void loadAssignments(Teacher teacher) {
+        currentAssignments.clear();
+        savedAssignmentIds.clear();
+        assignmentTable.setPlaceholder(new Label("Đang tải phân công..."));
+        detailsLoader.load(() -> repositoryOrchestrator.getAssignmentRepository().getByTeacherId(teacher.getId()), assignments -> {
+            teacher.setAssignments(FXCollections.observableArrayList(assignments));
+            // Load this teacher's assignment list into the table
+            currentAssignments.setAll(teacher.getAssignments());
+            assignments.forEach(a -> savedAssignmentIds.add(a.getId()));
+            assignmentTable.setPlaceholder(new Label("Chưa có phân công"));
+        });
     }
 
     private void createNewTeacher() {
@@ -287,34 +346,25 @@ public class TeacherController {
         if (selected != null) {
             selected.setName(nameField.getText());
             selected.setId(codeField.getText());
-            selected.setBusyMatrix(timeGridSelector.getBusyMatrix());
+            selected.setBusyMask(timeGridSelector.getBusyMask());
 
-            // Save assignment list from table to Teacher Object
-            selected.setAssignments(FXCollections.observableArrayList(currentAssignments));
+            // Rows already in the database are left as they are; only the ones added in the form are written
+            List<Assignment> added = new ArrayList<>();
+            for (Assignment a : currentAssignments) {
+                if (!savedAssignmentIds.contains(a.getId())) added.add(a);
+            }
+            List<String> removedIds = new ArrayList<>();
+            for (Assignment a : assignmentsToDelete) removedIds.add(a.getId());
 
-            // Save to DB
+            // Save to DB: teacher, removed and added assignments in one transaction
             try {
-                boolean updated = repositoryOrchestrator.getTeacherRepository().update(selected);
-                if (!updated) {
-                    repositoryOrchestrator.getTeacherRepository().insert(selected);
-                }
-
-                // Handle assignments
-                // Delete removed assignments
-                for (Assignment a : assignmentsToDelete) {
-                    repositoryOrchestrator.getAssignmentRepository().delete(a.getId());
-                }
+                repositoryOrchestrator.saveTeacher(selected, added, removedIds);
                 assignmentsToDelete.clear();
+                savedAssignmentIds.clear();
+                currentAssignments.forEach(a -> savedAssignmentIds.add(a.getId()));
 
-                // Save new/existing assignments
-                for (Assignment a : currentAssignments) {
-                    try {
-                        repositoryOrchestrator.getAssignmentRepository().save(a);
-                    } catch (Exception e) {
-                        // Ignore if already exists
-                        System.out.println("Assignment already exists: " + a.getId());
-                    }
-                }
+                // Save assignment list from table to Teacher Object
+                selected.setAssignments(FXCollections.observableArrayList(currentAssignments));
 
                 teacherListView.refresh();
                 showAlert(Alert.AlertType.INFORMATION, "Thành công", "Đã lưu thông tin giáo viên!");
@@ -356,7 +406,8 @@ public class TeacherController {
                         btn.setOnAction(event -> {
                             Assignment data = getTableView().getItems().get(getIndex());
                             currentAssignments.remove(data); // Remove from list -> Automatically updates table & Total periods
-                            assignmentsToDelete.add(data); // Mark for deletion
+                            // Mark for deletion; a row that was never saved is simply dropped
+                            if (savedAssignmentIds.contains(data.getId())) assignmentsToDelete.add(data);
                         });
                     }
 
@@ -383,14 +434,158 @@ public class TeacherController {
         alert.show();
     }
 
+    @Override
+    public Set<String> dependencies() {
+        return DEPENDENCIES;
+    }
+
+    @Override
+    public void refresh() {
+        loadData();
+    }
+
+    @Override
+    public void dispose() {
+        changes.close();
+        if (stopWorkloads != null) stopWorkloads.run();
+    }
+
     private void loadData() {
-        List<Subject> subjects = repositoryOrchestrator.getSubjectRepository().getAll();
-        subjectComboBox.setItems(FXCollections.observableArrayList(subjects));
+        String selectedId = selectedTeacher != null ? selectedTeacher.getId() : null;
+        placeholder.setText("Đang tải danh sách giáo viên...");
+        loader.load(() -> repositoryOrchestrator.loadSnapshot(false), loaded -> {
+            snapshot = loaded;
+            subjectComboBox.setItems(FXCollections.observableArrayList(snapshot.getSubjects()));
+            multiClassListView.setItems(FXCollections.observableArrayList(snapshot.getClasses()));
+            teacherList.setAll(snapshot.getTeachers());
+
+            placeholder.setText("Chưa có giáo viên");
+            // On a refresh, stay on the teacher that was open
+            Teacher reselected = selectedId != null ? snapshot.getTeacher(selectedId) : null;
+            if (reselected != null) teacherListView.getSelectionModel().select(reselected);
+            else teacherListView.getSelectionModel().select(0);
+
+            // Rows written while the list was loading may be older in it than in the database
+            patchChanges();
+        });
+    }
+
+    /**
+     * @param savedOfOpen saved assignments of the open teacher, re-read after a bulk delete; null otherwise
+     */
+    private record PatchRows(Map<String, Teacher> teachers, Map<String, Assignment> assignments,
+                             List<Assignment> savedOfOpen) {
+    }
+
+    /**
+     * Re-reads only the teachers and assignments written since the last patch (null when deleted) and updates their
+     * rows in place, keeping the selection, the open form and any unsaved rows of the open teacher.
+     */
+    private void patchChanges() {
+        // Applied once the full list is in
+        if (loader.isLoading()) return;
+        PendingChanges.Batch batch = changes.peek();
+        if (batch.isEmpty()) return;
+
+        Teacher open = teacherListView.getSelectionModel().getSelectedItem();
+        // Rows deleted by class, by teacher or all at once are not named: re-read the open teacher's saved rows
+        boolean rereadOpen = open != null && batch.isBulk(EntityVersionRepository.ASSIGNMENT);
+        patchLoader.load(() -> repositoryOrchestrator.inReadTransaction(() -> {
+            Map<String, Teacher> teachers = new HashMap<>();
+            for (String id : batch.ids(EntityVersionRepository.TEACHER)) {
+                teachers.put(id, repositoryOrchestrator.getTeacherRepository().getById(id));
+            }
+            Map<String, Assignment> assignments = new HashMap<>();
+            for (String id : batch.ids(EntityVersionRepository.ASSIGNMENT)) {
+                assignments.put(id, repositoryOrchestrator.getAssignmentRepository().getById(id));
+            }
+            List<Assignment> savedOfOpen = rereadOpen
+                    ? repositoryOrchestrator.getAssignmentRepository().getByTeacherId(open.getId())
+                    : null;
+            return new PatchRows(teachers, assignments, savedOfOpen);
+        }), rows -> {
+            changes.acknowledge(batch);
+            rows.teachers().forEach(this::patchTeacher);
+            teacherListView.refresh();
+
+            // Another teacher was opened meanwhile: its rows are being read after the write anyway
+            if (open == null || open != teacherListView.getSelectionModel().getSelectedItem()) return;
+            if (detailsLoader.isLoading()) {
+                // The list still loading may have been read before the write; the form fields stay as typed
+                loadAssignments(open);
+            } else if (rows.savedOfOpen() != null) {
+                mergeSavedAssignments(open, rows.savedOfOpen());
+                updateTotalPeriods();
+            } else if (!rows.assignments().isEmpty()) {
+                rows.assignments().forEach((id, fresh) -> patchAssignment(open, id, fresh));
+                updateTotalPeriods();
+            }
+        });
+    }
 
-        List<Clazz> classes = repositoryOrchestrator.getClassRepository().getAll();
-        multiClassListView.setItems(FXCollections.observableArrayList(classes));
+    /**
+     * Replaces the saved rows of the open teacher with a fresh read, keeping the rows added and removed in the form.
+     */
+    private void mergeSavedAssignments(Teacher open, List<Assignment> saved) {
+        Set<String> removed = new HashSet<>();
+        for (Assignment a : assignmentsToDelete) removed.add(a.getId());
 
-        List<Teacher> teachers = repositoryOrchestrator.getTeacherRepository().getAll();
-        teacherList.addAll(teachers);
+        List<Assignment> merged = new ArrayList<>();
+        for (Assignment a : saved) {
+            if (!removed.contains(a.getId())) merged.add(a);
+        }
+        for (Assignment a : currentAssignments) {
+            if (!savedAssignmentIds.contains(a.getId())) merged.add(a);
+        }
+
+        savedAssignmentIds.clear();
+        saved.forEach(a -> savedAssignmentIds.add(a.getId()));
+        // A removed row that is gone from the database needs no delete any more
+        assignmentsToDelete.removeIf(a -> !savedAssignmentIds.contains(a.getId()));
+        open.setAssignments(FXCollections.observableArrayList(saved));
+        currentAssignments.setAll(merged);
+    }
+
+    private void patchTeacher(String id, Teacher fresh) {
+        Teacher current = null;
+        for (Teacher teacher : teacherList) {
+            if (teacher.getId().equals(id)) {
+                current = teacher;
+                break;
+            }
+        }
+        if (fresh == null) {
+            if (current != null) teacherList.remove(current);
+        } else if (current != null) {
+            // Same object keeps the selection (and the open form) untouched
+            current.setName(fresh.getName());
+            current.setBusyMask(fresh.getBusyMask());
+        } else {
+            teacherList.add(fresh);
+        }
+    }
+
+    private void patchAssignment(Teacher open, String id, Assignment fresh) {
+        boolean ofOpenTeacher = fresh != null && open.getId().equals(fresh.getTeacherId());
+        boolean removedInForm = assignmentsToDelete.removeIf(a -> a.getId().equals(id));
+        if (ofOpenTeacher) {
+            savedAssignmentIds.add(id);
+            // Still removed in the form: keep it marked, not shown
+            if (removedInForm) {
+                assignmentsToDelete.add(fresh);
+                return;
+            }
+        } else {
+            // Gone from this teacher in the database; a removal in the form has nothing left to delete
+            savedAssignmentIds.remove(id);
+        }
+        for (int i = 0; i < currentAssignments.size(); i++) {
+            if (currentAssignments.get(i).getId().equals(id)) {
+                if (ofOpenTeacher) currentAssignments.set(i, fresh);
+                else currentAssignments.remove(i);
+                return;
+            }
+        }
+        if (ofOpenTeacher) currentAssignments.add(fresh);
     }
-}
\ No newline at end of file
+}
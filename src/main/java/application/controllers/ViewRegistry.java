@@ -0,0 +1,205 @@
+package application.controllers;
+
+import application.diagnostics.ViewLoadEvent;
+import application.models.EntityChange;
+import application.repository.EntityVersionRepository;
+import application.repository.RepositoryOrchestrator;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Parses each main view once and keeps it alive between visits, so switching tabs only swaps a node.
+ * <p>
+ * At most {@link #MAX_CACHED_VIEWS} views are kept; the one shown least recently is dropped first. Every entry
+ * remembers the change version ({@link EntityVersionRepository}) it was last current with: the version is stamped
+ * when the view is hidden, and when it is shown again a {@link RefreshableView} is refreshed only if one of its
+ * dependencies changed since. Stamps and checks run in order on one background thread, so a check never overtakes
+ * the stamp taken when the view was left.
+ */
+final class ViewRegistry {
+
+    static final int MAX_CACHED_VIEWS = 4;
+
+    // Time left to the first view (and between two preloads) so preloading never delays a frame the user waits for
+    private static final Duration PRELOAD_DELAY = Duration.millis(400);
+
+    private final RepositoryOrchestrator repo;
+    private final ExecutorService versionExecutor =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("view-versions").factory());
+    private final LinkedHashMap<String, Entry> views = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= MAX_CACHED_VIEWS) return false;
+            dispose(eldest.getValue());
+            return true;
+        }
+    };
+    private final Deque<Preload> preloads = new ArrayDeque<>();
+
+    static final class Entry {
+        final String fxml;
+        final Parent view;
+        final Object controller;
+        // Change version the view is current with; only touched on the version thread. -1 refreshes on next show
+        private long version = -1;
+
+        private Entry(String fxml, Parent view, Object controller) {
+            this.fxml = fxml;
+            this.view = view;
+            this.controller = controller;
+        }
+    }
+
+    private record Preload(String fxml, Supplier<Object> controllerFactory) {
+    }
+
+    ViewRegistry(RepositoryOrchestrator repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * Returns the cached view, refreshing it in the background if needed, or parses and caches a new one.
+     */
+    Entry show(String fxml, Supplier<Object> controllerFactory) {
+        Entry entry = views.get(fxml);
+        if (entry != null) {
+            refreshIfChanged(entry);
+            return entry;
+        }
+        entry = load(fxml, controllerFactory.get(), false);
+        views.put(fxml, entry);
+        return entry;
+    }
+
+    /**
+     * Stamps the view as current with everything written so far, including its own pending writes.
+     */
+    void hidden(Entry entry) {
+        versionExecutor.execute(() -> {
+            try {
+                repo.getWriteBehind().flush();
+                entry.version = repo.getEntityVersionRepository().getCurrentVersion();
+            } catch (RuntimeException e) {
+                System.err.println("Could not stamp view " + entry.fxml + ": " + e.getMessage());
+                entry.version = -1;
+            }
+        });
+    }
+
+    /**
+     * Drops a cached view, so the next {@link #show} builds it again from scratch.
+     */
+    void evict(String fxml) {
+        Entry entry = views.remove(fxml);
+        if (entry != null) dispose(entry);
+    }
+
+    private static void dispose(Entry entry) {
+        if (entry.controller instanceof RefreshableView view) view.dispose();
+    }
+
+    /**
+     * Parses a view and creates its controller, without caching it.
+     */
+    Entry load(String fxml, Object controllerInstance, boolean preloaded) {
+        ViewLoadEvent event = new ViewLoadEvent();
+        event.fxml = fxml;
+        event.controller = controllerInstance.getClass().getSimpleName();
+        event.preloaded = preloaded;
+        event.begin();
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/" + fxml));
+
+            loader.setControllerFactory(param -> {
+                // param is the Class type declared in fx:controller of FXML
+                // If type matches the controllerInstance we have -> return it
+                if (param == controllerInstance.getClass()) {
+                    return controllerInstance;
+                }
+
+                // Case where FXML has other child controllers (nested controllers)
+                try {
+                    return param.getDeclaredConstructor().newInstance();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            return new Entry(fxml, loader.load(), controllerInstance);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Queues a view to be built while the user works on another one. Views are built one at a time, a short moment
+     * apart, on the FX thread: the FXML holds controls (tooltips) that must be created there, and the data the
+     * controllers load is read on background threads anyway. A view shown before its turn is not built twice.
+     */
+    void preload(String fxml, Supplier<Object> controllerFactory) {
+        preloads.add(new Preload(fxml, controllerFactory));
+        if (preloads.size() == 1) schedulePreload();
+    }
+
+    private void schedulePreload() {
+        PauseTransition pause = new PauseTransition(PRELOAD_DELAY);
+        pause.setOnFinished(e -> {
+            Preload next = preloads.poll();
+            if (next == null) return;
+            // Never push out a view the user already opened
+            if (!views.containsKey(next.fxml()) && views.size() < MAX_CACHED_VIEWS) {
+                try {
+                    Entry entry = load(next.fxml(), next.controllerFactory().get(), true);
+                    views.put(next.fxml(), entry);
+                    hidden(entry);
+                } catch (RuntimeException ex) {
+                    System.err.println("Preloading " + next.fxml() + " failed: " + ex.getMessage());
+                }
+            }
+            if (!preloads.isEmpty()) schedulePreload();
+        });
+        pause.play();
+    }
+
+    private void refreshIfChanged(Entry entry) {
+        if (!(entry.controller instanceof RefreshableView view)) return;
+        Set<String> dependencies = view.dependencies();
+        versionExecutor.execute(() -> {
+            boolean changed;
+            try {
+                EntityVersionRepository versions = repo.getEntityVersionRepository();
+                long current = versions.getCurrentVersion();
+                Set<String> entities = new HashSet<>();
+                if (current != entry.version) {
+                    for (EntityChange change : versions.getChanges(entry.version, current)) {
+                        entities.add(change.entity());
+                    }
+                }
+                changed = !Collections.disjoint(entities, dependencies);
+                entry.version = current;
+            } catch (RuntimeException e) {
+                // Unknown is treated as changed: a needless reload beats a stale view
+                System.err.println("Could not check view " + entry.fxml + " for changes: " + e.getMessage());
+                changed = true;
+            }
+            if (changed) Platform.runLater(view::refresh);
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package application.diagnostics;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Queries recorded between one UI action (click, key press) and the next, grouped by SQL text.
+ */
+public class ActionProfile {
+
+    private final String name;
+    private final LocalDateTime startedAt;
+    private final Map<String, QueryStats> statsBySql = new LinkedHashMap<>();
+    private final Set<String> suspectedNPlusOne = new LinkedHashSet<>();
+
+    ActionProfile(String name, LocalDateTime startedAt) {
+        this.name = name;
+        this.startedAt = startedAt;
+    }
+
+    /**
+     * @return true the first time {@code sql} goes over the threshold within this action
+     */
+    boolean record(String sql, long nanos, long rows, int nPlusOneThreshold) {
+        QueryStats stats = statsBySql.computeIfAbsent(sql, QueryStats::new);
+        stats.record(nanos, rows);
+        return stats.getCount() > nPlusOneThreshold && suspectedNPlusOne.add(sql);
+    }
+
+    void putAll(Map<String, QueryStats> stats, Collection<ActionProfile> flaggedIn) {
+        stats.forEach((sql, s) -> statsBySql.put(sql, s.copy()));
+        for (ActionProfile action : flaggedIn) suspectedNPlusOne.addAll(action.suspectedNPlusOne);
+    }
+
+    ActionProfile copy() {
+        ActionProfile copy = new ActionProfile(name, startedAt);
+        statsBySql.forEach((sql, stats) -> copy.statsBySql.put(sql, stats.copy()));
+        copy.suspectedNPlusOne.addAll(suspectedNPlusOne);
+        return copy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public Collection<QueryStats> getStats() {
+        return Collections.unmodifiableCollection(statsBySql.values());
+    }
+
+    public boolean isSuspectedNPlusOne(String sql) {
+        return suspectedNPlusOne.contains(sql);
+    }
+
+    public Set<String> getSuspectedNPlusOne() {
+        return Collections.unmodifiableSet(suspectedNPlusOne);
+    }
+
+    public long getQueryCount() {
+        long total = 0;
+        for (QueryStats stats : statsBySql.values()) total += stats.getCount();
+        return total;
+    }
+
+    public long getRows() {
+        long total = 0;
+        for (QueryStats stats : statsBySql.values()) total += stats.getRows();
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
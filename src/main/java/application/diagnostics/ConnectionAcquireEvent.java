@@ -0,0 +1,13 @@
+package application.diagnostics;
+
+import jdk.jfr.*;
+
+@Name("application.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"School Scheduler", "Database"})
+@Description("Time spent opening a database connection")
+public class ConnectionAcquireEvent extends Event {
+
+    @Label("Handler")
+    public String handler;
+}
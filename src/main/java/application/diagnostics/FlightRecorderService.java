@@ -0,0 +1,65 @@
+package application.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Keeps a continuous, size-bounded flight recording running for the whole session so a profile of the last
+ * minutes can be dumped on demand (JDK "default" settings plus the application events).
+ */
+public class FlightRecorderService {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(15);
+    private static final long MAX_SIZE = 100L * 1024 * 1024;
+
+    private static Recording recording;
+
+    private FlightRecorderService() {
+    }
+
+    public static synchronized void start() {
+        if (recording != null || !FlightRecorder.isAvailable()) return;
+        try {
+            Recording r = new Recording(Configuration.getConfiguration("default"));
+            r.setName("scheduler-continuous");
+            r.setToDisk(true);
+            r.setMaxAge(MAX_AGE);
+            r.setMaxSize(MAX_SIZE);
+            r.enable(SqlQueryEvent.class);
+            r.enable(ConnectionAcquireEvent.class);
+            r.enable(ViewLoadEvent.class);
+            r.enable(GenerationPhaseEvent.class);
+            r.start();
+            recording = r;
+        } catch (IOException | ParseException | IllegalStateException e) {
+            System.err.println("WARN: Could not start flight recording: " + e.getMessage());
+        }
+    }
+
+    public static synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * Writes what the continuous recording currently holds to {@code target}; the recording keeps running.
+     */
+    public static synchronized void dump(Path target) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("Flight recording is not running");
+        }
+        recording.dump(target);
+    }
+
+    public static synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package application.diagnostics;
+
+import jdk.jfr.*;
+
+@Name("application.GenerationPhase")
+@Label("Generation Phase")
+@Category({"School Scheduler", "Engine"})
+@Description("One phase of a schedule generation run (load, prepare, map, write, spawn, solve, parse, save)")
+public class GenerationPhaseEvent extends Event {
+
+    @Label("Run Id")
+    public String runId;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Count")
+    public long count;
+}
@@ -0,0 +1,235 @@
+package application.diagnostics;
+
+import application.repository.IDatabaseHandler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Decorates another {@link IDatabaseHandler} so every connection it hands out reports to Java Flight Recorder:
+ * a {@link ConnectionAcquireEvent} per connection and a {@link SqlQueryEvent} per statement execution.
+ * Executions are also passed to the registered {@link QueryListener}s (see {@link QueryProfiler}).
+ * <p>
+ * Repositories are unaware of it; JDBC objects are wrapped with dynamic proxies that only intercept the
+ * execute / next / close calls and forward everything else.
+ */
+public class InstrumentedDatabaseHandler implements IDatabaseHandler {
+
+    private final IDatabaseHandler delegate;
+    private final List<QueryListener> listeners = new CopyOnWriteArrayList<>();
+
+    public InstrumentedDatabaseHandler(IDatabaseHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    public void addListener(QueryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QueryListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        Connection connection = delegate.getConnection();
+        event.handler = delegate.getClass().getSimpleName();
+        event.commit();
+
+        return proxy(Connection.class, new ConnectionHandler(connection, this));
+    }
+
+    private void report(Execution execution) {
+        execution.event.commit();
+        if (listeners.isEmpty()) return;
+        long nanos = System.nanoTime() - execution.startNanos;
+        for (QueryListener listener : listeners) {
+            listener.onQuery(execution.event.sql, nanos, execution.event.rows);
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A statement execution in flight: the JFR event plus a start time for the listeners.
+     */
+    private static final class Execution {
+        final SqlQueryEvent event = new SqlQueryEvent();
+        final long startNanos = System.nanoTime();
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final InstrumentedDatabaseHandler owner;
+
+        ConnectionHandler(Connection target, InstrumentedDatabaseHandler owner) {
+            this.target = target;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = forward(target, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> proxy(Statement.class, new StatementHandler((Statement) result, null, owner));
+                case "prepareStatement" ->
+                        proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0], owner));
+                case "prepareCall" ->
+                        proxy(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0], owner));
+                default -> result;
+            };
+        }
+    }
+
+    /**
+     * Tracks the execution in flight on one statement. A query stays open until its result set or the
+     * statement is closed, or the statement is executed again, so the event includes the fetch.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final InstrumentedDatabaseHandler owner;
+
+        private Execution open;
+        private String batchSql;
+        private int batchSize;
+
+        StatementHandler(Statement target, String preparedSql, InstrumentedDatabaseHandler owner) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "executeQuery" -> {
+                    Execution execution = begin(sqlOf(args));
+                    ResultSet rs = (ResultSet) forward(target, method, args);
+                    open = execution;
+                    return proxy(ResultSet.class, new ResultSetHandler(rs, this, execution));
+                }
+                case "executeUpdate", "executeLargeUpdate" -> {
+                    Execution execution = begin(sqlOf(args));
+                    Number count = (Number) forward(target, method, args);
+                    execution.event.rows = count.longValue();
+                    owner.report(execution);
+                    return count;
+                }
+                case "execute" -> {
+                    Execution execution = begin(sqlOf(args));
+                    Object result = forward(target, method, args);
+                    execution.event.rows = Math.max(0, target.getUpdateCount());
+                    owner.report(execution);
+                    return result;
+                }
+                case "addBatch" -> {
+                    if (args != null && args.length == 1) batchSql = (String) args[0];
+                    batchSize++;
+                    return forward(target, method, args);
+                }
+                case "clearBatch" -> {
+                    batchSize = 0;
+                    return forward(target, method, args);
+                }
+                case "executeBatch", "executeLargeBatch" -> {
+                    Execution execution = begin(preparedSql != null ? preparedSql : batchSql);
+                    execution.event.batchSize = batchSize;
+                    batchSize = 0;
+                    Object counts = forward(target, method, args);
+                    execution.event.rows = sumCounts(counts);
+                    owner.report(execution);
+                    return counts;
+                }
+                case "close" -> {
+                    finishOpen();
+                    return forward(target, method, args);
+                }
+                default -> {
+                    return forward(target, method, args);
+                }
+            }
+        }
+
+        private Execution begin(String sql) {
+            finishOpen();
+            Execution execution = new Execution();
+            execution.event.sql = sql;
+            execution.event.begin();
+            return execution;
+        }
+
+        void finish(Execution execution) {
+            if (open == execution) {
+                open = null;
+                owner.report(execution);
+            }
+        }
+
+        private void finishOpen() {
+            if (open != null) finish(open);
+        }
+
+        private String sqlOf(Object[] args) {
+            return args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+        }
+
+        private static long sumCounts(Object counts) {
+            long total = 0;
+            if (counts instanceof int[] ints) {
+                for (int c : ints) if (c > 0) total += c;
+            } else if (counts instanceof long[] longs) {
+                for (long c : longs) if (c > 0) total += c;
+            }
+            return total;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final StatementHandler owner;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet target, StatementHandler owner, Execution execution) {
+            this.target = target;
+            this.owner = owner;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    Object hasRow = forward(target, method, args);
+                    if ((Boolean) hasRow) execution.event.rows++;
+                    return hasRow;
+                }
+                case "close" -> {
+                    owner.finish(execution);
+                    return forward(target, method, args);
+                }
+                default -> {
+                    return forward(target, method, args);
+                }
+            }
+        }
+    }
+}
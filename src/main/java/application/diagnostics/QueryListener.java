@@ -0,0 +1,16 @@
+package application.diagnostics;
+
+/**
+ * Receives every statement execution seen by {@link InstrumentedDatabaseHandler}. Called on the thread that ran
+ * the statement, so implementations must be thread-safe and cheap.
+ */
+@FunctionalInterface
+public interface QueryListener {
+
+    /**
+     * @param sql   statement text (the prepared SQL for prepared statements)
+     * @param nanos execution time, including the fetch for queries
+     * @param rows  rows fetched by a query, or rows affected by an update or batch
+     */
+    void onQuery(String sql, long nanos, long rows);
+}
@@ -0,0 +1,135 @@
+package application.diagnostics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Collects per-SQL statistics, both for the whole session and per UI action, and flags statements that run
+ * more than {@link #getNPlusOneThreshold()} times within one action as suspected N+1 queries.
+ * <p>
+ * An action starts with {@link #beginAction(String)} (the main scene calls it on every click and key press)
+ * and lasts until the next one, so work done later in the same pulse, such as table cell rendering, is counted
+ * with the input that caused it.
+ */
+public class QueryProfiler implements QueryListener {
+
+    public static final int DEFAULT_N_PLUS_ONE_THRESHOLD = 10;
+    private static final int MAX_ACTIONS = 50;
+
+    private final Map<String, QueryStats> totals = new LinkedHashMap<>();
+    private final Deque<ActionProfile> actions = new ArrayDeque<>();
+    private int nPlusOneThreshold = DEFAULT_N_PLUS_ONE_THRESHOLD;
+    private ActionProfile current = new ActionProfile("Khởi động", LocalDateTime.now());
+
+    public QueryProfiler() {
+        actions.addLast(current);
+    }
+
+    public synchronized void beginAction(String name) {
+        // Do not keep empty actions around (mouse clicks that touched no data)
+        if (current.getQueryCount() == 0) actions.remove(current);
+
+        current = new ActionProfile(name, LocalDateTime.now());
+        actions.addLast(current);
+        while (actions.size() > MAX_ACTIONS) actions.removeFirst();
+    }
+
+    @Override
+    public synchronized void onQuery(String sql, long nanos, long rows) {
+        String key = sql != null ? sql : "?";
+        totals.computeIfAbsent(key, QueryStats::new).record(nanos, rows);
+        if (current.record(key, nanos, rows, nPlusOneThreshold)) {
+            System.err.println("WARN: Suspected N+1 in action '" + current.getName() + "': " + key);
+        }
+    }
+
+    /**
+     * @return copies of the recorded actions, oldest first
+     */
+    public synchronized List<ActionProfile> getActions() {
+        List<ActionProfile> copies = new ArrayList<>(actions.size());
+        for (ActionProfile action : actions) copies.add(action.copy());
+        return copies;
+    }
+
+    public synchronized List<QueryStats> getTotals() {
+        List<QueryStats> copies = new ArrayList<>(totals.size());
+        for (QueryStats stats : totals.values()) copies.add(stats.copy());
+        return copies;
+    }
+
+    /**
+     * The whole session as one pseudo action; a statement is flagged if it was flagged in any recorded action.
+     */
+    public synchronized ActionProfile getSessionProfile() {
+        ActionProfile session = new ActionProfile("Toàn phiên", actions.isEmpty() ? LocalDateTime.now() : actions.getFirst().getStartedAt());
+        session.putAll(totals, actions);
+        return session;
+    }
+
+    public synchronized int getNPlusOneThreshold() {
+        return nPlusOneThreshold;
+    }
+
+    public synchronized void setNPlusOneThreshold(int threshold) {
+        this.nPlusOneThreshold = Math.max(1, threshold);
+    }
+
+    public synchronized void reset() {
+        totals.clear();
+        actions.clear();
+        current = new ActionProfile("Sau khi xóa", LocalDateTime.now());
+        actions.addLast(current);
+    }
+
+    /**
+     * Writes one line per SQL text per action plus one "total" line per SQL text for the whole session.
+     */
+    public void exportCsv(Path file) throws IOException {
+        List<ActionProfile> actionCopies = getActions();
+        List<QueryStats> totalCopies = getTotals();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("scope,action,started_at,sql,count,total_ms,mean_ms,max_ms,rows");
+            for (String label : QueryStats.BUCKET_LABELS) writer.write("," + label);
+            writer.write(",suspected_n_plus_1");
+            writer.newLine();
+
+            for (ActionProfile action : actionCopies) {
+                for (QueryStats stats : action.getStats()) {
+                    writeRow(writer, "action", action.getName(), action.getStartedAt().toString(), stats,
+                            action.isSuspectedNPlusOne(stats.getSql()));
+                }
+            }
+            for (QueryStats stats : totalCopies) {
+                writeRow(writer, "total", "", "", stats, false);
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter writer, String scope, String action, String startedAt,
+                                 QueryStats stats, boolean suspected) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(scope).append(',')
+                .append(csv(action)).append(',')
+                .append(startedAt).append(',')
+                .append(csv(stats.getSql())).append(',')
+                .append(stats.getCount()).append(',')
+                .append(String.format(Locale.ROOT, "%.3f,%.3f,%.3f", stats.getTotalMillis(), stats.getMeanMillis(), stats.getMaxMillis())).append(',')
+                .append(stats.getRows());
+        for (long bucket : stats.getHistogram()) sb.append(',').append(bucket);
+        sb.append(',').append(suspected);
+        writer.write(sb.toString());
+        writer.newLine();
+    }
+
+    private static String csv(String value) {
+        String flat = value.replace('\n', ' ').replace('\r', ' ');
+        return "\"" + flat.replace("\"", "\"\"") + "\"";
+    }
+}
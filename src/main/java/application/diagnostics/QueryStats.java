@@ -0,0 +1,71 @@
+package application.diagnostics;
+
+/**
+ * Call count, latency and rows for one SQL text. Latencies go into decade buckets: under 0.1 ms, 1 ms, 10 ms,
+ * 100 ms, and 100 ms or more.
+ */
+public class QueryStats {
+
+    public static final String[] BUCKET_LABELS = {"<0.1ms", "<1ms", "<10ms", "<100ms", ">=100ms"};
+    private static final long[] BUCKET_LIMITS_NANOS = {100_000L, 1_000_000L, 10_000_000L, 100_000_000L};
+
+    private final String sql;
+    private final long[] histogram = new long[BUCKET_LABELS.length];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long rows;
+
+    public QueryStats(String sql) {
+        this.sql = sql;
+    }
+
+    void record(long nanos, long rowCount) {
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        rows += rowCount;
+
+        int bucket = 0;
+        while (bucket < BUCKET_LIMITS_NANOS.length && nanos >= BUCKET_LIMITS_NANOS[bucket]) bucket++;
+        histogram[bucket]++;
+    }
+
+    QueryStats copy() {
+        QueryStats copy = new QueryStats(sql);
+        copy.count = count;
+        copy.totalNanos = totalNanos;
+        copy.maxNanos = maxNanos;
+        copy.rows = rows;
+        System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+        return copy;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / 1_000_000.0;
+    }
+
+    public double getMeanMillis() {
+        return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+}
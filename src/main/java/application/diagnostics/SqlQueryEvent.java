@@ -0,0 +1,24 @@
+package application.diagnostics;
+
+import jdk.jfr.*;
+
+/**
+ * One SQL statement execution through the instrumented handler. For queries the event spans execution and
+ * fetching, up to the point the result set is closed.
+ */
+@Name("application.SqlQuery")
+@Label("SQL Query")
+@Category({"School Scheduler", "Database"})
+@Description("SQL statement executed by a repository")
+public class SqlQueryEvent extends Event {
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Rows")
+    @Description("Rows fetched by a query, or rows affected by an update or batch")
+    public long rows;
+
+    @Label("Batch Size")
+    public int batchSize;
+}
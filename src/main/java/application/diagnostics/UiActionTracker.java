@@ -0,0 +1,38 @@
+package application.diagnostics;
+
+import javafx.event.EventTarget;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Labeled;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+
+/**
+ * Starts a new {@link QueryProfiler} action for every mouse press and key press in a scene, named after the
+ * control that received it.
+ */
+public class UiActionTracker {
+
+    private UiActionTracker() {
+    }
+
+    public static void install(Scene scene, QueryProfiler profiler) {
+        scene.addEventFilter(MouseEvent.MOUSE_PRESSED, e -> profiler.beginAction("Chuột: " + describe(e.getTarget())));
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> profiler.beginAction("Phím " + e.getCode() + ": " + describe(e.getTarget())));
+    }
+
+    private static String describe(EventTarget target) {
+        if (!(target instanceof Node node)) return String.valueOf(target);
+
+        // Clicks usually land on the text or graphic inside a control; name the closest labelled ancestor
+        for (Node n = node; n != null; n = n.getParent()) {
+            if (n instanceof Labeled labeled && labeled.getText() != null && !labeled.getText().isBlank()) {
+                return labeled.getText();
+            }
+            if (n.getId() != null) {
+                return "#" + n.getId();
+            }
+        }
+        return node.getClass().getSimpleName();
+    }
+}
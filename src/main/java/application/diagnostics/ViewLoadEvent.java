@@ -0,0 +1,20 @@
+package application.diagnostics;
+
+import jdk.jfr.*;
+
+@Name("application.ViewLoad")
+@Label("View Load")
+@Category({"School Scheduler", "UI"})
+@Description("FXML parse and controller initialization of a main view")
+public class ViewLoadEvent extends Event {
+
+    @Label("FXML")
+    public String fxml;
+
+    @Label("Controller")
+    public String controller;
+
+    @Label("Preloaded")
+    @Description("Built on the FX thread while idle, before the user opened it")
+    public boolean preloaded;
+}
@@ -0,0 +1,147 @@
+package application.models;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable weekly availability: one bit per slot, set = busy.
+ * <p>
+ * Bit {@code day * 10 + period} stands for {@code boolean[day][period]} of the former 6 x 10 matrices, so periods
+ * 0-4 are the morning and 5-9 the afternoon. Only the low 60 bits are used; the value is stored as-is in an
+ * INTEGER column.
+ */
+public record BusyMask(long bits) {
+
+    public static final int DAYS = 6;
+    public static final int PERIODS_PER_DAY = 10;
+    public static final int PERIODS_PER_SESSION = 5;
+    public static final int SIZE = DAYS * PERIODS_PER_DAY;
+
+    private static final long ALL_BITS = (1L << SIZE) - 1;
+
+    public static final BusyMask EMPTY = new BusyMask(0L);
+    public static final BusyMask FULL = new BusyMask(ALL_BITS);
+
+    // Every slot of one session, all days
+    private static final BusyMask MORNING = sessionMask(0);
+    private static final BusyMask AFTERNOON = sessionMask(PERIODS_PER_SESSION);
+
+    public BusyMask {
+        bits &= ALL_BITS;
+    }
+
+    public static int index(int day, int period) {
+        return day * PERIODS_PER_DAY + period;
+    }
+
+    public static BusyMask of(int day, int period) {
+        return new BusyMask(1L << index(day, period));
+    }
+
+    public static BusyMask session(ESession session) {
+        return session == ESession.AFTERNOON ? AFTERNOON : MORNING;
+    }
+
+    public boolean isBusy(int day, int period) {
+        return (bits & (1L << index(day, period))) != 0;
+    }
+
+    public BusyMask with(int day, int period, boolean busy) {
+        long bit = 1L << index(day, period);
+        return new BusyMask(busy ? bits | bit : bits & ~bit);
+    }
+
+    public BusyMask union(BusyMask other) {
+        return new BusyMask(bits | other.bits);
+    }
+
+    public BusyMask intersect(BusyMask other) {
+        return new BusyMask(bits & other.bits);
+    }
+
+    public BusyMask minus(BusyMask other) {
+        return new BusyMask(bits & ~other.bits);
+    }
+
+    /**
+     * Busy becomes free and free becomes busy, within the 60 slots.
+     */
+    public BusyMask invert() {
+        return new BusyMask(~bits);
+    }
+
+    public int count() {
+        return Long.bitCount(bits);
+    }
+
+    public boolean isEmpty() {
+        return bits == 0;
+    }
+
+    /**
+     * Free slots of a session, e.g. the periods left for a grade after the session's busy slots.
+     */
+    public int freeIn(ESession session) {
+        return session(session).minus(this).count();
+    }
+
+    /**
+     * Calls {@code action} with the index ({@code day * 10 + period}) of every busy slot, in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        long remaining = bits;
+        while (remaining != 0) {
+            action.accept(Long.numberOfTrailingZeros(remaining));
+            remaining &= remaining - 1;
+        }
+    }
+
+    // --- Edges: the engine contract still takes boolean[6][10], and old databases hold '0'/'1' text ---
+
+    public static BusyMask fromMatrix(boolean[][] matrix) {
+        if (matrix == null) return EMPTY;
+        long bits = 0L;
+        for (int d = 0; d < matrix.length && d < DAYS; d++) {
+            for (int p = 0; p < matrix[d].length && p < PERIODS_PER_DAY; p++) {
+                if (matrix[d][p]) bits |= 1L << index(d, p);
+            }
+        }
+        return new BusyMask(bits);
+    }
+
+    public boolean[][] toMatrix() {
+        boolean[][] matrix = new boolean[DAYS][PERIODS_PER_DAY];
+        forEach(i -> matrix[i / PERIODS_PER_DAY][i % PERIODS_PER_DAY] = true);
+        return matrix;
+    }
+
+    /**
+     * Parses the legacy TEXT format: 60 characters, row by row, '1' = busy. Shorter or missing text gives
+     * {@link #EMPTY}, as the old deserializers did.
+     */
+    public static BusyMask fromText(String s) {
+        if (s == null || s.length() < SIZE) return EMPTY;
+        long bits = 0L;
+        for (int i = 0; i < SIZE; i++) {
+            if (s.charAt(i) == '1') bits |= 1L << i;
+        }
+        return new BusyMask(bits);
+    }
+
+    public String toText() {
+        StringBuilder sb = new StringBuilder(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            sb.append((bits & (1L << i)) != 0 ? '1' : '0');
+        }
+        return sb.toString();
+    }
+
+    private static BusyMask sessionMask(int firstPeriod) {
+        long bits = 0L;
+        for (int d = 0; d < DAYS; d++) {
+            for (int p = firstPeriod; p < firstPeriod + PERIODS_PER_SESSION; p++) {
+                bits |= 1L << index(d, p);
+            }
+        }
+        return new BusyMask(bits);
+    }
+}
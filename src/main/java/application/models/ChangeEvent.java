@@ -0,0 +1,26 @@
+package application.models;
+
+/**
+ * A committed write to one row, as published on the {@code ChangeBus}.
+ *
+ * @param entity   one of the {@code EntityVersionRepository} entity names
+ * @param entityId primary key, in the same form as {@link EntityChange#entityId()}; null when one statement touched
+ *                 rows the repository does not know (e.g. "delete all assignments of this class")
+ */
+public record ChangeEvent(
+        String entity,
+        String entityId,
+        Kind kind
+) {
+
+    public enum Kind {
+        INSERT,
+        // Also upserts (ON CONFLICT DO UPDATE), which may have created the row
+        UPDATE,
+        DELETE
+    }
+
+    public boolean isBulk() {
+        return entityId == null;
+    }
+}
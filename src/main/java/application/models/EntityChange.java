@@ -0,0 +1,14 @@
+package application.models;
+
+/**
+ * A row of {@code entity_versions}: the entity was inserted, updated or deleted at {@code version}.
+ *
+ * @param entity   one of the {@code EntityVersionRepository} entity names
+ * @param entityId primary key; {@code gradeId|subjectId} for curricula, the session name for sessions
+ */
+public record EntityChange(
+        String entity,
+        String entityId,
+        long version
+) {
+}
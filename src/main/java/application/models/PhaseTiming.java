@@ -0,0 +1,16 @@
+package application.models;
+
+/**
+ * One measured phase of a schedule generation run.
+ *
+ * @param count items handled in the phase (rows, tasks, bytes, slots), or 0 when not meaningful
+ */
+public record PhaseTiming(
+        String phase,
+        long nanos,
+        long count
+) {
+    public double millis() {
+        return nanos / 1_000_000.0;
+    }
+}
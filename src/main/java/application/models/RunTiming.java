@@ -0,0 +1,144 @@
+package application.models;
+
+import application.diagnostics.GenerationPhaseEvent;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Monotonic (System.nanoTime) timings of one schedule generation run, phase by phase.
+ * <p>
+ * Phases are recorded in order from whichever worker thread runs them and may be read from the FX thread
+ * at any time, hence the synchronization. Each phase is also emitted as a {@link GenerationPhaseEvent} for
+ * flight recordings.
+ */
+public class RunTiming {
+
+    public static final String LOAD = "load";
+    public static final String PREPARE = "prepare";
+    public static final String MAP = "map";
+    public static final String WRITE = "write";
+    public static final String SPAWN = "spawn";
+    public static final String SOLVE = "solve";
+    public static final String PARSE = "parse";
+    public static final String SAVE = "save";
+
+    /**
+     * Every phase in execution order. The in-process engine skips {@link #WRITE} and {@link #SPAWN}.
+     */
+    public static final List<String> PHASES = List.of(LOAD, PREPARE, MAP, WRITE, SPAWN, SOLVE, PARSE, SAVE);
+
+    // Used for progress until a successful run has been recorded
+    private static final Map<String, Double> DEFAULT_EXPECTED_MS = Map.of(
+            LOAD, 300.0, PREPARE, 100.0, MAP, 50.0, WRITE, 50.0,
+            SPAWN, 300.0, SOLVE, 10_000.0, PARSE, 100.0, SAVE, 1_000.0
+    );
+
+    private final String runId = UUID.randomUUID().toString();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startNanos = System.nanoTime();
+    private final List<PhaseTiming> phases = new ArrayList<>();
+
+    private String currentPhase;
+    private long currentStart;
+    private GenerationPhaseEvent currentEvent;
+    private long endNanos = -1;
+
+    public static String label(String phase) {
+        return switch (phase) {
+            case LOAD -> "Tải dữ liệu";
+            case PREPARE -> "Chuẩn bị tác vụ";
+            case MAP -> "Chuyển đổi proto";
+            case WRITE -> "Ghi file đầu vào";
+            case SPAWN -> "Khởi động engine";
+            case SOLVE -> "Giải bài toán";
+            case PARSE -> "Đọc kết quả";
+            case SAVE -> "Lưu CSDL";
+            default -> phase;
+        };
+    }
+
+    public synchronized void begin(String phase) {
+        currentPhase = phase;
+        currentStart = System.nanoTime();
+
+        currentEvent = new GenerationPhaseEvent();
+        currentEvent.runId = runId;
+        currentEvent.phase = phase;
+        currentEvent.begin();
+    }
+
+    /**
+     * Closes the phase opened by {@link #begin(String)}.
+     *
+     * @param count items handled in the phase, or 0
+     */
+    public synchronized void end(long count) {
+        if (currentPhase == null) return;
+        long nanos = System.nanoTime() - currentStart;
+        currentEvent.count = count;
+        currentEvent.commit();
+        currentEvent = null;
+
+        // A phase measured in several steps (reading then converting the output) is kept as one entry
+        if (!phases.isEmpty() && phases.getLast().phase().equals(currentPhase)) {
+            PhaseTiming last = phases.removeLast();
+            phases.add(new PhaseTiming(currentPhase, last.nanos() + nanos, Math.max(last.count(), count)));
+        } else {
+            phases.add(new PhaseTiming(currentPhase, nanos, count));
+        }
+        currentPhase = null;
+    }
+
+    public synchronized void finish() {
+        if (endNanos < 0) endNanos = System.nanoTime();
+    }
+
+    public synchronized List<PhaseTiming> getPhases() {
+        return List.copyOf(phases);
+    }
+
+    public synchronized long getTotalNanos() {
+        return (endNanos < 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    /**
+     * Estimates overall progress in [0, 1] from the phase currently running and how long each phase took
+     * in the previous run. Phases before the current one count as done, skipped ones included, so the value
+     * never goes backwards; the running phase is capped just short of its expected share.
+     */
+    public synchronized double progress(Map<String, Double> expectedMs) {
+        double total = 0;
+        for (String phase : PHASES) total += expected(expectedMs, phase);
+
+        int currentIndex = currentPhase != null ? PHASES.indexOf(currentPhase) : lastRecordedIndex() + 1;
+        double done = 0;
+        for (int i = 0; i < currentIndex && i < PHASES.size(); i++) {
+            done += expected(expectedMs, PHASES.get(i));
+        }
+        if (currentPhase != null) {
+            double share = expected(expectedMs, currentPhase);
+            double elapsed = (System.nanoTime() - currentStart) / 1_000_000.0;
+            done += Math.min(elapsed, share * 0.95);
+        }
+        return total == 0 ? 0 : Math.min(1.0, done / total);
+    }
+
+    private int lastRecordedIndex() {
+        return phases.isEmpty() ? -1 : PHASES.indexOf(phases.getLast().phase());
+    }
+
+    private static double expected(Map<String, Double> expectedMs, String phase) {
+        // A phase missing from a recorded run was skipped (in-process engine), so it weighs nothing
+        Map<String, Double> source = expectedMs.isEmpty() ? DEFAULT_EXPECTED_MS : expectedMs;
+        return source.getOrDefault(phase, 0.0);
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+}
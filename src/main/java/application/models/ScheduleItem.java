@@ -1,6 +1,10 @@
 package application.models;
 
+/**
+ * @param id row id in {@code schedules}, used to move this one lesson
+ */
 public record ScheduleItem(
+        long id,
         String assignmentId,
         String subjectId,
         String classId,
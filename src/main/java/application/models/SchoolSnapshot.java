@@ -0,0 +1,185 @@
+package application.models;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Everything about the school read in one transaction (see {@code RepositoryOrchestrator.loadSnapshot}), with
+ * the lookups consumers keep rebuilding indexed once.
+ * <p>
+ * Lists and indexes are unmodifiable. The model objects themselves are the usual mutable beans; a consumer that
+ * edits one (e.g. before saving it) should treat its snapshot as stale afterwards.
+ */
+public final class SchoolSnapshot {
+
+    private final List<Grade> grades;
+    private final List<Clazz> classes;
+    private final List<Subject> subjects;
+    private final List<Teacher> teachers;
+    private final List<Curriculum> curricula;
+    private final List<Session> sessions;
+    private final List<Assignment> assignments;
+    private final List<ScheduleItem> schedule;
+
+    private final Map<String, Grade> gradeById;
+    private final Map<String, Clazz> classById;
+    private final Map<String, Subject> subjectById;
+    private final Map<String, Teacher> teacherById;
+    private final Map<String, Assignment> assignmentById;
+    private final Map<ESession, Session> sessionByName;
+    // gradeId -> subjectId -> curriculum
+    private final Map<String, Map<String, Curriculum>> curriculumByGrade;
+    private final Map<String, List<Clazz>> classesByGrade;
+    private final Map<String, List<Assignment>> assignmentsByTeacher;
+    private final Map<String, List<Assignment>> assignmentsByClass;
+    private final Map<String, List<ScheduleItem>> scheduleByClass;
+    private final Map<String, List<ScheduleItem>> scheduleByTeacher;
+
+    /**
+     * @param schedule saved timetable, or null if it was not loaded
+     */
+    public SchoolSnapshot(List<Grade> grades, List<Clazz> classes, List<Subject> subjects, List<Teacher> teachers,
+                          List<Curriculum> curricula, List<Session> sessions, List<Assignment> assignments,
+                          List<ScheduleItem> schedule) {
+        this.grades = List.copyOf(grades);
+        this.classes = List.copyOf(classes);
+        this.subjects = List.copyOf(subjects);
+        this.teachers = List.copyOf(teachers);
+        this.curricula = List.copyOf(curricula);
+        this.sessions = List.copyOf(sessions);
+        this.assignments = List.copyOf(assignments);
+        this.schedule = schedule != null ? List.copyOf(schedule) : null;
+
+        this.gradeById = byId(this.grades, Grade::getId);
+        this.classById = byId(this.classes, Clazz::getId);
+        this.subjectById = byId(this.subjects, Subject::getId);
+        this.teacherById = byId(this.teachers, Teacher::getId);
+        this.assignmentById = byId(this.assignments, Assignment::getId);
+
+        Map<ESession, Session> sessionMap = new EnumMap<>(ESession.class);
+        this.sessions.forEach(s -> sessionMap.put(s.getSessionName(), s));
+        this.sessionByName = Collections.unmodifiableMap(sessionMap);
+
+        Map<String, Map<String, Curriculum>> curriculumMap = new HashMap<>();
+        this.curricula.forEach(c -> curriculumMap.computeIfAbsent(c.getGradeId(), k -> new HashMap<>()).put(c.getSubjectId(), c));
+        curriculumMap.replaceAll((k, v) -> Collections.unmodifiableMap(v));
+        this.curriculumByGrade = Collections.unmodifiableMap(curriculumMap);
+
+        this.classesByGrade = groupBy(this.classes, Clazz::getGradeId);
+        this.assignmentsByTeacher = groupBy(this.assignments, Assignment::getTeacherId);
+        this.assignmentsByClass = groupBy(this.assignments, Assignment::getClassId);
+        this.scheduleByClass = this.schedule != null ? groupBy(this.schedule, ScheduleItem::classId) : Map.of();
+        this.scheduleByTeacher = this.schedule != null ? groupBy(this.schedule, ScheduleItem::teacherId) : Map.of();
+    }
+
+    private static <T> Map<String, T> byId(List<T> items, Function<T, String> id) {
+        Map<String, T> map = new HashMap<>(items.size() * 4 / 3 + 1);
+        // First row wins, as with the putIfAbsent maps this replaces
+        items.forEach(item -> map.putIfAbsent(id.apply(item), item));
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static <T> Map<String, List<T>> groupBy(List<T> items, Function<T, String> key) {
+        Map<String, List<T>> map = new HashMap<>();
+        items.forEach(item -> map.computeIfAbsent(key.apply(item), k -> new ArrayList<>()).add(item));
+        map.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        return Collections.unmodifiableMap(map);
+    }
+
+    public List<Grade> getGrades() {
+        return grades;
+    }
+
+    public List<Clazz> getClasses() {
+        return classes;
+    }
+
+    public List<Subject> getSubjects() {
+        return subjects;
+    }
+
+    public List<Teacher> getTeachers() {
+        return teachers;
+    }
+
+    public List<Curriculum> getCurricula() {
+        return curricula;
+    }
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    public List<Assignment> getAssignments() {
+        return assignments;
+    }
+
+    public boolean hasSchedule() {
+        return schedule != null;
+    }
+
+    /**
+     * @throws IllegalStateException if the snapshot was loaded without the schedule
+     */
+    public List<ScheduleItem> getSchedule() {
+        if (schedule == null) throw new IllegalStateException("Snapshot was loaded without the schedule");
+        return schedule;
+    }
+
+    public Grade getGrade(String id) {
+        return gradeById.get(id);
+    }
+
+    public Clazz getClazz(String id) {
+        return classById.get(id);
+    }
+
+    public Subject getSubject(String id) {
+        return subjectById.get(id);
+    }
+
+    public Teacher getTeacher(String id) {
+        return teacherById.get(id);
+    }
+
+    public Assignment getAssignment(String id) {
+        return assignmentById.get(id);
+    }
+
+    public Session getSession(ESession name) {
+        return sessionByName.get(name);
+    }
+
+    public Curriculum getCurriculum(String gradeId, String subjectId) {
+        return curriculumByGrade.getOrDefault(gradeId, Map.of()).get(subjectId);
+    }
+
+    /**
+     * Curriculum of a grade by subject id.
+     */
+    public Map<String, Curriculum> getCurriculumOf(String gradeId) {
+        return curriculumByGrade.getOrDefault(gradeId, Map.of());
+    }
+
+    public List<Clazz> getClassesOf(String gradeId) {
+        return classesByGrade.getOrDefault(gradeId, List.of());
+    }
+
+    public List<Assignment> getAssignmentsOfTeacher(String teacherId) {
+        return assignmentsByTeacher.getOrDefault(teacherId, List.of());
+    }
+
+    public List<Assignment> getAssignmentsOfClass(String classId) {
+        return assignmentsByClass.getOrDefault(classId, List.of());
+    }
+
+    public List<ScheduleItem> getScheduleOfClass(String classId) {
+        getSchedule();
+        return scheduleByClass.getOrDefault(classId, List.of());
+    }
+
+    public List<ScheduleItem> getScheduleOfTeacher(String teacherId) {
+        getSchedule();
+        return scheduleByTeacher.getOrDefault(teacherId, List.of());
+    }
+}
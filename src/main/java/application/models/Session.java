@@ -2,40 +2,15 @@ package application.models;
 
 public class Session {
     private ESession sessionName;
-    private boolean[][] busyMatrix; // 6 days x 10 periods
+    private BusyMask busyMask; // 6 days x 10 periods
 
-    public Session(ESession sessionName, boolean[][] busyMatrix) {
+    public Session(ESession sessionName, BusyMask busyMask) {
         this.sessionName = sessionName;
-        this.busyMatrix = busyMatrix;
+        this.busyMask = busyMask;
     }
 
     public Session(ESession sessionName) {
-        this(sessionName, new boolean[EWeekDay.values().length][10]);
-    }
-
-    public static String serializeBusyMatrix(boolean[][] matrix) {
-        if (matrix == null) return "";
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[i].length; j++) {
-                sb.append(matrix[i][j] ? '1' : '0');
-            }
-        }
-        return sb.toString();
-    }
-
-    public static boolean[][] deserializeBusyMatrix(String s) {
-        boolean[][] matrix = new boolean[EWeekDay.values().length][10];
-        if (s == null || s.length() < EWeekDay.values().length * 10) return matrix;
-        int index = 0;
-        for (int i = 0; i < EWeekDay.values().length; i++) {
-            for (int j = 0; j < 10; j++) {
-                if (index < s.length()) {
-                    matrix[i][j] = s.charAt(index++) == '1';
-                }
-            }
-        }
-        return matrix;
+        this(sessionName, BusyMask.EMPTY);
     }
 
     public ESession getSessionName() {
@@ -46,11 +21,11 @@ public class Session {
         this.sessionName = sessionName;
     }
 
-    public boolean[][] getBusyMatrix() {
-        return busyMatrix;
+    public BusyMask getBusyMask() {
+        return busyMask;
     }
 
-    public void setBusyMatrix(boolean[][] busyMatrix) {
-        this.busyMatrix = busyMatrix;
+    public void setBusyMask(BusyMask busyMask) {
+        this.busyMask = busyMask;
     }
 }
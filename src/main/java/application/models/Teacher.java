@@ -7,43 +7,16 @@ public class Teacher {
     private final ObservableList<Assignment> assignments = FXCollections.observableArrayList();
     private String name;
     private String id;
-    private boolean[][] busyMatrix; // 6 days x 10 periods
+    private BusyMask busyMask; // 6 days x 10 periods
 
     public Teacher(String name, String id) {
-        this.name = name;
-        this.id = id;
-        this.busyMatrix = new boolean[EWeekDay.values().length][10]; // Default false
+        this(name, id, BusyMask.EMPTY);
     }
 
-    public Teacher(String name, String id, boolean[][] busyMatrix) {
+    public Teacher(String name, String id, BusyMask busyMask) {
         this.name = name;
         this.id = id;
-        this.busyMatrix = busyMatrix;
-    }
-
-    public static String serializeBusyMatrix(boolean[][] matrix) {
-        if (matrix == null) return "";
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[i].length; j++) {
-                sb.append(matrix[i][j] ? '1' : '0');
-            }
-        }
-        return sb.toString();
-    }
-
-    public static boolean[][] deserializeBusyMatrix(String s) {
-        boolean[][] matrix = new boolean[EWeekDay.values().length][10];
-        if (s == null || s.length() < EWeekDay.values().length * 10) return matrix;
-        int index = 0;
-        for (int i = 0; i < EWeekDay.values().length; i++) {
-            for (int j = 0; j < 10; j++) {
-                if (index < s.length()) {
-                    matrix[i][j] = s.charAt(index++) == '1';
-                }
-            }
-        }
-        return matrix;
+        this.busyMask = busyMask;
     }
 
     public String getName() {
@@ -62,12 +35,12 @@ public class Teacher {
         this.id = id;
     }
 
-    public boolean[][] getBusyMatrix() {
-        return busyMatrix;
+    public BusyMask getBusyMask() {
+        return busyMask;
     }
 
-    public void setBusyMatrix(boolean[][] busyMatrix) {
-        this.busyMatrix = busyMatrix;
+    public void setBusyMask(BusyMask busyMask) {
+        this.busyMask = busyMask;
     }
 
     public ObservableList<Assignment> getAssignments() {
@@ -1,16 +1,23 @@
 package application.repository;
 
 import application.models.Assignment;
+import application.models.ChangeEvent;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class AssignmentRepository implements IRepository {
     private final IDatabaseHandler databaseHandler;
+    private final ChangeBus changeBus;
 
-    public AssignmentRepository(IDatabaseHandler databaseHandler) {
+    public AssignmentRepository(IDatabaseHandler databaseHandler, ChangeBus changeBus) {
         this.databaseHandler = databaseHandler;
+        this.changeBus = changeBus;
     }
 
     @Override
@@ -53,6 +60,7 @@ public class AssignmentRepository implements IRepository {
             if (rows != 1) {
                 throw new IllegalStateException("Insert assignment failed, rows=" + rows);
             }
+            changeBus.publish(EntityVersionRepository.ASSIGNMENT, assignment.getId(), ChangeEvent.Kind.INSERT);
 
             return assignment;
         } catch (SQLException e) {
@@ -61,38 +69,20 @@ public class AssignmentRepository implements IRepository {
     }
 
     public void saveAll(List<Assignment> assignments) {
-        // Won't cause duplicate since id is UUID
-        String sql = "INSERT OR REPLACE INTO assignments (id, subject_id, class_id, teacher_id) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO assignments (id, subject_id, class_id, teacher_id) VALUES (?, ?, ?, ?) "
+                + "ON CONFLICT(id) DO UPDATE SET subject_id = excluded.subject_id, class_id = excluded.class_id, "
+                + "teacher_id = excluded.teacher_id";
 
-        try (Connection conn = databaseHandler.getConnection()) {
-            // Turn off auto commit for manual transaction -> faster speed
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                for (Assignment assignment : assignments) {
-                    ps.setString(1, assignment.getId());
-                    ps.setString(2, assignment.getSubjectId());
-                    ps.setString(3, assignment.getClassId());
-                    ps.setString(4, assignment.getTeacherId());
-
-                    ps.addBatch();
-                }
-
-                // execute all
-                ps.executeBatch();
-
-                // commit transaction
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw new RuntimeException("Batch save failed", e);
-            } finally {
-                // back to default
-                conn.setAutoCommit(true);
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            for (Assignment assignment : assignments) {
+                ps.setString(1, assignment.getId());
+                ps.setString(2, assignment.getSubjectId());
+                ps.setString(3, assignment.getClassId());
+                ps.setString(4, assignment.getTeacherId());
+                ps.addBatch();
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
+        assignments.forEach(a -> changeBus.publish(EntityVersionRepository.ASSIGNMENT, a.getId(), ChangeEvent.Kind.UPDATE));
     }
 
     public List<Assignment> getByTeacherId(String id) {
@@ -119,6 +109,28 @@ public class AssignmentRepository implements IRepository {
         }
     }
 
+    public Assignment getById(String id) {
+        String sql = "SELECT * FROM assignments WHERE id = ?";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            ps.setString(1, id);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                return new Assignment(
+                        rs.getString("id"),
+                        rs.getString("teacher_id"),
+                        rs.getString("subject_id"),
+                        rs.getString("class_id")
+                );
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public Assignment getByClassAndSubject(String classId, String subjectId) {
         String sql = "SELECT * FROM assignments WHERE class_id = ? AND subject_id = ?;";
         try (
@@ -142,6 +154,29 @@ public class AssignmentRepository implements IRepository {
         }
     }
 
+    public boolean deleteByClassAndSubject(String classId, String subjectId) {
+        // At most one row per cell: its id is published, so views patch that row instead of reloading
+        String sql = "DELETE FROM assignments WHERE class_id = ? AND subject_id = ? RETURNING id";
+        List<String> deleted = new ArrayList<>();
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            ps.setString(1, classId);
+            ps.setString(2, subjectId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    deleted.add(rs.getString("id"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        // Published once the statement is done, i.e. committed outside a transaction
+        deleted.forEach(id -> changeBus.publish(EntityVersionRepository.ASSIGNMENT, id, ChangeEvent.Kind.DELETE));
+        return !deleted.isEmpty();
+    }
+
     public boolean deleteByClassId(String classId) {
         String sql = "DELETE FROM assignments WHERE class_id = ?";
         try (
@@ -149,7 +184,7 @@ public class AssignmentRepository implements IRepository {
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, classId);
-            return ps.executeUpdate() > 0;
+            return publishBulkDelete(ps.executeUpdate());
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -162,7 +197,7 @@ public class AssignmentRepository implements IRepository {
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, teacherId);
-            return ps.executeUpdate() > 0;
+            return publishBulkDelete(ps.executeUpdate());
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -175,24 +210,52 @@ public class AssignmentRepository implements IRepository {
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, id);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) changeBus.publish(EntityVersionRepository.ASSIGNMENT, id, ChangeEvent.Kind.DELETE);
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Deletes the given assignments with one batched statement, in one transaction.
+     */
+    public void deleteByIds(Collection<String> ids) {
+        if (ids.isEmpty()) return;
+        String sql = "DELETE FROM assignments WHERE id = ?";
+        List<String> batch = List.copyOf(ids);
+
+        int[] rows = BatchStatement.execute(databaseHandler, sql, "Batch delete failed", ps -> {
+            for (String id : batch) {
+                ps.setString(1, id);
+                ps.addBatch();
+            }
+        });
+        for (int i = 0; i < rows.length; i++) {
+            // Ids that were never saved delete nothing
+            if (rows[i] > 0) changeBus.publish(EntityVersionRepository.ASSIGNMENT, batch.get(i), ChangeEvent.Kind.DELETE);
+        }
+    }
+
     public void deleteAll() {
         String sql = "DELETE FROM assignments";
         try (
                 Connection conn = databaseHandler.getConnection();
                 Statement stmt = conn.createStatement()
         ) {
-            stmt.executeUpdate(sql);
+            publishBulkDelete(stmt.executeUpdate(sql));
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Deletes of a whole class, teacher or table: the ids are not published, subscribers reload what they show
+    private boolean publishBulkDelete(int rows) {
+        if (rows > 0) changeBus.publish(EntityVersionRepository.ASSIGNMENT, null, ChangeEvent.Kind.DELETE);
+        return rows > 0;
+    }
+
     public List<Assignment> getAll() {
         String sql = "SELECT * FROM assignments";
         List<Assignment> assignments = new ArrayList<>();
@@ -216,4 +279,78 @@ public class AssignmentRepository implements IRepository {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+
+    // Periods per week of each assignment come from the curriculum of its class's grade
+    private static final String PERIODS_PER_TEACHER_SQL = "SELECT a.teacher_id, SUM(c.periods_per_week) AS periods"
+            + " FROM assignments a"
+            + " JOIN classes cl ON cl.id = a.class_id"
+            + " JOIN curriculums c ON c.grade_id = cl.grade_id AND c.subject_id = a.subject_id";
+
+    /**
+     * Weekly periods of every teacher that has assignments, in one aggregate query.
+     */
+    public Map<String, Integer> getPeriodsPerTeacher() {
+        String sql = PERIODS_PER_TEACHER_SQL + " GROUP BY a.teacher_id";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)
+        ) {
+            return readPeriods(rs);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Weekly periods of the given teachers; teachers without periods are missing from the result.
+     */
+    public Map<String, Integer> getPeriodsOfTeachers(Collection<String> teacherIds) {
+        if (teacherIds.isEmpty()) return new HashMap<>();
+        String sql = PERIODS_PER_TEACHER_SQL
+                + " WHERE a.teacher_id IN (" + String.join(", ", Collections.nCopies(teacherIds.size(), "?")) + ")"
+                + " GROUP BY a.teacher_id";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            int i = 1;
+            for (String id : teacherIds) {
+                ps.setString(i++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return readPeriods(rs);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, Integer> readPeriods(ResultSet rs) throws SQLException {
+        Map<String, Integer> periods = new HashMap<>();
+        while (rs.next()) {
+            periods.put(rs.getString("teacher_id"), rs.getInt("periods"));
+        }
+        return periods;
+    }
+
+    /**
+     * Teacher id of every assignment, by assignment id.
+     */
+    public Map<String, String> getTeacherIdsByAssignment() {
+        String sql = "SELECT id, teacher_id FROM assignments";
+        Map<String, String> teacherIds = new HashMap<>();
+        try (
+                Connection conn = databaseHandler.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)
+        ) {
+            while (rs.next()) {
+                teacherIds.put(rs.getString("id"), rs.getString("teacher_id"));
+            }
+            return teacherIds;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
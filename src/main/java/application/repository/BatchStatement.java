@@ -0,0 +1,48 @@
+package application.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Runs one prepared statement over many rows as a JDBC batch, in one transaction: committed as a whole, or rolled
+ * back and rethrown. Inside an orchestrator transaction the commit and rollback are left to the outer scope.
+ */
+class BatchStatement {
+
+    private BatchStatement() {
+    }
+
+    @FunctionalInterface
+    interface Rows {
+        /**
+         * Binds the parameters of each row and calls {@link PreparedStatement#addBatch()} once per row.
+         */
+        void add(PreparedStatement ps) throws SQLException;
+    }
+
+    /**
+     * @param failure message of the exception thrown when the batch is rolled back
+     * @return affected row count of each batched row, in the order they were added
+     */
+    static int[] execute(IDatabaseHandler databaseHandler, String sql, String failure, Rows rows) {
+        try (Connection conn = databaseHandler.getConnection()) {
+            // One transaction for the whole batch
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                rows.add(ps);
+                int[] counts = ps.executeBatch();
+                conn.commit();
+                return counts;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new RuntimeException(failure, e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
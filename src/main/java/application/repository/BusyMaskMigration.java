@@ -0,0 +1,67 @@
+package application.repository;
+
+import application.models.BusyMask;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Moves a table from the legacy 60-char '0'/'1' TEXT availability column to an INTEGER {@link BusyMask} column.
+ * Runs on every start and does nothing once the table is migrated.
+ */
+class BusyMaskMigration {
+
+    private BusyMaskMigration() {
+    }
+
+    static void migrate(Connection conn, String table, String keyColumn, String textColumn, String maskColumn) throws SQLException {
+        Set<String> columns = columnsOf(conn, table);
+        if (!columns.contains(textColumn)) return;
+
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            if (!columns.contains(maskColumn)) {
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + maskColumn + " INTEGER NOT NULL DEFAULT 0");
+            }
+
+            String select = "SELECT " + keyColumn + ", " + textColumn + " FROM " + table + " WHERE " + textColumn + " IS NOT NULL";
+            String update = "UPDATE " + table + " SET " + maskColumn + " = ? WHERE " + keyColumn + " = ?";
+            int migrated = 0;
+            try (
+                    ResultSet rs = stmt.executeQuery(select);
+                    PreparedStatement ps = conn.prepareStatement(update)
+            ) {
+                while (rs.next()) {
+                    ps.setLong(1, BusyMask.fromText(rs.getString(2)).bits());
+                    ps.setString(2, rs.getString(1));
+                    ps.addBatch();
+                    migrated++;
+                }
+                ps.executeBatch();
+            }
+
+            stmt.execute("ALTER TABLE " + table + " DROP COLUMN " + textColumn);
+            conn.commit();
+            System.out.println("Migrated " + migrated + " rows of " + table + "." + textColumn + " to " + maskColumn);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static Set<String> columnsOf(Connection conn, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")
+        ) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,62 @@
+package application.repository;
+
+import application.models.ChangeEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tells views and caches which rows the repositories wrote, so they can patch those rows instead of reloading
+ * whole tables.
+ * <p>
+ * Events are delivered only once committed: a write outside a transaction is delivered as soon as the repository
+ * method returns, the writes of a {@code RepositoryOrchestrator.inTransaction} block together after its commit, and
+ * those of a rolled-back block never. Subscribers run synchronously on the writing thread (the FX thread, the
+ * write-behind thread, ...) and must hand UI work over to the FX thread themselves.
+ */
+public class ChangeBus {
+
+    private final List<Consumer<List<ChangeEvent>>> subscribers = new CopyOnWriteArrayList<>();
+    // Events of the write transaction open on this thread, if any
+    private final ThreadLocal<List<ChangeEvent>> pending = new ThreadLocal<>();
+
+    /**
+     * @param subscriber receives the events of one commit, in write order
+     * @return call to unsubscribe
+     */
+    public Runnable subscribe(Consumer<List<ChangeEvent>> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    void publish(String entity, String entityId, ChangeEvent.Kind kind) {
+        ChangeEvent event = new ChangeEvent(entity, entityId, kind);
+        List<ChangeEvent> transaction = pending.get();
+        if (transaction != null) transaction.add(event);
+        else deliver(List.of(event));
+    }
+
+    void beginTransaction() {
+        pending.set(new ArrayList<>());
+    }
+
+    void endTransaction(boolean committed) {
+        List<ChangeEvent> events = pending.get();
+        pending.remove();
+        if (committed && events != null && !events.isEmpty()) deliver(List.copyOf(events));
+    }
+
+    private void deliver(List<ChangeEvent> events) {
+        for (Consumer<List<ChangeEvent>> subscriber : subscribers) {
+            try {
+                subscriber.accept(events);
+            } catch (RuntimeException e) {
+                // The write is committed already; a failing subscriber must not look like a failed save
+                System.err.println("Change subscriber failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
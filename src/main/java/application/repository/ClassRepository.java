@@ -1,5 +1,6 @@
 package application.repository;
 
+import application.models.ChangeEvent;
 import application.models.Clazz;
 
 import java.sql.*;
@@ -8,9 +9,11 @@ import java.util.List;
 
 public class ClassRepository implements IRepository {
     private final IDatabaseHandler databaseHandler;
+    private final ChangeBus changeBus;
 
-    public ClassRepository(IDatabaseHandler databaseHandler) {
+    public ClassRepository(IDatabaseHandler databaseHandler, ChangeBus changeBus) {
         this.databaseHandler = databaseHandler;
+        this.changeBus = changeBus;
     }
 
     @Override
@@ -112,7 +115,9 @@ public class ClassRepository implements IRepository {
             ps.setString(1, c.getId());
             ps.setString(2, c.getClassName());
             ps.setString(3, c.getGradeId());
-            return ps.executeUpdate() > 0;
+            boolean saved = ps.executeUpdate() > 0;
+            if (saved) changeBus.publish(EntityVersionRepository.CLASS, c.getId(), ChangeEvent.Kind.UPDATE);
+            return saved;
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -126,10 +131,26 @@ public class ClassRepository implements IRepository {
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, id);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) changeBus.publish(EntityVersionRepository.CLASS, id, ChangeEvent.Kind.DELETE);
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    public void saveAll(List<Clazz> classes) {
+        String sql = "INSERT INTO classes (id, name, grade_id) VALUES (?, ?, ?) " +
+                "ON CONFLICT(id) DO UPDATE SET name = excluded.name, grade_id = excluded.grade_id;";
+
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            for (Clazz c : classes) {
+                ps.setString(1, c.getId());
+                ps.setString(2, c.getClassName());
+                ps.setString(3, c.getGradeId());
+                ps.addBatch();
+            }
+        });
+        classes.forEach(c -> changeBus.publish(EntityVersionRepository.CLASS, c.getId(), ChangeEvent.Kind.UPDATE));
+    }
 }
@@ -1,5 +1,6 @@
 package application.repository;
 
+import application.models.ChangeEvent;
 import application.models.Curriculum;
 
 import java.sql.*;
@@ -8,9 +9,11 @@ import java.util.List;
 
 public class CurriculumRepository implements IRepository {
     private final IDatabaseHandler databaseHandler;
+    private final ChangeBus changeBus;
 
-    public CurriculumRepository(IDatabaseHandler databaseHandler) {
+    public CurriculumRepository(IDatabaseHandler databaseHandler, ChangeBus changeBus) {
         this.databaseHandler = databaseHandler;
+        this.changeBus = changeBus;
     }
 
     @Override
@@ -83,6 +86,33 @@ public class CurriculumRepository implements IRepository {
         return null;
     }
 
+    /**
+     * The curriculum rows of one grade, in one query; subjects without a row are simply missing.
+     */
+    public List<Curriculum> getByGrade(String gradeId) {
+        String sql = "SELECT * FROM curriculums WHERE grade_id = ?";
+        List<Curriculum> list = new ArrayList<>();
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            ps.setString(1, gradeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new Curriculum(
+                            rs.getString("grade_id"),
+                            rs.getString("subject_id"),
+                            rs.getInt("periods_per_week"),
+                            rs.getBoolean("should_be_doubled")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return list;
+    }
+
     public boolean save(Curriculum curriculum) {
         String sql = "INSERT INTO curriculums (subject_id, grade_id, periods_per_week, should_be_doubled)"
                 + "VALUES (?, ?, ?, ?)"
@@ -98,11 +128,37 @@ public class CurriculumRepository implements IRepository {
             ps.setString(2, curriculum.getGradeId());
             ps.setInt(3, curriculum.getPeriodsPerWeek());
             ps.setBoolean(4, curriculum.isShouldBeDoubled());
-            return ps.executeUpdate() == 1;
+            boolean saved = ps.executeUpdate() == 1;
+            if (saved) changeBus.publish(EntityVersionRepository.CURRICULUM, key(curriculum), ChangeEvent.Kind.UPDATE);
+            return saved;
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    public void saveAll(List<Curriculum> curriculums) {
+        String sql = "INSERT INTO curriculums (subject_id, grade_id, periods_per_week, should_be_doubled)"
+                + "VALUES (?, ?, ?, ?)"
+                + "ON CONFLICT(subject_id, grade_id) "
+                + "DO UPDATE SET "
+                + "periods_per_week = excluded.periods_per_week, "
+                + "should_be_doubled = excluded.should_be_doubled;";
+
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            for (Curriculum curriculum : curriculums) {
+                ps.setString(1, curriculum.getSubjectId());
+                ps.setString(2, curriculum.getGradeId());
+                ps.setInt(3, curriculum.getPeriodsPerWeek());
+                ps.setBoolean(4, curriculum.isShouldBeDoubled());
+                ps.addBatch();
+            }
+        });
+        curriculums.forEach(c -> changeBus.publish(EntityVersionRepository.CURRICULUM, key(c), ChangeEvent.Kind.UPDATE));
+    }
+
+    // Same id as the version log stamps curricula with
+    private static String key(Curriculum curriculum) {
+        return curriculum.getGradeId() + "|" + curriculum.getSubjectId();
+    }
 }
@@ -0,0 +1,127 @@
+package application.repository;
+
+import application.models.EntityChange;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Change stamps kept by SQLite triggers. Every insert, update or delete on a table that feeds the scheduler bumps
+ * a global counter and records it against the touched row, so readers can ask "what changed since version N"
+ * without the repositories' write methods having to cooperate.
+ */
+public class EntityVersionRepository implements IRepository {
+
+    public static final String TEACHER = "teacher";
+    public static final String CLASS = "class";
+    public static final String GRADE = "grade";
+    public static final String CURRICULUM = "curriculum";
+    public static final String SESSION = "session";
+    public static final String ASSIGNMENT = "assignment";
+
+    // entity, table, key expression over a row alias (NEW / OLD)
+    private static final String[][] TRACKED = {
+            {TEACHER, "teachers", "%s.id"},
+            {CLASS, "classes", "%s.id"},
+            {GRADE, "grades", "%s.id"},
+            {CURRICULUM, "curriculums", "%1$s.grade_id || '|' || %1$s.subject_id"},
+            {SESSION, "sessions", "%s.sessionName"},
+            {ASSIGNMENT, "assignments", "%s.id"},
+    };
+
+    private final IDatabaseHandler databaseHandler;
+
+    public EntityVersionRepository(IDatabaseHandler databaseHandler) {
+        this.databaseHandler = databaseHandler;
+    }
+
+    /**
+     * Must run after the tracked tables exist.
+     */
+    @Override
+    public void initDb() {
+        try (
+                Connection conn = databaseHandler.getConnection();
+                Statement stmt = conn.createStatement()
+        ) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS change_seq ("
+                    + "id INTEGER PRIMARY KEY CHECK (id = 1),"
+                    + "value INTEGER NOT NULL"
+                    + ");");
+            stmt.execute("INSERT OR IGNORE INTO change_seq (id, value) VALUES (1, 0)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS entity_versions ("
+                    + "entity TEXT NOT NULL,"
+                    + "entity_id TEXT NOT NULL,"
+                    + "version INTEGER NOT NULL,"
+                    + "PRIMARY KEY (entity, entity_id)"
+                    + ");");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_entity_versions_version ON entity_versions(version)");
+
+            for (String[] tracked : TRACKED) {
+                String entity = tracked[0];
+                String table = tracked[1];
+                String newKey = String.format(tracked[2], "NEW");
+                String oldKey = String.format(tracked[2], "OLD");
+
+                stmt.execute(trigger(table + "_ai", "AFTER INSERT ON " + table, entity, newKey));
+                // An update may change the key itself, so both the old and the new key are stamped
+                stmt.execute(trigger(table + "_au", "AFTER UPDATE ON " + table, entity, oldKey, newKey));
+                stmt.execute(trigger(table + "_ad", "AFTER DELETE ON " + table, entity, oldKey));
+            }
+            System.out.println("Table entity_versions created successfully");
+        } catch (SQLException e) {
+            System.out.println("Error while creating entity_versions db" + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String trigger(String name, String event, String entity, String... keys) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CREATE TRIGGER IF NOT EXISTS trg_version_").append(name).append(' ').append(event).append(" BEGIN ");
+        sb.append("UPDATE change_seq SET value = value + 1 WHERE id = 1; ");
+        for (String key : keys) {
+            // Delete + insert rather than INSERT OR REPLACE: the outer statement's conflict policy would override it
+            sb.append("DELETE FROM entity_versions WHERE entity = '").append(entity).append("' AND entity_id = ").append(key).append("; ");
+            sb.append("INSERT INTO entity_versions (entity, entity_id, version) ")
+                    .append("SELECT '").append(entity).append("', ").append(key).append(", value FROM change_seq WHERE id = 1; ");
+        }
+        sb.append("END;");
+        return sb.toString();
+    }
+
+    public long getCurrentVersion() {
+        String sql = "SELECT value FROM change_seq WHERE id = 1";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                Statement stmt = conn.createStatement()
+        ) {
+            ResultSet rs = stmt.executeQuery(sql);
+            return rs.next() ? rs.getLong("value") : 0L;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Entities stamped after {@code fromExclusive} and up to {@code toInclusive}, oldest first.
+     */
+    public List<EntityChange> getChanges(long fromExclusive, long toInclusive) {
+        String sql = "SELECT entity, entity_id, version FROM entity_versions WHERE version > ? AND version <= ? ORDER BY version";
+        List<EntityChange> changes = new ArrayList<>();
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            ps.setLong(1, fromExclusive);
+            ps.setLong(2, toInclusive);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                changes.add(new EntityChange(rs.getString("entity"), rs.getString("entity_id"), rs.getLong("version")));
+            }
+            return changes;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package application.repository;
 
+import application.models.ChangeEvent;
 import application.models.ESession;
 import application.models.Grade;
 import application.models.Session;
@@ -10,9 +11,11 @@ import java.util.List;
 
 public class GradeRepository implements IRepository {
     private final IDatabaseHandler databaseHandler;
+    private final ChangeBus changeBus;
 
-    public GradeRepository(IDatabaseHandler databaseHandler) {
+    public GradeRepository(IDatabaseHandler databaseHandler, ChangeBus changeBus) {
         this.databaseHandler = databaseHandler;
+        this.changeBus = changeBus;
     }
 
     @Override
@@ -45,7 +48,7 @@ public class GradeRepository implements IRepository {
         ) {
             ResultSet rs = stmt.executeQuery(sql);
             while (rs.next()) {
-                Session session = new Session(ESession.valueOf(rs.getString("session")), new boolean[6][10]);
+                Session session = new Session(ESession.valueOf(rs.getString("session")));
 
                 Grade g = new Grade(
                         rs.getString("id"),
@@ -72,7 +75,7 @@ public class GradeRepository implements IRepository {
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
 
-                Session session = new Session(ESession.valueOf(rs.getString("session")), new boolean[6][10]);
+                Session session = new Session(ESession.valueOf(rs.getString("session")));
 
                 return new Grade(
                         rs.getString("id"),
@@ -97,7 +100,7 @@ public class GradeRepository implements IRepository {
             ps.setInt(1, level);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                Session session = new Session(ESession.valueOf(rs.getString("session")), new boolean[6][10]);
+                Session session = new Session(ESession.valueOf(rs.getString("session")));
                 return new Grade(
                         rs.getString("id"),
                         rs.getString("name"),
@@ -123,7 +126,9 @@ public class GradeRepository implements IRepository {
             ps.setString(2, grade.getName());
             ps.setInt(3, grade.getLevel());
             ps.setString(4, grade.getSession().getSessionName().toString());
-            return ps.executeUpdate() > 0;
+            boolean saved = ps.executeUpdate() > 0;
+            if (saved) changeBus.publish(EntityVersionRepository.GRADE, grade.getId(), ChangeEvent.Kind.UPDATE);
+            return saved;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -136,7 +141,9 @@ public class GradeRepository implements IRepository {
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, id);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) changeBus.publish(EntityVersionRepository.GRADE, id, ChangeEvent.Kind.DELETE);
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -180,4 +187,20 @@ public class GradeRepository implements IRepository {
             throw new RuntimeException(e);
         }
     }
+
+    public void saveAll(List<Grade> grades) {
+        String sql = "INSERT INTO grades (id, name, level, session) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(id) DO UPDATE SET name = excluded.name, level = excluded.level, session = excluded.session;";
+
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            for (Grade grade : grades) {
+                ps.setString(1, grade.getId());
+                ps.setString(2, grade.getName());
+                ps.setInt(3, grade.getLevel());
+                ps.setString(4, grade.getSession().getSessionName().toString());
+                ps.addBatch();
+            }
+        });
+        grades.forEach(g -> changeBus.publish(EntityVersionRepository.GRADE, g.getId(), ChangeEvent.Kind.UPDATE));
+    }
 }
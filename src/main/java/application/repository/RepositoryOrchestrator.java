@@ -1,10 +1,20 @@
 package application.repository;
 
+import application.models.Assignment;
 import application.models.ESession;
+import application.models.SchoolSnapshot;
 import application.models.Session;
+import application.models.Teacher;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
 
 public class RepositoryOrchestrator {
 
+    private final ChangeBus changeBus;
+    private final ScopedDatabaseHandler scopedHandler;
+
     private final AssignmentRepository assignmentRepository;
     private final ClassRepository classRepository;
     private final CurriculumRepository curriculumRepository;
@@ -13,16 +23,26 @@ public class RepositoryOrchestrator {
     private final TeacherRepository teacherRepository;
     private final ScheduleRepository scheduleRepository;
     private final SessionRepository sessionRepository;
+    private final RunTimingRepository runTimingRepository;
+    private final EntityVersionRepository entityVersionRepository;
+
+    private final WriteBehindWriter writeBehind;
 
     public RepositoryOrchestrator(IDatabaseHandler databaseHandler) {
-        assignmentRepository = new AssignmentRepository(databaseHandler);
-        classRepository = new ClassRepository(databaseHandler);
-        curriculumRepository = new CurriculumRepository(databaseHandler);
-        gradeRepository = new GradeRepository(databaseHandler);
-        subjectRepository = new SubjectRepository(databaseHandler);
-        teacherRepository = new TeacherRepository(databaseHandler);
-        scheduleRepository = new ScheduleRepository(databaseHandler);
-        sessionRepository = new SessionRepository(databaseHandler);
+        // All repositories go through the scoped handler so that they can join a transaction opened here
+        changeBus = new ChangeBus();
+        scopedHandler = new ScopedDatabaseHandler(databaseHandler, changeBus);
+        assignmentRepository = new AssignmentRepository(scopedHandler, changeBus);
+        classRepository = new ClassRepository(scopedHandler, changeBus);
+        curriculumRepository = new CurriculumRepository(scopedHandler, changeBus);
+        gradeRepository = new GradeRepository(scopedHandler, changeBus);
+        subjectRepository = new SubjectRepository(scopedHandler);
+        teacherRepository = new TeacherRepository(scopedHandler, changeBus);
+        scheduleRepository = new ScheduleRepository(scopedHandler);
+        sessionRepository = new SessionRepository(scopedHandler, changeBus);
+        runTimingRepository = new RunTimingRepository(scopedHandler);
+        entityVersionRepository = new EntityVersionRepository(scopedHandler);
+        writeBehind = new WriteBehindWriter(this);
     }
 
     public void initAllDb() {
@@ -34,7 +54,7 @@ public class RepositoryOrchestrator {
         for (ESession session : ESession.values()) {
             Session sessionInDb = sessionRepository.getByName(session);
             if (sessionInDb == null) {
-                Session s = new Session(session, new boolean[6][5]);
+                Session s = new Session(session);
                 sessionRepository.save(s);
             }
         }
@@ -49,6 +69,61 @@ public class RepositoryOrchestrator {
         curriculumRepository.initDb();
         assignmentRepository.initDb();
         scheduleRepository.initDb();
+
+        runTimingRepository.initDb();
+
+        // Triggers on all the tables above
+        entityVersionRepository.initDb();
+    }
+
+    /**
+     * Loads the whole school in one read transaction, so every list reflects the same state of the database.
+     * Queued write-behind edits are flushed first, so a view always reads what was edited elsewhere.
+     *
+     * @param withSchedule also load the saved timetable
+     */
+    public SchoolSnapshot loadSnapshot(boolean withSchedule) {
+        writeBehind.flush();
+        return inReadTransaction(() -> new SchoolSnapshot(
+                gradeRepository.getAll(),
+                classRepository.getAll(),
+                subjectRepository.getAll(),
+                teacherRepository.getAll(),
+                curriculumRepository.getAll(),
+                sessionRepository.getAll(),
+                assignmentRepository.getAll(),
+                withSchedule ? scheduleRepository.getAll() : null
+        ));
+    }
+
+    /**
+     * Saves a teacher with its assignments in one transaction: the teacher row, then the removed assignments and
+     * the new or changed ones, each as one batched statement. Nothing is saved if any step fails.
+     *
+     * @param assignments          assignments to insert or overwrite
+     * @param removedAssignmentIds assignments to delete; ids that were never saved are ignored
+     */
+    public void saveTeacher(Teacher teacher, List<Assignment> assignments, Collection<String> removedAssignmentIds) {
+        inTransaction(() -> {
+            teacherRepository.save(teacher);
+            assignmentRepository.deleteByIds(removedAssignmentIds);
+            if (!assignments.isEmpty()) assignmentRepository.saveAll(assignments);
+            return null;
+        });
+    }
+
+    /**
+     * Runs repository calls on one connection in one read transaction.
+     */
+    public <T> T inReadTransaction(Supplier<T> work) {
+        return scopedHandler.inReadTransaction(work);
+    }
+
+    /**
+     * Runs repository calls on one connection in one write transaction, rolled back if {@code work} throws.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return scopedHandler.inTransaction(work);
     }
 
     public AssignmentRepository getAssignmentRepository() {
@@ -82,4 +157,26 @@ public class RepositoryOrchestrator {
     public SessionRepository getSessionRepository() {
         return sessionRepository;
     }
+
+    public RunTimingRepository getRunTimingRepository() {
+        return runTimingRepository;
+    }
+
+    public EntityVersionRepository getEntityVersionRepository() {
+        return entityVersionRepository;
+    }
+
+    /**
+     * Committed writes of the repositories that feed the scheduler (the same entities as the version log).
+     */
+    public ChangeBus getChangeBus() {
+        return changeBus;
+    }
+
+    /**
+     * Shared writer for edits saved in the background; one thread keeps them in order across views.
+     */
+    public WriteBehindWriter getWriteBehind() {
+        return writeBehind;
+    }
 }
@@ -0,0 +1,93 @@
+package application.repository;
+
+import application.models.PhaseTiming;
+import application.models.RunTiming;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RunTimingRepository implements IRepository {
+    private final IDatabaseHandler databaseHandler;
+
+    public RunTimingRepository(IDatabaseHandler databaseHandler) {
+        this.databaseHandler = databaseHandler;
+    }
+
+    @Override
+    public void initDb() {
+        // One row per phase of a run; the pseudo phase "total" holds the wall time of the whole run
+        String sql = "CREATE TABLE IF NOT EXISTS run_timings ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "run_id TEXT NOT NULL,"
+                + "started_at TEXT NOT NULL,"
+                + "status TEXT NOT NULL,"
+                + "phase TEXT NOT NULL,"
+                + "phase_order INTEGER NOT NULL,"
+                + "duration_ms REAL NOT NULL,"
+                + "item_count INTEGER NOT NULL"
+                + ");";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                Statement stmt = conn.createStatement()
+        ) {
+            stmt.execute(sql);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_run_timings_run ON run_timings(run_id)");
+            System.out.println("Table run_timings created successfully");
+        } catch (SQLException e) {
+            System.out.println("Error while creating run_timings db" + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void save(RunTiming run, String status) {
+        String sql = "INSERT INTO run_timings (run_id, started_at, status, phase, phase_order, duration_ms, item_count) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        List<PhaseTiming> phases = run.getPhases();
+
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            int order = 0;
+            for (PhaseTiming phase : phases) {
+                bind(ps, run, status, phase.phase(), order++, phase.millis(), phase.count());
+                ps.addBatch();
+            }
+            bind(ps, run, status, "total", order, run.getTotalNanos() / 1_000_000.0, 0);
+            ps.addBatch();
+        });
+    }
+
+    /**
+     * Phase durations of the most recent successful run, used to weight the progress bar.
+     * Empty when no run has succeeded yet.
+     */
+    public Map<String, Double> getLastSuccessfulDurations() {
+        String sql = "SELECT phase, duration_ms FROM run_timings WHERE run_id = ("
+                + "SELECT run_id FROM run_timings WHERE status = 'SUCCESS' ORDER BY id DESC LIMIT 1"
+                + ") AND phase <> 'total'";
+        Map<String, Double> durations = new HashMap<>();
+        try (
+                Connection conn = databaseHandler.getConnection();
+                Statement stmt = conn.createStatement()
+        ) {
+            ResultSet rs = stmt.executeQuery(sql);
+            while (rs.next()) {
+                durations.put(rs.getString("phase"), rs.getDouble("duration_ms"));
+            }
+            return durations;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void bind(PreparedStatement ps, RunTiming run, String status, String phase, int order,
+                      double durationMs, long count) throws SQLException {
+        ps.setString(1, run.getRunId());
+        ps.setString(2, run.getStartedAt().toString());
+        ps.setString(3, status);
+        ps.setString(4, phase);
+        ps.setInt(5, order);
+        ps.setDouble(6, durationMs);
+        ps.setLong(7, count);
+    }
+}
@@ -67,6 +67,25 @@ public class ScheduleRepository implements IRepository {
         }
     }
 
+    /**
+     * Moves one lesson; a manual edit touches a single row instead of regenerating the schedule.
+     */
+    public boolean updateSlot(long id, EWeekDay day, ESession session, int period) {
+        String sql = "UPDATE schedules SET day = ?, session = ?, period = ? WHERE id = ?";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            ps.setString(1, day.name());
+            ps.setString(2, session.name());
+            ps.setInt(3, period);
+            ps.setLong(4, id);
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void deleteAll() {
         String sql = "DELETE FROM schedules";
         try (
@@ -80,7 +99,7 @@ public class ScheduleRepository implements IRepository {
     }
 
     public List<ScheduleItem> getByClassId(String classId) {
-        String sql = "SELECT s.assignment_id, s.day, s.session, s.period, a.subject_id, a.class_id, a.teacher_id " +
+        String sql = "SELECT s.id, s.assignment_id, s.day, s.session, s.period, a.subject_id, a.class_id, a.teacher_id " +
                 "FROM schedules s " +
                 "JOIN assignments a ON s.assignment_id = a.id " +
                 "WHERE a.class_id = ?";
@@ -88,23 +107,34 @@ public class ScheduleRepository implements IRepository {
     }
 
     public List<ScheduleItem> getByTeacherId(String teacherId) {
-        String sql = "SELECT s.assignment_id, s.day, s.session, s.period, a.subject_id, a.class_id, a.teacher_id " +
+        String sql = "SELECT s.id, s.assignment_id, s.day, s.session, s.period, a.subject_id, a.class_id, a.teacher_id " +
                 "FROM schedules s " +
                 "JOIN assignments a ON s.assignment_id = a.id " +
                 "WHERE a.teacher_id = ?";
         return getScheduleItems(sql, teacherId);
     }
 
+    public List<ScheduleItem> getAll() {
+        String sql = "SELECT s.id, s.assignment_id, s.day, s.session, s.period, a.subject_id, a.class_id, a.teacher_id " +
+                "FROM schedules s " +
+                "JOIN assignments a ON s.assignment_id = a.id";
+        return getScheduleItems(sql, null);
+    }
+
+    /**
+     * @param param value bound to the single {@code ?} of {@code sql}, or null if it has none
+     */
     private List<ScheduleItem> getScheduleItems(String sql, String param) {
         List<ScheduleItem> items = new ArrayList<>();
         try (
                 Connection conn = databaseHandler.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
-            ps.setString(1, param);
+            if (param != null) ps.setString(1, param);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
                 items.add(new ScheduleItem(
+                        rs.getLong("id"),
                         rs.getString("assignment_id"),
                         rs.getString("subject_id"),
                         rs.getString("class_id"),
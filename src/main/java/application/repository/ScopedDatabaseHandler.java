@@ -0,0 +1,96 @@
+package application.repository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Lets several repository calls share one connection and one transaction without changing the repositories.
+ * <p>
+ * Inside {@link #inTransaction} / {@link #inReadTransaction}, every {@link #getConnection()} on the same thread
+ * returns the scope's connection, wrapped so that the repositories' own {@code close}, {@code commit},
+ * {@code rollback} and {@code setAutoCommit} calls are ignored: the scope decides. Outside a scope it simply
+ * forwards to the wrapped handler. Scopes do not nest; an inner call joins the outer one.
+ * <p>
+ * The {@link ChangeBus} holds back the events of a write scope until it commits, and drops them on rollback.
+ */
+public class ScopedDatabaseHandler implements IDatabaseHandler {
+
+    private static final Set<String> SUPPRESSED = Set.of("close", "commit", "rollback", "setAutoCommit");
+
+    private final IDatabaseHandler delegate;
+    private final ChangeBus changeBus;
+    private final ThreadLocal<Connection> scoped = new ThreadLocal<>();
+
+    public ScopedDatabaseHandler(IDatabaseHandler delegate, ChangeBus changeBus) {
+        this.delegate = delegate;
+        this.changeBus = changeBus;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = scoped.get();
+        return connection != null ? shared(connection) : delegate.getConnection();
+    }
+
+    /**
+     * Runs {@code work} in one write transaction: committed if it returns, rolled back if it throws.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return run(work, true);
+    }
+
+    /**
+     * Runs {@code work} in one read transaction, so all its queries see the same state of the database.
+     */
+    public <T> T inReadTransaction(Supplier<T> work) {
+        return run(work, false);
+    }
+
+    private <T> T run(Supplier<T> work, boolean commit) {
+        if (scoped.get() != null) return work.get();
+
+        boolean committed = false;
+        if (commit) changeBus.beginTransaction();
+        try (Connection conn = delegate.getConnection()) {
+            conn.setAutoCommit(false);
+            scoped.set(conn);
+            try {
+                T result = work.get();
+                if (commit) {
+                    conn.commit();
+                    committed = true;
+                } else {
+                    conn.rollback();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                scoped.remove();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // After the connection is back: subscribers may read at once
+            if (commit) changeBus.endTransaction(committed);
+        }
+    }
+
+    private static Connection shared(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (SUPPRESSED.contains(method.getName())) return null;
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -1,5 +1,7 @@
 package application.repository;
 
+import application.models.BusyMask;
+import application.models.ChangeEvent;
 import application.models.ESession;
 import application.models.Session;
 
@@ -9,22 +11,25 @@ import java.util.List;
 
 public class SessionRepository implements IRepository {
     private final IDatabaseHandler databaseHandler;
+    private final ChangeBus changeBus;
 
-    public SessionRepository(IDatabaseHandler databaseHandler) {
+    public SessionRepository(IDatabaseHandler databaseHandler, ChangeBus changeBus) {
         this.databaseHandler = databaseHandler;
+        this.changeBus = changeBus;
     }
 
     @Override
     public void initDb() {
         String sql = "CREATE TABLE IF NOT EXISTS sessions ("
                 + "sessionName TEXT PRIMARY KEY,"
-                + "busyMatrix TEXT"
+                + "busyMask INTEGER NOT NULL DEFAULT 0"
                 + ");";
         try (
                 Connection conn = databaseHandler.getConnection();
                 Statement stmt = conn.createStatement()
         ) {
             stmt.execute(sql);
+            BusyMaskMigration.migrate(conn, "sessions", "sessionName", "busyMatrix", "busyMask");
             System.out.println("Table sessions created successfully");
         } catch (SQLException e) {
             System.out.println("Error while creating sessions db" + e.getMessage());
@@ -43,7 +48,7 @@ public class SessionRepository implements IRepository {
             while (rs.next()) {
                 Session s = new Session(
                         ESession.valueOf(rs.getString("sessionName")),
-                        Session.deserializeBusyMatrix(rs.getString("busyMatrix"))
+                        new BusyMask(rs.getLong("busyMask"))
                 );
                 sessions.add(s);
             }
@@ -64,7 +69,7 @@ public class SessionRepository implements IRepository {
             if (rs.next()) {
                 return new Session(
                         ESession.valueOf(rs.getString("sessionName")),
-                        Session.deserializeBusyMatrix(rs.getString("busyMatrix"))
+                        new BusyMask(rs.getLong("busyMask"))
                 );
             }
             return null;
@@ -74,15 +79,17 @@ public class SessionRepository implements IRepository {
     }
 
     public boolean save(Session session) {
-        String sql = "INSERT INTO sessions (sessionName, busyMatrix) VALUES (?, ?) " +
-                "ON CONFLICT(sessionName) DO UPDATE SET busyMatrix = excluded.busyMatrix;";
+        String sql = "INSERT INTO sessions (sessionName, busyMask) VALUES (?, ?) " +
+                "ON CONFLICT(sessionName) DO UPDATE SET busyMask = excluded.busyMask;";
         try (
                 Connection conn = databaseHandler.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, session.getSessionName().toString());
-            ps.setString(2, Session.serializeBusyMatrix(session.getBusyMatrix()));
-            return ps.executeUpdate() > 0;
+            ps.setLong(2, session.getBusyMask().bits());
+            boolean saved = ps.executeUpdate() > 0;
+            if (saved) changeBus.publish(EntityVersionRepository.SESSION, session.getSessionName().name(), ChangeEvent.Kind.UPDATE);
+            return saved;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -95,7 +102,9 @@ public class SessionRepository implements IRepository {
                 PreparedStatement ps = conn.prepareStatement(sql)
         ) {
             ps.setString(1, sessionName.toString());
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            if (deleted) changeBus.publish(EntityVersionRepository.SESSION, sessionName.name(), ChangeEvent.Kind.DELETE);
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -7,21 +7,32 @@ import java.sql.SQLException;
 
 public class SqliteDatabaseHandler implements IDatabaseHandler {
 
-    @Override
-    public Connection getConnection() throws SQLException {
-        try {
+    private final String url;
 
-            String appData = System.getProperty("user.home") + File.separator
-                    + "AppData" + File.separator + "Local" + File.separator + "SchoolScheduler";
+    public SqliteDatabaseHandler() {
+        this(defaultDatabasePath());
+    }
 
-            File directory = new File(appData);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
+    /**
+     * @param dbPath SQLite file to use instead of the per-user application database (tools, benchmarks)
+     */
+    public SqliteDatabaseHandler(String dbPath) {
+        File parent = new File(dbPath).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.url = "jdbc:sqlite:" + dbPath;
+    }
 
-            String path = appData + File.separator + "scheduler.db";
-            String url = "jdbc:sqlite:" + path;
+    private static String defaultDatabasePath() {
+        String appData = System.getProperty("user.home") + File.separator
+                + "AppData" + File.separator + "Local" + File.separator + "SchoolScheduler";
+        return appData + File.separator + "scheduler.db";
+    }
 
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
             return DriverManager.getConnection(url);
         } catch (SQLException e) {
             throw new RuntimeException(e);
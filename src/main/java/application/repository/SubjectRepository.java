@@ -68,4 +68,15 @@ public class SubjectRepository implements IRepository {
         }
     }
 
+    public void saveAll(List<Subject> subjects) {
+        String sql = "INSERT INTO subjects (id, name) VALUES (?, ?) ON CONFLICT(id) DO UPDATE SET name = excluded.name";
+
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            for (Subject subject : subjects) {
+                ps.setString(1, subject.getId());
+                ps.setString(2, subject.getName());
+                ps.addBatch();
+            }
+        });
+    }
 }
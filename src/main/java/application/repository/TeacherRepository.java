@@ -1,17 +1,23 @@
 package application.repository;
 
+import application.models.BusyMask;
+import application.models.ChangeEvent;
 import application.models.Teacher;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TeacherRepository implements IRepository {
 
     private final IDatabaseHandler databaseHandler;
+    private final ChangeBus changeBus;
 
-    public TeacherRepository(IDatabaseHandler databaseHandler) {
+    public TeacherRepository(IDatabaseHandler databaseHandler, ChangeBus changeBus) {
         this.databaseHandler = databaseHandler;
+        this.changeBus = changeBus;
     }
 
     @Override
@@ -19,13 +25,14 @@ public class TeacherRepository implements IRepository {
         String sql = "CREATE TABLE IF NOT EXISTS teachers ("
                 + "id TEXT PRIMARY KEY,"
                 + "name TEXT NOT NULL,"
-                + "busy_matrix TEXT"
+                + "busy_mask INTEGER NOT NULL DEFAULT 0"
                 + ");";
         try (
                 Connection conn = databaseHandler.getConnection();
                 Statement stmt = conn.createStatement()
         ) {
             stmt.execute(sql);
+            BusyMaskMigration.migrate(conn, "teachers", "id", "busy_matrix", "busy_mask");
             System.out.println("Table teachers created successfully");
         } catch (SQLException e) {
             System.out.println("Error while creating teachers db" + e.getMessage());
@@ -42,9 +49,11 @@ public class TeacherRepository implements IRepository {
 
             try (ResultSet rs = stmt.executeQuery(sql)) {
                 while (rs.next()) {
-                    Teacher t = new Teacher(rs.getString("name"), rs.getString("id"));
-                    t.setBusyMatrix(Teacher.deserializeBusyMatrix(rs.getString("busy_matrix")));
-                    teacherList.add(t);
+                    teacherList.add(new Teacher(
+                            rs.getString("name"),
+                            rs.getString("id"),
+                            new BusyMask(rs.getLong("busy_mask"))
+                    ));
                 }
             }
             return teacherList;
@@ -54,7 +63,7 @@ public class TeacherRepository implements IRepository {
     }
 
     public boolean insert(Teacher teacher) {
-        String sql = "INSERT INTO teachers (id, name, busy_matrix) VALUES (?, ?, ?)";
+        String sql = "INSERT INTO teachers (id, name, busy_mask) VALUES (?, ?, ?)";
         try (
                 Connection conn = databaseHandler.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)
@@ -62,9 +71,11 @@ public class TeacherRepository implements IRepository {
 
             stmt.setString(1, teacher.getId());
             stmt.setString(2, teacher.getName());
-            stmt.setString(3, Teacher.serializeBusyMatrix(teacher.getBusyMatrix()));
+            stmt.setLong(3, teacher.getBusyMask().bits());
 
-            return stmt.executeUpdate() == 1;
+            boolean inserted = stmt.executeUpdate() == 1;
+            if (inserted) changeBus.publish(EntityVersionRepository.TEACHER, teacher.getId(), ChangeEvent.Kind.INSERT);
+            return inserted;
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -72,16 +83,38 @@ public class TeacherRepository implements IRepository {
     }
 
     public boolean update(Teacher teacher) {
-        String sql = "UPDATE teachers SET name = ?, busy_matrix = ? WHERE id = ?";
+        String sql = "UPDATE teachers SET name = ?, busy_mask = ? WHERE id = ?";
         try (
                 Connection conn = databaseHandler.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)
         ) {
             stmt.setString(1, teacher.getName());
-            stmt.setString(2, Teacher.serializeBusyMatrix(teacher.getBusyMatrix()));
+            stmt.setLong(2, teacher.getBusyMask().bits());
             stmt.setString(3, teacher.getId());
 
-            return stmt.executeUpdate() == 1;
+            boolean updated = stmt.executeUpdate() == 1;
+            if (updated) changeBus.publish(EntityVersionRepository.TEACHER, teacher.getId(), ChangeEvent.Kind.UPDATE);
+            return updated;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Inserts the teacher, or updates name and availability if the id exists.
+     */
+    public void save(Teacher teacher) {
+        String sql = "INSERT INTO teachers (id, name, busy_mask) VALUES (?, ?, ?) "
+                + "ON CONFLICT(id) DO UPDATE SET name = excluded.name, busy_mask = excluded.busy_mask";
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)
+        ) {
+            stmt.setString(1, teacher.getId());
+            stmt.setString(2, teacher.getName());
+            stmt.setLong(3, teacher.getBusyMask().bits());
+            stmt.executeUpdate();
+            changeBus.publish(EntityVersionRepository.TEACHER, teacher.getId(), ChangeEvent.Kind.UPDATE);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -94,7 +127,9 @@ public class TeacherRepository implements IRepository {
                 PreparedStatement stmt = conn.prepareStatement(sql)
         ) {
             stmt.setString(1, id);
-            return stmt.executeUpdate() == 1;
+            boolean deleted = stmt.executeUpdate() == 1;
+            if (deleted) changeBus.publish(EntityVersionRepository.TEACHER, id, ChangeEvent.Kind.DELETE);
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -109,12 +144,10 @@ public class TeacherRepository implements IRepository {
             ps.setString(1, id);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                String serializeMatrix = rs.getString("busy_matrix");
-                boolean[][] matrix = Teacher.deserializeBusyMatrix(serializeMatrix);
                 return new Teacher(
                         rs.getString("name"),
                         rs.getString("id"),
-                        matrix
+                        new BusyMask(rs.getLong("busy_mask"))
                 );
             }
             return null;
@@ -122,4 +155,46 @@ public class TeacherRepository implements IRepository {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * The teacher assigned to each subject of a class, keyed by subject id, in one query.
+     */
+    public Map<String, Teacher> getBySubjectOfClass(String classId) {
+        String sql = "SELECT a.subject_id, t.* FROM assignments a JOIN teachers t ON t.id = a.teacher_id"
+                + " WHERE a.class_id = ?";
+        Map<String, Teacher> teachers = new HashMap<>();
+        try (
+                Connection conn = databaseHandler.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)
+        ) {
+            ps.setString(1, classId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    teachers.put(rs.getString("subject_id"), new Teacher(
+                            rs.getString("name"),
+                            rs.getString("id"),
+                            new BusyMask(rs.getLong("busy_mask"))
+                    ));
+                }
+            }
+            return teachers;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void saveAll(List<Teacher> teachers) {
+        String sql = "INSERT INTO teachers (id, name, busy_mask) VALUES (?, ?, ?) "
+                + "ON CONFLICT(id) DO UPDATE SET name = excluded.name, busy_mask = excluded.busy_mask";
+
+        BatchStatement.execute(databaseHandler, sql, "Batch save failed", ps -> {
+            for (Teacher teacher : teachers) {
+                ps.setString(1, teacher.getId());
+                ps.setString(2, teacher.getName());
+                ps.setLong(3, teacher.getBusyMask().bits());
+                ps.addBatch();
+            }
+        });
+        teachers.forEach(t -> changeBus.publish(EntityVersionRepository.TEACHER, t.getId(), ChangeEvent.Kind.UPDATE));
+    }
 }
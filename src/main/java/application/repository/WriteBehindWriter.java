@@ -0,0 +1,208 @@
+package application.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Takes repository writes off the FX thread and saves them in batches, one transaction per batch.
+ * <p>
+ * Writes are keyed by what they make true (e.g. "the assignment of this subject in this class"): a write submitted
+ * while an earlier one with the same key is still queued replaces it, so a burst of edits to one cell costs one
+ * write. A batch is taken a short moment after the first write arrives, or at once on {@link #flush()}. Batches run
+ * in submission order on a single daemon thread.
+ */
+public class WriteBehindWriter {
+
+    // How long a burst of edits may keep growing a batch
+    private static final long BATCH_DELAY_MS = 200;
+
+    private final RepositoryOrchestrator repo;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Pending> queue = new LinkedHashMap<>();
+
+    // Counters of submitted writes and of writes whose batch has finished (committed or rolled back)
+    private long submitted;
+    private long completed;
+    private RuntimeException lastError;
+    private long lastErrorEnd;
+    private boolean flushRequested;
+    private boolean closed;
+    private Thread thread;
+
+    WriteBehindWriter(RepositoryOrchestrator repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * Queues a write.
+     *
+     * @param key   writes with the same key replace each other while queued
+     * @param write repository calls to run inside the batch transaction
+     * @param done  called on the writer thread once the batch finished, with null or the error that rolled it back;
+     *              every caller whose write was merged into this key is called
+     */
+    public void submit(String key, Consumer<RepositoryOrchestrator> write, Consumer<RuntimeException> done) {
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("Writer is closed");
+            Pending pending = queue.remove(key);
+            if (pending == null) pending = new Pending();
+            pending.write = write;
+            if (done != null) pending.callbacks.add(done);
+            // Re-inserted at the end: a replaced write runs after everything queued before it
+            queue.put(key, pending);
+            submitted++;
+            ensureStarted();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * True while a write with this key waits for its batch.
+     */
+    public boolean isQueued(String key) {
+        synchronized (lock) {
+            return queue.containsKey(key);
+        }
+    }
+
+    /**
+     * Writes everything queued so far and waits until it is committed (or rolled back). Must not be called inside
+     * a transaction, which could hold the lock the writer needs.
+     *
+     * @return null, or the error of a batch that failed while waiting
+     */
+    public RuntimeException flush() {
+        synchronized (lock) {
+            if (Thread.currentThread() == thread) return null;
+            long start = completed;
+            long target = submitted;
+            flushRequested = true;
+            lock.notifyAll();
+            while (completed < target) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return lastErrorEnd > start ? lastError : null;
+        }
+    }
+
+    /**
+     * Flushes, then stops the writer thread. Later submits are rejected.
+     */
+    public void close() {
+        flush();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void ensureStarted() {
+        if (thread != null) return;
+        thread = new Thread(this::run, "write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        List<Pending> abandoned = List.of();
+        RuntimeException stopped = new IllegalStateException("Write-behind writer stopped");
+        try {
+            while (true) {
+                List<Pending> batch;
+                long batchEnd;
+                synchronized (lock) {
+                    // Only close() ends the thread; an interrupt must not leave flush() waiting for nothing
+                    while (queue.isEmpty() && !closed) awaitQuietly(0);
+                    if (queue.isEmpty()) return;
+
+                    long deadline = System.currentTimeMillis() + BATCH_DELAY_MS;
+                    long remaining;
+                    while (!flushRequested && !closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        awaitQuietly(remaining);
+                    }
+                    batch = new ArrayList<>(queue.values());
+                    queue.clear();
+                    batchEnd = submitted;
+                    flushRequested = false;
+                }
+
+                RuntimeException error = write(batch);
+                notifyDone(batch, error);
+
+                synchronized (lock) {
+                    if (error != null) {
+                        lastError = error;
+                        lastErrorEnd = batchEnd;
+                    }
+                    completed = batchEnd;
+                    lock.notifyAll();
+                }
+            }
+        } finally {
+            // Normally nothing is left; after an unexpected error the queued writes are failed, not waited for
+            synchronized (lock) {
+                thread = null;
+                if (!queue.isEmpty()) {
+                    abandoned = new ArrayList<>(queue.values());
+                    queue.clear();
+                    lastError = stopped;
+                    lastErrorEnd = submitted;
+                }
+                completed = submitted;
+                lock.notifyAll();
+            }
+            if (!abandoned.isEmpty()) notifyDone(abandoned, stopped);
+        }
+    }
+
+    private void awaitQuietly(long millis) {
+        try {
+            lock.wait(millis);
+        } catch (InterruptedException e) {
+            // Checked again by the caller's loop
+        }
+    }
+
+    private static void notifyDone(List<Pending> batch, RuntimeException error) {
+        boolean reported = false;
+        for (Pending pending : batch) {
+            for (Consumer<RuntimeException> callback : pending.callbacks) {
+                try {
+                    callback.accept(error);
+                    reported = true;
+                } catch (RuntimeException e) {
+                    // One failing callback must neither hide the error from the others nor stop the writer
+                    System.err.println("Write-behind callback failed: " + e.getMessage());
+                }
+            }
+        }
+        // Writes submitted without a callback have nobody else to tell
+        if (error != null && !reported) {
+            System.err.println("Write-behind batch of " + batch.size() + " writes failed: " + error.getMessage());
+        }
+    }
+
+    private RuntimeException write(List<Pending> batch) {
+        try {
+            repo.inTransaction(() -> {
+                batch.forEach(pending -> pending.write.accept(repo));
+                return null;
+            });
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static final class Pending {
+        Consumer<RepositoryOrchestrator> write;
+        final List<Consumer<RuntimeException>> callbacks = new ArrayList<>(1);
+    }
+}
@@ -0,0 +1,100 @@
+package application.services;
+
+import scheduler.common.models.TaskData;
+import scheduler.common.proto.EngineInput;
+import scheduler.common.proto.EngineOutput;
+import scheduler.common.proto.TaskDataProto;
+import scheduler.common.utils.ProtoMapper;
+
+import java.io.*;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The steps of the external engine contract, free of any JavaFX dependency:
+ * serialize {@link EngineInput} to a file, run {@code <engine> <in> <out>}, parse {@link EngineOutput}.
+ * <p>
+ * {@link SchedulerEngineService} drives these from its task; benchmarks and tools can drive them directly.
+ */
+public class EngineBridge {
+
+    private EngineBridge() {
+    }
+
+    public static EngineInput buildInput(List<TaskData> tasks) {
+        List<TaskDataProto> taskDataProtoList = tasks.stream().map(ProtoMapper::toProto).toList();
+        return EngineInput.newBuilder().addAllTasks(taskDataProtoList).build();
+    }
+
+    public static void writeInput(EngineInput input, File file) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            input.writeTo(os);
+        }
+    }
+
+    /**
+     * Runs the engine executable and waits for it to exit. Every line the engine prints is passed to {@code log}.
+     */
+    public static void runProcess(String enginePath, File in, File out, Consumer<String> log) throws IOException, InterruptedException {
+        awaitProcess(startProcess(enginePath, in, out), log);
+    }
+
+    /**
+     * Spawns the engine without waiting for it, so the spawn cost can be measured apart from the solve.
+     */
+    public static Process startProcess(String enginePath, File in, File out) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(enginePath, in.getAbsolutePath(), out.getAbsolutePath());
+
+        pb.redirectErrorStream(true);
+
+        return pb.start();
+    }
+
+    /**
+     * Waits for the engine to exit, passing every line it prints to {@code log}. The output is read on its own thread,
+     * because a blocking read cannot be interrupted; this thread waits in {@link Process#waitFor()}, so interrupting it
+     * (cancelling the run) kills the engine instead of leaving it running in the background.
+     */
+    public static void awaitProcess(Process process, Consumer<String> log) throws IOException, InterruptedException {
+        IOException[] readError = new IOException[1];
+        Thread pump = new Thread(() -> {
+            try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = bufferedReader.readLine()) != null) {
+                    log.accept(line);
+                }
+            } catch (IOException e) {
+                // Also the normal end of a killed engine: the stream is closed under the reader
+                readError[0] = e;
+            }
+        }, "engine-output");
+        pump.setDaemon(true);
+        pump.start();
+
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+            // The rest of the output is buffered in the pipe; the reader ends at its EOF
+            pump.join();
+        } catch (InterruptedException e) {
+            // Cancelled while waiting: do not leave the solver running in the background
+            process.destroyForcibly();
+            throw e;
+        }
+
+        if (readError[0] != null) throw readError[0];
+        if (exitCode != 0) {
+            throw new RuntimeException("[ERROR] Engine kết thúc với lỗi (Exit code: " + exitCode + ")");
+        }
+    }
+
+    public static EngineOutput readOutput(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            throw new RuntimeException("[ERROR] Engine không sinh ra file output!");
+        }
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            return EngineOutput.parseFrom(is);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package application.services;
+
+import scheduler.common.proto.EngineInput;
+import scheduler.common.proto.EngineOutput;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Runs a JVM engine artifact inside the application process.
+ * <p>
+ * The engine jar is loaded into its own {@link URLClassLoader} and its entry point is called directly with the
+ * {@link EngineInput} object, so no temp files, protobuf round trip or JVM startup are involved.
+ * <p>
+ * Contract for the engine jar: the class named by the {@code Engine-Entry-Point} manifest attribute (or
+ * {@code Main-Class} if absent) exposes {@code public static EngineOutput solve(EngineInput input, int threads)}.
+ */
+public class InProcessEngine {
+
+    private static final String ENTRY_POINT_ATTRIBUTE = "Engine-Entry-Point";
+    private static final String ENTRY_METHOD = "solve";
+    private static final long WATCHDOG_INTERVAL_MS = 200;
+    // How long a cancelled or finished run waits for the solver thread to stop
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    // Loaders are never closed: native solver libraries (OR-Tools) can only be bound to one class loader per JVM
+    // and stay bound to it for the process lifetime, so the loader that loaded them must stay usable. There is one
+    // loader per jar version (path and mtime); the loaders of replaced versions are kept in retiredLoaders.
+    private static final List<URLClassLoader> retiredLoaders = new ArrayList<>();
+    private static URLClassLoader cachedLoader;
+    private static Method cachedEntry;
+    private static String cachedJarPath;
+    private static long cachedJarModified;
+
+    private InProcessEngine() {
+    }
+
+    /**
+     * Solves on a dedicated thread and waits for the result.
+     *
+     * @param engineJar   engine artifact (.jar)
+     * @param input       engine input, passed as-is to the entry point
+     * @param threads     thread budget handed to the solver
+     * @param isCancelled polled by the watchdog; when it turns true the solver thread is interrupted and waited for
+     */
+    public static EngineOutput solve(File engineJar, EngineInput input, int threads, BooleanSupplier isCancelled) throws Exception {
+        Method entry = resolveEntry(engineJar);
+        ClassLoader engineLoader = entry.getDeclaringClass().getClassLoader();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "engine-in-process");
+            t.setDaemon(true);
+            t.setContextClassLoader(engineLoader);
+            return t;
+        });
+
+        try {
+            Future<EngineOutput> future = executor.submit(() -> (EngineOutput) entry.invoke(null, input, Math.max(1, threads)));
+
+            // Watchdog: wake up periodically to check for cancellation while the engine is running
+            while (true) {
+                if (isCancelled.getAsBoolean()) {
+                    future.cancel(true);
+                    throw new CancellationException("[INFO] Engine đã bị hủy.");
+                }
+                try {
+                    return future.get(WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ignored) {
+                    // still solving
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof InvocationTargetException ite && ite.getCause() != null) {
+                        cause = ite.getCause();
+                    }
+                    throw new RuntimeException("[ERROR] Engine gặp lỗi: " + cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            // Interrupts the solver if it is still running (cancelled, or the watchdog failed) and joins it
+            stop(executor);
+        }
+    }
+
+    private static void stop(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Engine thread did not stop within " + STOP_TIMEOUT_SECONDS + "s of being interrupted");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized Method resolveEntry(File engineJar) throws IOException, ReflectiveOperationException {
+        if (!engineJar.exists()) {
+            throw new FileNotFoundException("Engine JAR not found at: " + engineJar.getAbsolutePath());
+        }
+
+        String path = engineJar.getAbsolutePath();
+        long modified = engineJar.lastModified();
+        boolean sameJar = path.equals(cachedJarPath) && modified == cachedJarModified;
+        if (sameJar && cachedEntry != null) {
+            return cachedEntry;
+        }
+
+        if (!sameJar) {
+            // Jar changed (or first run): new loader, the old one stays open. A failed resolve keeps its loader too,
+            // so retrying against the same jar reuses it instead of opening another one.
+            if (cachedLoader != null) retiredLoaders.add(cachedLoader);
+            // Parent-first delegation: shared types (EngineInput/EngineOutput, protobuf) resolve to the application's
+            // copies, everything else the engine ships stays inside this loader.
+            cachedLoader = new URLClassLoader(
+                    "scheduler-engine",
+                    new URL[]{engineJar.toURI().toURL()},
+                    InProcessEngine.class.getClassLoader()
+            );
+            cachedEntry = null;
+            cachedJarPath = path;
+            cachedJarModified = modified;
+        }
+
+        String entryClassName = readEntryClassName(engineJar);
+        Class<?> entryClass = Class.forName(entryClassName, true, cachedLoader);
+        Method entry = entryClass.getMethod(ENTRY_METHOD, EngineInput.class, int.class);
+        if (!Modifier.isStatic(entry.getModifiers()) || !EngineOutput.class.isAssignableFrom(entry.getReturnType())) {
+            throw new NoSuchMethodException("Entry point must be 'public static EngineOutput solve(EngineInput, int)' in " + entryClassName);
+        }
+
+        cachedEntry = entry;
+        return entry;
+    }
+
+    private static String readEntryClassName(File engineJar) throws IOException {
+        try (JarFile jar = new JarFile(engineJar)) {
+            Manifest manifest = jar.getManifest();
+            if (manifest == null) {
+                throw new IOException("Engine JAR has no manifest: " + engineJar.getAbsolutePath());
+            }
+            Attributes attributes = manifest.getMainAttributes();
+            String entry = attributes.getValue(ENTRY_POINT_ATTRIBUTE);
+            if (entry == null) {
+                entry = attributes.getValue(Attributes.Name.MAIN_CLASS);
+            }
+            if (entry == null) {
+                throw new IOException("Engine JAR declares neither " + ENTRY_POINT_ATTRIBUTE + " nor Main-Class");
+            }
+            return entry.trim();
+        }
+    }
+}
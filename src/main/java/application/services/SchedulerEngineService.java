@@ -1,5 +1,6 @@
 package application.services;
 
+import application.models.RunTiming;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import scheduler.common.models.Slot;
@@ -7,10 +8,11 @@ import scheduler.common.models.TaskData;
 import scheduler.common.models.Variable;
 import scheduler.common.proto.EngineInput;
 import scheduler.common.proto.EngineOutput;
-import scheduler.common.proto.TaskDataProto;
 import scheduler.common.utils.ProtoMapper;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.prefs.Preferences;
@@ -19,7 +21,10 @@ public class SchedulerEngineService extends Service<Map<Variable, Slot>> {
 
     private static final String PREF_ENGINE_PATH = "engine_path";
     private static final String DEFAULT_ENGINE_PATH = "";
+    private static final String PREF_ENGINE_IN_PROCESS = "engine_in_process";
+    private static final String PREF_ENGINE_THREADS = "engine_threads";
     private List<TaskData> inputData;
+    private RunTiming runTiming = new RunTiming();
 
     public static String getEnginePath() {
         Preferences prefs = Preferences.userNodeForPackage(SchedulerEngineService.class);
@@ -31,10 +36,37 @@ public class SchedulerEngineService extends Service<Map<Variable, Slot>> {
         prefs.put(PREF_ENGINE_PATH, path);
     }
 
+    public static boolean isInProcessMode() {
+        Preferences prefs = Preferences.userNodeForPackage(SchedulerEngineService.class);
+        return prefs.getBoolean(PREF_ENGINE_IN_PROCESS, false);
+    }
+
+    public static void setInProcessMode(boolean inProcess) {
+        Preferences prefs = Preferences.userNodeForPackage(SchedulerEngineService.class);
+        prefs.putBoolean(PREF_ENGINE_IN_PROCESS, inProcess);
+    }
+
+    public static int getEngineThreads() {
+        Preferences prefs = Preferences.userNodeForPackage(SchedulerEngineService.class);
+        return prefs.getInt(PREF_ENGINE_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void setEngineThreads(int threads) {
+        Preferences prefs = Preferences.userNodeForPackage(SchedulerEngineService.class);
+        prefs.putInt(PREF_ENGINE_THREADS, Math.max(1, threads));
+    }
+
     public void setInputData(List<TaskData> inputData) {
         this.inputData = inputData;
     }
 
+    /**
+     * Run record the engine phases (map, write, spawn, solve, parse) are appended to.
+     */
+    public void setRunTiming(RunTiming runTiming) {
+        this.runTiming = runTiming;
+    }
+
     @Override
     protected Task<Map<Variable, Slot>> createTask() {
         return new Task<Map<Variable, Slot>>() {
@@ -44,67 +76,75 @@ public class SchedulerEngineService extends Service<Map<Variable, Slot>> {
                     throw new IllegalArgumentException("[ERROR] Dữ liệu đầu vào trống!");
                 }
 
+                RunTiming timing = runTiming;
                 updateMessage("[INFO] Đang chuẩn bị dữ liệu...");
 
-                File tmpIn = null;
-                File tmpOut = null;
+                timing.begin(RunTiming.MAP);
+                EngineInput engineInput = EngineBridge.buildInput(inputData);
+                timing.end(inputData.size());
 
-                try {
-                    tmpIn = File.createTempFile("sched_in_", ".bin");
-                    tmpOut = File.createTempFile("sched_out_", ".bin");
-
-                    List<TaskDataProto> taskDataProtoList = inputData.stream().map(ProtoMapper::toProto).toList();
+                String enginePath = getEnginePath();
+                File engineFile = new File(enginePath);
+                if (!engineFile.exists()) {
+                    throw new FileNotFoundException("Engine JAR not found at: " + enginePath);
+                }
 
-                    EngineInput engineInput = EngineInput.newBuilder().addAllTasks(taskDataProtoList).build();
+                EngineOutput engineOutput;
+                if (isInProcessMode()) {
+                    engineOutput = runInProcess(engineFile, engineInput, timing);
+                } else {
+                    engineOutput = runExternal(enginePath, engineInput, timing);
+                }
 
-                    try (FileOutputStream fos = new FileOutputStream(tmpIn)) {
-                        engineInput.writeTo(fos);
-                    }
+                if (!engineOutput.getSuccess()) {
+                    throw new RuntimeException("[ERROR] Engine báo thất bại: " + engineOutput.getMessage());
+                }
 
-                    updateMessage("[INFO] Đang khởi tạo thuật toán...");
+                // Convert Proto -> Map Java
+                timing.begin(RunTiming.PARSE);
+                Map<Variable, Slot> result = ProtoMapper.fromEngineOutput(engineOutput);
+                timing.end(result.size());
+                return result;
+            }
 
-                    String enginePath = getEnginePath();
-                    File engineFile = new File(enginePath);
-                    if (!engineFile.exists()) {
-                        throw new FileNotFoundException("Engine JAR not found at: " + enginePath);
-                    }
+            private EngineOutput runInProcess(File engineFile, EngineInput engineInput, RunTiming timing) throws Exception {
+                int threads = getEngineThreads();
+                updateMessage("[INFO] Đang chạy thuật toán trong tiến trình (" + threads + " luồng)...");
+                timing.begin(RunTiming.SOLVE);
+                EngineOutput output = InProcessEngine.solve(engineFile, engineInput, threads, this::isCancelled);
+                timing.end(0);
+                return output;
+            }
 
-                    ProcessBuilder pb = new ProcessBuilder(enginePath, tmpIn.getAbsolutePath(), tmpOut.getAbsolutePath());
+            private EngineOutput runExternal(String enginePath, EngineInput engineInput, RunTiming timing) {
+                File tmpIn = null;
+                File tmpOut = null;
 
-                    pb.redirectErrorStream(true);
+                try {
+                    tmpIn = File.createTempFile("sched_in_", ".bin");
+                    tmpOut = File.createTempFile("sched_out_", ".bin");
 
-                    Process process = pb.start();
+                    timing.begin(RunTiming.WRITE);
+                    EngineBridge.writeInput(engineInput, tmpIn);
+                    timing.end(tmpIn.length());
 
-                    try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                        String line;
-                        while ((line = bufferedReader.readLine()) != null) {
-                            System.out.println("[ENGINE]: " + line);
-                        }
-                    }
+                    updateMessage("[INFO] Đang khởi tạo thuật toán...");
 
-                    int exitCode = process.waitFor();
+                    timing.begin(RunTiming.SPAWN);
+                    Process process = EngineBridge.startProcess(enginePath, tmpIn, tmpOut);
+                    timing.end(0);
 
-                    if (exitCode != 0) {
-                        throw new RuntimeException("[ERROR] Engine kết thúc với lỗi (Exit code: " + exitCode + ")");
-                    }
+                    timing.begin(RunTiming.SOLVE);
+                    EngineBridge.awaitProcess(process, line -> System.out.println("[ENGINE]: " + line));
+                    timing.end(0);
 
                     updateMessage("[INFO] Đang xử lý kết quả...");
 
-                    if (!tmpOut.exists() || tmpOut.length() == 0) {
-                        throw new RuntimeException("[ERROR] Engine không sinh ra file output!");
-                    }
-
-                    EngineOutput engineOutput;
-                    try (FileInputStream fis = new FileInputStream(tmpOut)) {
-                        engineOutput = EngineOutput.parseFrom(fis);
-                    }
-
-                    if (!engineOutput.getSuccess()) {
-                        throw new RuntimeException("[ERROR] Engine báo thất bại: " + engineOutput.getMessage());
-                    }
-
-                    // Convert Proto -> Map Java
-                    return ProtoMapper.fromEngineOutput(engineOutput);
+                    // Reading the file is part of parsing; the proto to map conversion is added in call()
+                    timing.begin(RunTiming.PARSE);
+                    EngineOutput output = EngineBridge.readOutput(tmpOut);
+                    timing.end(tmpOut.length());
+                    return output;
 
                 } catch (IOException | InterruptedException | RuntimeException e) {
                     throw new RuntimeException(e);
@@ -0,0 +1,170 @@
+package application.services;
+
+import application.models.Assignment;
+import application.models.ChangeEvent;
+import application.repository.AssignmentRepository;
+import application.repository.EntityVersionRepository;
+import application.repository.RepositoryOrchestrator;
+import javafx.application.Platform;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weekly periods of every teacher (the curriculum periods of all their assignments), for the overload warnings.
+ * <p>
+ * The totals are read with one aggregate query, then kept up to date from the change bus: a written or deleted
+ * assignment only re-aggregates its old and new teacher, while bulk assignment deletes (by class, by teacher, all)
+ * and curriculum and class changes, which can move the periods of many assignments at once, read everything
+ * again. A failed full read is retried every few seconds. The work runs in order on one background thread; readers
+ * get the last computed totals without waiting. One instance is shared by all views (see {@code MainController}).
+ */
+public class TeacherWorkloadService {
+
+    /**
+     * Above this many periods per week a teacher is shown as overloaded.
+     */
+    public static final int MAX_PERIODS_PER_WEEK = 20;
+
+    // Above this many written assignments, one aggregate over all of them is cheaper than one lookup per row
+    private static final int FULL_RELOAD_ROWS = 50;
+    private static final long RETRY_SECONDS = 5;
+
+    private final AssignmentRepository assignments;
+    private final RepositoryOrchestrator repo;
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("teacher-workload").factory());
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    // Replaced as a whole on each update, so readers never see a half-applied one
+    private volatile Map<String, Integer> periods = Map.of();
+    // Teacher of each assignment, to know whose total a moved or deleted assignment leaves; executor thread only
+    private final Map<String, String> teacherOfAssignment = new HashMap<>();
+    // False until a full read succeeded; per-row updates need its totals and index to start from. Executor thread only
+    private boolean loaded;
+    private boolean retryScheduled;
+
+    public TeacherWorkloadService(RepositoryOrchestrator repo) {
+        this.repo = repo;
+        this.assignments = repo.getAssignmentRepository();
+        repo.getChangeBus().subscribe(events -> executor.execute(() -> apply(events)));
+        executor.execute(this::reloadOrRetry);
+    }
+
+    /**
+     * Saved weekly periods of a teacher; 0 for a teacher without assignments or before the first load.
+     */
+    public int periodsOf(String teacherId) {
+        return periods.getOrDefault(teacherId, 0);
+    }
+
+    public static boolean isOverloaded(int periods) {
+        return periods > MAX_PERIODS_PER_WEEK;
+    }
+
+    /**
+     * @param listener runs on the FX thread each time the totals changed
+     * @return call to stop listening
+     */
+    public Runnable addListener(Runnable listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    private void apply(List<ChangeEvent> events) {
+        boolean full = false;
+        Set<String> assignmentIds = new HashSet<>();
+        for (ChangeEvent event : events) {
+            switch (event.entity()) {
+                case EntityVersionRepository.ASSIGNMENT -> {
+                    if (event.isBulk()) full = true;
+                    else assignmentIds.add(event.entityId());
+                }
+                // Periods come from the curriculum of the class's grade
+                case EntityVersionRepository.CURRICULUM, EntityVersionRepository.CLASS -> full = true;
+                default -> {
+                }
+            }
+        }
+        if (!loaded) return; // The scheduled retry reads everything anyway
+        if (full || assignmentIds.size() > FULL_RELOAD_ROWS) {
+            reloadOrRetry();
+            return;
+        }
+        if (assignmentIds.isEmpty()) return;
+        try {
+            update(assignmentIds);
+        } catch (RuntimeException e) {
+            // The index may be half updated: start again from a full read
+            System.err.println("Could not update teacher workloads: " + e.getMessage());
+            reloadOrRetry();
+            return;
+        }
+        notifyListeners();
+    }
+
+    private void reloadOrRetry() {
+        try {
+            repo.inReadTransaction(() -> {
+                periods = Map.copyOf(assignments.getPeriodsPerTeacher());
+                teacherOfAssignment.clear();
+                teacherOfAssignment.putAll(assignments.getTeacherIdsByAssignment());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Without totals every teacher would look free: try again rather than wait for an unrelated write
+            System.err.println("Could not load teacher workloads, retrying in " + RETRY_SECONDS + "s: " + e.getMessage());
+            loaded = false;
+            if (!retryScheduled) {
+                retryScheduled = true;
+                executor.schedule(() -> {
+                    retryScheduled = false;
+                    reloadOrRetry();
+                }, RETRY_SECONDS, TimeUnit.SECONDS);
+            }
+            return;
+        }
+        loaded = true;
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        Platform.runLater(() -> listeners.forEach(Runnable::run));
+    }
+
+    private void update(Set<String> assignmentIds) {
+        Map<String, Integer> fresh = repo.inReadTransaction(() -> {
+            Set<String> teachers = new HashSet<>();
+            for (String id : assignmentIds) {
+                String before = teacherOfAssignment.get(id);
+                if (before != null) teachers.add(before);
+
+                Assignment row = assignments.getById(id);
+                if (row != null) {
+                    teachers.add(row.getTeacherId());
+                    teacherOfAssignment.put(id, row.getTeacherId());
+                } else {
+                    teacherOfAssignment.remove(id);
+                }
+            }
+            Map<String, Integer> totals = new HashMap<>(assignments.getPeriodsOfTeachers(teachers));
+            // Teachers left without periods are not in the aggregate
+            teachers.forEach(t -> totals.putIfAbsent(t, 0));
+            return totals;
+        });
+
+        Map<String, Integer> next = new HashMap<>(periods);
+        fresh.forEach((teacher, total) -> {
+            if (total == 0) next.remove(teacher);
+            else next.put(teacher, total);
+        });
+        periods = Map.copyOf(next);
+    }
+}
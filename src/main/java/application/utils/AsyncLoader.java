@@ -0,0 +1,92 @@
+package application.utils;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.control.Alert;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs repository reads off the FX thread and hands the result back on it.
+ * <p>
+ * One loader stands for one thing a view shows (its lists, the table of the selected grade, ...): starting a load
+ * cancels the previous one of the same loader, and a result that arrives after it was superseded is dropped, so a
+ * fast change of selection never paints stale data. {@link #loadingProperty()} is true while a load is running, for
+ * placeholders. Loaders are used from the FX thread only.
+ */
+public final class AsyncLoader {
+
+    // Blocking JDBC calls are cheap on virtual threads; no pool to size
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(this, "loading", false);
+    private long generation;
+    private Future<?> current;
+
+    /**
+     * Loads in the background; errors are shown in an alert.
+     */
+    public <T> void load(Supplier<T> work, Consumer<T> onLoaded) {
+        load(work, onLoaded, AsyncLoader::showError);
+    }
+
+    /**
+     * @param work     runs on a virtual thread; must not touch the scene graph
+     * @param onLoaded runs on the FX thread, unless a newer load or {@link #cancel()} came first
+     * @param onFailed runs on the FX thread, with the same condition
+     */
+    public <T> void load(Supplier<T> work, Consumer<T> onLoaded, Consumer<RuntimeException> onFailed) {
+        cancel();
+        long id = generation;
+        loading.set(true);
+        current = EXECUTOR.submit(() -> {
+            try {
+                T result = work.get();
+                Platform.runLater(() -> deliver(id, () -> onLoaded.accept(result)));
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> deliver(id, () -> onFailed.accept(e)));
+            }
+        });
+    }
+
+    private void deliver(long id, Runnable callback) {
+        if (id != generation) return;
+        current = null;
+        loading.set(false);
+        callback.run();
+    }
+
+    /**
+     * Drops the running load, if any. Its thread is interrupted, but a JDBC call may still run to the end.
+     */
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        loading.set(false);
+    }
+
+    public boolean isLoading() {
+        return loading.get();
+    }
+
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+
+    private static void showError(RuntimeException e) {
+        e.printStackTrace();
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Lỗi");
+        alert.setHeaderText("Không thể tải dữ liệu");
+        alert.setContentText(e.getMessage());
+        alert.show();
+    }
+}
@@ -0,0 +1,277 @@
+package application.utils;
+
+import application.models.BusyMask;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Computes, for every task of a {@link SolverModel}, the slots it can still take, as a {@link BusyMask}-layout
+ * bitmask (set = feasible), so the engine starts from a smaller model.
+ * <p>
+ * A slot starts feasible when it lies in the task's session and both its teacher and its class are free. Then, up to
+ * a fixpoint:
+ * <ul>
+ *     <li>a double-period task with an even number of lessons keeps only slots that belong to a free pair of
+ *     consecutive periods of the same session;</li>
+ *     <li>a task with exactly as many feasible slots as lessons takes all of them, so they are removed from every
+ *     other task of the same teacher or class.</li>
+ * </ul>
+ * Finally each class and teacher is checked for the pigeonhole condition: its tasks must have at least as many
+ * feasible slots between them as lessons to place.
+ */
+public final class DomainReducer {
+
+    // Slots where a double period can start: periods 0-3 and 5-8 of every day
+    private static final long PAIR_STARTS;
+
+    static {
+        long bits = 0L;
+        for (int d = 0; d < BusyMask.DAYS; d++) {
+            for (int p = 0; p < BusyMask.PERIODS_PER_DAY; p++) {
+                if (p % BusyMask.PERIODS_PER_SESSION != BusyMask.PERIODS_PER_SESSION - 1) {
+                    bits |= 1L << BusyMask.index(d, p);
+                }
+            }
+        }
+        PAIR_STARTS = bits;
+    }
+
+    private DomainReducer() {
+    }
+
+    public static Result reduce(SolverModel model) {
+        return reduce(model, null, null, null, null);
+    }
+
+    /**
+     * Same as {@link #reduce(SolverModel)}, reusing the domains of an earlier run where no change can reach them.
+     * Propagation only moves slots between tasks sharing a teacher or class, so a task's domain depends on nothing
+     * outside its connected component of tasks linked by a shared teacher or class. Components holding a changed
+     * task, or a teacher or class that lost a task, are reduced again from scratch; every other task keeps
+     * {@code previous}. The statistics cover all tasks.
+     *
+     * @param previous        domain of each task in the earlier run, indexed like this model's tasks; only read for
+     *                        tasks that did not change. Null reduces every task
+     * @param changedTasks    tasks that are new or whose join changed since the earlier run
+     * @param changedTeachers teachers that lost a task or whose tasks changed, as indexes of this model
+     * @param changedClasses  same for classes
+     */
+    static Result reduce(SolverModel model, long[] previous, boolean[] changedTasks, BitSet changedTeachers,
+                         BitSet changedClasses) {
+        int n = model.taskCount();
+        int[][] byTeacher = group(n, model.teachers().size(), model::teacherOf);
+        int[][] byClass = group(n, model.classes().size(), model::classOf);
+        boolean[] reused = previous != null
+                ? unreached(model, byTeacher, byClass, changedTasks, changedTeachers, changedClasses)
+                : new boolean[n];
+
+        long[] domains = new long[n];
+        boolean[] pairs = new boolean[n];
+        long slotsBefore = 0;
+
+        for (int t = 0; t < n; t++) {
+            long free = BusyMask.session(model.sessionOf(t)).bits()
+                    & ~model.teacherBusy(model.teacherOf(t))
+                    & ~model.classBusy(model.classOf(t));
+            // An odd count leaves one single lesson, which may go anywhere
+            pairs[t] = model.isDoubled(t) && model.periodsOf(t) % 2 == 0;
+            domains[t] = reused[t] ? previous[t] : free;
+            slotsBefore += Long.bitCount(free);
+        }
+
+        // A reused task's component holds reused tasks only, all already at their fixpoint
+        int[] active = new int[n];
+        int activeCount = 0;
+        for (int t = 0; t < n; t++) {
+            if (!reused[t]) active[activeCount++] = t;
+        }
+        active = Arrays.copyOf(active, activeCount);
+
+        // Domain a forced task last removed from its neighbours; it is only propagated again if it changed
+        long[] propagated = new long[n];
+        int rounds = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            rounds++;
+
+            for (int t : active) {
+                if (!pairs[t]) continue;
+                long reduced = pairCells(domains[t]);
+                if (reduced != domains[t]) {
+                    domains[t] = reduced;
+                    changed = true;
+                }
+            }
+
+            for (int t : active) {
+                int periods = model.periodsOf(t);
+                if (periods <= 0 || Long.bitCount(domains[t]) != periods || propagated[t] == domains[t]) continue;
+                propagated[t] = domains[t];
+                changed |= removeFromOthers(domains, byTeacher[model.teacherOf(t)], t);
+                changed |= removeFromOthers(domains, byClass[model.classOf(t)], t);
+            }
+        }
+
+        long slotsAfter = 0;
+        int forced = 0;
+        int infeasible = 0;
+        int minDomain = n > 0 ? Integer.MAX_VALUE : 0;
+        for (int t = 0; t < n; t++) {
+            int size = Long.bitCount(domains[t]);
+            slotsAfter += size;
+            minDomain = Math.min(minDomain, size);
+            if (size < model.periodsOf(t)) infeasible++;
+            else if (size == model.periodsOf(t)) forced++;
+        }
+
+        Stats stats = new Stats(n, slotsBefore, slotsAfter, minDomain, forced, infeasible,
+                overloaded(model, domains, byClass), overloaded(model, domains, byTeacher), rounds);
+        return new Result(domains, reused, stats);
+    }
+
+    /**
+     * Tasks no change can reach: a breadth-first walk from the changed tasks, teachers and classes through the
+     * teacher and class groups, visiting each group once.
+     */
+    private static boolean[] unreached(SolverModel model, int[][] byTeacher, int[][] byClass, boolean[] changedTasks,
+                                       BitSet changedTeachers, BitSet changedClasses) {
+        int n = model.taskCount();
+        boolean[] reached = new boolean[n];
+        boolean[] teacherSeen = new boolean[byTeacher.length];
+        boolean[] classSeen = new boolean[byClass.length];
+        int[] queue = new int[n];
+        int tail = 0;
+
+        for (int t = 0; t < n; t++) {
+            if (changedTasks[t]) {
+                reached[t] = true;
+                queue[tail++] = t;
+            }
+        }
+        for (int k = changedTeachers.nextSetBit(0); k >= 0 && k < byTeacher.length; k = changedTeachers.nextSetBit(k + 1)) {
+            teacherSeen[k] = true;
+            tail = visit(byTeacher[k], reached, queue, tail);
+        }
+        for (int k = changedClasses.nextSetBit(0); k >= 0 && k < byClass.length; k = changedClasses.nextSetBit(k + 1)) {
+            classSeen[k] = true;
+            tail = visit(byClass[k], reached, queue, tail);
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int t = queue[head];
+            int teacher = model.teacherOf(t);
+            if (!teacherSeen[teacher]) {
+                teacherSeen[teacher] = true;
+                tail = visit(byTeacher[teacher], reached, queue, tail);
+            }
+            int clazz = model.classOf(t);
+            if (!classSeen[clazz]) {
+                classSeen[clazz] = true;
+                tail = visit(byClass[clazz], reached, queue, tail);
+            }
+        }
+
+        boolean[] unreached = new boolean[n];
+        for (int t = 0; t < n; t++) unreached[t] = !reached[t];
+        return unreached;
+    }
+
+    private static int visit(int[] tasks, boolean[] reached, int[] queue, int tail) {
+        for (int t : tasks) {
+            if (reached[t]) continue;
+            reached[t] = true;
+            queue[tail++] = t;
+        }
+        return tail;
+    }
+
+    /**
+     * Keeps the slots that are one half of a pair of consecutive feasible periods.
+     */
+    static long pairCells(long domain) {
+        long starts = domain & (domain >>> 1) & PAIR_STARTS;
+        return starts | (starts << 1);
+    }
+
+    private static boolean removeFromOthers(long[] domains, int[] tasks, int owner) {
+        boolean changed = false;
+        long taken = domains[owner];
+        for (int u : tasks) {
+            if (u == owner) continue;
+            long reduced = domains[u] & ~taken;
+            if (reduced != domains[u]) {
+                domains[u] = reduced;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Number of groups whose tasks need more lessons than their feasible slots can hold.
+     */
+    private static int overloaded(SolverModel model, long[] domains, int[][] groups) {
+        int count = 0;
+        for (int[] tasks : groups) {
+            long union = 0L;
+            int demand = 0;
+            for (int t : tasks) {
+                union |= domains[t];
+                demand += model.periodsOf(t);
+            }
+            if (demand > Long.bitCount(union)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Task indexes per key (teacher or class), via a counting sort.
+     */
+    static int[][] group(int n, int keys, IntUnaryOperator keyOf) {
+        int[] sizes = new int[keys];
+        for (int t = 0; t < n; t++) sizes[keyOf.applyAsInt(t)]++;
+
+        int[][] groups = new int[keys][];
+        for (int k = 0; k < keys; k++) groups[k] = new int[sizes[k]];
+
+        int[] fill = new int[keys];
+        for (int t = 0; t < n; t++) {
+            int k = keyOf.applyAsInt(t);
+            groups[k][fill[k]++] = t;
+        }
+        return groups;
+    }
+
+    /**
+     * @param domains feasible slots per task, indexed like the model's tasks
+     * @param reused  tasks whose domain was taken from an earlier run instead of reduced again
+     */
+    public record Result(long[] domains, boolean[] reused, Stats stats) {
+    }
+
+    /**
+     * @param slotsBefore        feasible slots over all tasks before propagation
+     * @param forcedTasks        tasks left with exactly as many slots as lessons
+     * @param infeasibleTasks    tasks left with fewer slots than lessons
+     * @param overloadedClasses  classes failing the pigeonhole check
+     * @param overloadedTeachers teachers failing the pigeonhole check
+     */
+    public record Stats(int tasks, long slotsBefore, long slotsAfter, int minDomain, int forcedTasks,
+                        int infeasibleTasks, int overloadedClasses, int overloadedTeachers, int rounds) {
+
+        public double averageBefore() {
+            return tasks > 0 ? (double) slotsBefore / tasks : 0;
+        }
+
+        public double averageAfter() {
+            return tasks > 0 ? (double) slotsAfter / tasks : 0;
+        }
+
+        public boolean isInfeasible() {
+            return infeasibleTasks > 0 || overloadedClasses > 0 || overloadedTeachers > 0;
+        }
+    }
+}
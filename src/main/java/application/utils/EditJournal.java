@@ -0,0 +1,65 @@
+package application.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo/redo stacks of the edits made in one view. An {@link Edit} changes the view's state in memory (and hands
+ * its write to the background writer), so undoing a mistake is as cheap as making it.
+ */
+public final class EditJournal {
+
+    // Oldest edits are forgotten beyond this
+    private static final int MAX_UNDO = 200;
+
+    private final Deque<Edit> undo = new ArrayDeque<>();
+    private final Deque<Edit> redo = new ArrayDeque<>();
+
+    /**
+     * One reversible change.
+     */
+    public interface Edit {
+        void apply();
+
+        void revert();
+    }
+
+    /**
+     * Applies a new edit; anything undone before can no longer be redone.
+     */
+    public void perform(Edit edit) {
+        edit.apply();
+        undo.push(edit);
+        if (undo.size() > MAX_UNDO) undo.removeLast();
+        redo.clear();
+    }
+
+    public boolean undo() {
+        Edit edit = undo.poll();
+        if (edit == null) return false;
+        edit.revert();
+        redo.push(edit);
+        return true;
+    }
+
+    public boolean redo() {
+        Edit edit = redo.poll();
+        if (edit == null) return false;
+        edit.apply();
+        undo.push(edit);
+        return true;
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    public void clear() {
+        undo.clear();
+        redo.clear();
+    }
+}
@@ -108,27 +108,25 @@ public class ExcelExporter {
     }
 
     public void prepareData() {
-        List<Grade> grades = repo.getGradeRepository().getAll();
-        classes.addAll(repo.getClassRepository().getAll());
+        // One read for everything, the schedule included, instead of two queries per class and teacher
+        SchoolSnapshot snapshot = repo.loadSnapshot(true);
+        classes.addAll(snapshot.getClasses());
 
-        grades.forEach(g ->
+        snapshot.getGrades().forEach(g ->
                 gradeMap.putIfAbsent(g.getId(), g)
         );
 
         classes.forEach(c -> {
             classMap.put(c.getId(), c);
-            List<ScheduleItem> scheduleItems = repo.getScheduleRepository().getByClassId(c.getId());
-            classScheduleMap.put(c.getId(), scheduleItems);
+            classScheduleMap.put(c.getId(), new ArrayList<>(snapshot.getScheduleOfClass(c.getId())));
         });
 
-        List<Subject> subjects = repo.getSubjectRepository().getAll();
-        subjects.forEach(s -> subjectMap.putIfAbsent(s.getId(), s));
+        snapshot.getSubjects().forEach(s -> subjectMap.putIfAbsent(s.getId(), s));
 
-        teachers.addAll(repo.getTeacherRepository().getAll());
+        teachers.addAll(snapshot.getTeachers());
         teachers.forEach(t -> {
             teacherMap.put(t.getId(), t);
-            List<ScheduleItem> items = repo.getScheduleRepository().getByTeacherId(t.getId());
-            teacherScheduleMap.put(t.getId(), items);
+            teacherScheduleMap.put(t.getId(), new ArrayList<>(snapshot.getScheduleOfTeacher(t.getId())));
         });
     }
 
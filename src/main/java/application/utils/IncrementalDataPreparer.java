@@ -0,0 +1,312 @@
+package application.utils;
+
+import application.models.*;
+import application.repository.EntityVersionRepository;
+import application.repository.RepositoryOrchestrator;
+import scheduler.common.models.TaskData;
+
+import java.util.*;
+
+/**
+ * Long-lived {@link SchedulerDataPreparer}: keeps the entities, joined tasks and reduced domains of the last run
+ * and, on the next run, reloads only the rows stamped in {@code entity_versions} since then, joins again only the
+ * assignments they touch, and reduces again only the domains those can reach (see
+ * {@link DomainReducer#reduce(SolverModel, long[], boolean[], BitSet, BitSet)}).
+ * <p>
+ * The first run, or a run after a large batch of edits, falls back to a full load. When the change bus reported no
+ * write since the last run, the version log is not even read. One instance is shared by all generation runs of the
+ * application (see {@code MainController}).
+ */
+public class IncrementalDataPreparer {
+
+    // Above this share of changed rows a bulk reload is cheaper than one lookup per row
+    private static final double FULL_RELOAD_RATIO = 0.2;
+
+    private final RepositoryOrchestrator repo;
+
+    // version < 0 means nothing is loaded
+    private long version = -1;
+    private int loadedRows;
+    private SchoolIndex index = new SchoolIndex();
+    // Per assignment id, in load order
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Clazz> classes = new HashMap<>();
+    private final Map<String, Grade> grades = new HashMap<>();
+    private final Map<String, Set<String>> assignmentsByTeacher = new HashMap<>();
+    private final Map<String, Set<String>> assignmentsByClass = new HashMap<>();
+
+    private Stats lastStats;
+    private SolverModel lastModel;
+
+    // Set by any committed write since the last run; starts set, a new instance knows nothing
+    private volatile boolean changedSinceLastRun = true;
+
+    public IncrementalDataPreparer(RepositoryOrchestrator repo) {
+        this.repo = repo;
+        repo.getChangeBus().subscribe(events -> changedSinceLastRun = true);
+    }
+
+    public synchronized List<TaskData> prepare(RunTiming timing) {
+        EntityVersionRepository versions = repo.getEntityVersionRepository();
+
+        timing.begin(RunTiming.LOAD);
+        // Cleared before reading the counter: a write committed meanwhile sets it again and is read next time too
+        boolean changed = changedSinceLastRun;
+        changedSinceLastRun = false;
+        long current;
+        List<EntityChange> changes;
+        boolean full;
+        Set<String> dirty;
+        try {
+            // Read the counter first: anything written while loading is replayed next time (reloading is idempotent)
+            current = version >= 0 && !changed ? version : versions.getCurrentVersion();
+            changes = version < 0 ? null : current == version ? List.of() : versions.getChanges(version, current);
+
+            full = changes == null || changes.size() > FULL_RELOAD_RATIO * loadedRows;
+            if (full) {
+                loadAll();
+                dirty = new LinkedHashSet<>(entries.keySet());
+            } else {
+                dirty = new LinkedHashSet<>();
+                for (EntityChange change : changes) {
+                    apply(change, dirty);
+                }
+            }
+        } catch (RuntimeException e) {
+            // The version log was not caught up with; read it again next time
+            changedSinceLastRun = true;
+            throw e;
+        }
+        version = current;
+        timing.end(full ? loadedRows : changes.size());
+
+        timing.begin(RunTiming.PREPARE);
+        BitSet changedTeachers = new BitSet();
+        BitSet changedClasses = new BitSet();
+        for (String assignmentId : dirty) {
+            rejoin(assignmentId, changedTeachers, changedClasses);
+        }
+
+        List<Entry> joined = new ArrayList<>(entries.size());
+        List<String> assignmentIds = new ArrayList<>(entries.size());
+        List<SchoolIndex.JoinedTask> tasks = new ArrayList<>(entries.size());
+        entries.forEach((id, entry) -> {
+            if (entry.task == null) return;
+            joined.add(entry);
+            assignmentIds.add(id);
+            tasks.add(entry.task);
+        });
+        SolverModel model = SolverModel.assemble(index, assignmentIds, tasks);
+
+        int n = model.taskCount();
+        long[] previous = full ? null : new long[n];
+        boolean[] changedTasks = new boolean[n];
+        for (int t = 0; t < n; t++) {
+            changedTasks[t] = joined.get(t).changed;
+            if (previous != null) previous[t] = joined.get(t).domain;
+        }
+        DomainReducer.Result domains = DomainReducer.reduce(model, previous, changedTasks, changedTeachers, changedClasses);
+        // A reused domain means the task, its teacher and every task of its class are unchanged; so is its engine
+        // input if it also kept its solver id
+        List<TaskData> taskDataList = model.toTaskData(domains.domains(),
+                t -> domains.reused()[t] && joined.get(t).solverId == t ? joined.get(t).data : null);
+
+        int reduced = 0;
+        for (int t = 0; t < n; t++) {
+            Entry entry = joined.get(t);
+            entry.changed = false;
+            entry.solverId = t;
+            entry.domain = domains.domains()[t];
+            entry.data = taskDataList.get(t);
+            if (!domains.reused()[t]) reduced++;
+        }
+        timing.end(dirty.size());
+
+        lastModel = model;
+        lastStats = new Stats(full, full ? 0 : changes.size(), dirty.size(), reduced, n, domains.stats());
+        return taskDataList;
+    }
+
+    /**
+     * What the last {@link #prepare(RunTiming)} did, for the run log.
+     */
+    public synchronized Stats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Model the last {@link #prepare(RunTiming)} sent to the engine, to check its result against.
+     */
+    public synchronized SolverModel getLastModel() {
+        return lastModel;
+    }
+
+    /**
+     * Drops the cached state; the next run does a full load.
+     */
+    public synchronized void invalidate() {
+        version = -1;
+    }
+
+    private void loadAll() {
+        index = new SchoolIndex();
+        entries.clear();
+        classes.clear();
+        grades.clear();
+        assignmentsByTeacher.clear();
+        assignmentsByClass.clear();
+
+        SchoolSnapshot snapshot = repo.loadSnapshot(false);
+        snapshot.getSessions().forEach(index::putSession);
+        snapshot.getTeachers().forEach(index::putTeacher);
+        for (Grade grade : snapshot.getGrades()) {
+            grades.put(grade.getId(), grade);
+            index.putGrade(grade);
+        }
+        snapshot.getCurricula().forEach(index::putCurriculum);
+        for (Clazz clazz : snapshot.getClasses()) {
+            classes.put(clazz.getId(), clazz);
+            index.putClass(clazz);
+        }
+        for (Assignment assignment : snapshot.getAssignments()) {
+            entries.computeIfAbsent(assignment.getId(), k -> new Entry()).assignment = assignment;
+            link(assignment);
+        }
+        loadedRows = snapshot.getSessions().size() + snapshot.getTeachers().size() + snapshot.getGrades().size()
+                + snapshot.getCurricula().size() + snapshot.getClasses().size() + snapshot.getAssignments().size();
+    }
+
+    /**
+     * Reloads the changed row (or forgets it if it was deleted) and collects the assignments whose task depends on it.
+     */
+    private void apply(EntityChange change, Set<String> dirty) {
+        String id = change.entityId();
+        switch (change.entity()) {
+            case EntityVersionRepository.TEACHER -> {
+                Teacher teacher = repo.getTeacherRepository().getById(id);
+                if (teacher != null) index.putTeacher(teacher);
+                else index.removeTeacher(id);
+                dirty.addAll(assignmentsByTeacher.getOrDefault(id, Set.of()));
+            }
+            case EntityVersionRepository.CLASS -> {
+                Clazz clazz = repo.getClassRepository().getById(id);
+                if (clazz != null) {
+                    classes.put(id, clazz);
+                    index.putClass(clazz);
+                } else {
+                    classes.remove(id);
+                    index.removeClass(id);
+                }
+                dirty.addAll(assignmentsByClass.getOrDefault(id, Set.of()));
+            }
+            case EntityVersionRepository.GRADE -> {
+                Grade grade = repo.getGradeRepository().getById(id);
+                if (grade != null) {
+                    grades.put(id, grade);
+                    index.putGrade(grade);
+                } else {
+                    grades.remove(id);
+                    index.removeGrade(id);
+                }
+                for (Clazz clazz : classes.values()) {
+                    if (id.equals(clazz.getGradeId())) dirty.addAll(assignmentsByClass.getOrDefault(clazz.getId(), Set.of()));
+                }
+            }
+            case EntityVersionRepository.CURRICULUM -> {
+                // Stamped as gradeId|subjectId
+                int sep = id.indexOf('|');
+                String gradeId = id.substring(0, sep);
+                String subjectId = id.substring(sep + 1);
+                Curriculum curriculum = repo.getCurriculumRepository().getByGradeAndSubject(gradeId, subjectId);
+                if (curriculum != null) index.putCurriculum(curriculum);
+                else index.removeCurriculum(gradeId, subjectId);
+                for (Clazz clazz : classes.values()) {
+                    if (!gradeId.equals(clazz.getGradeId())) continue;
+                    for (String assignmentId : assignmentsByClass.getOrDefault(clazz.getId(), Set.of())) {
+                        if (subjectId.equals(entries.get(assignmentId).assignment.getSubjectId())) dirty.add(assignmentId);
+                    }
+                }
+            }
+            case EntityVersionRepository.SESSION -> {
+                ESession sessionName = ESession.valueOf(id);
+                Session session = repo.getSessionRepository().getByName(sessionName);
+                if (session != null) index.putSession(session);
+                else index.removeSession(sessionName);
+                for (Clazz clazz : classes.values()) {
+                    Grade grade = grades.get(clazz.getGradeId());
+                    if (grade != null && grade.getSession() != null && grade.getSession().getSessionName() == sessionName) {
+                        dirty.addAll(assignmentsByClass.getOrDefault(clazz.getId(), Set.of()));
+                    }
+                }
+            }
+            case EntityVersionRepository.ASSIGNMENT -> {
+                // A deleted assignment keeps its entry until rejoin(), which needs its old task
+                Entry entry = entries.computeIfAbsent(id, k -> new Entry());
+                if (entry.assignment != null) unlink(entry.assignment);
+                entry.assignment = repo.getAssignmentRepository().getById(id);
+                if (entry.assignment != null) link(entry.assignment);
+                dirty.add(id);
+            }
+            default -> {
+                // Not an input of the scheduler
+            }
+        }
+    }
+
+    /**
+     * Joins the assignment again, or drops it if it was deleted. The teacher and class of its old task are marked
+     * changed: they lost that task, and the domains of their other tasks may grow back.
+     */
+    private void rejoin(String assignmentId, BitSet changedTeachers, BitSet changedClasses) {
+        Entry entry = entries.get(assignmentId);
+        if (entry.task != null) {
+            changedTeachers.set(entry.task.teacher());
+            changedClasses.set(entry.task.clazz());
+        }
+        if (entry.assignment == null) {
+            entries.remove(assignmentId);
+            return;
+        }
+        entry.task = index.join(entry.assignment);
+        entry.changed = true;
+        entry.solverId = -1;
+        entry.data = null;
+    }
+
+    private void link(Assignment assignment) {
+        assignmentsByTeacher.computeIfAbsent(assignment.getTeacherId(), k -> new HashSet<>()).add(assignment.getId());
+        assignmentsByClass.computeIfAbsent(assignment.getClassId(), k -> new HashSet<>()).add(assignment.getId());
+    }
+
+    private void unlink(Assignment assignment) {
+        Set<String> byTeacher = assignmentsByTeacher.get(assignment.getTeacherId());
+        if (byTeacher != null) byTeacher.remove(assignment.getId());
+        Set<String> byClass = assignmentsByClass.get(assignment.getClassId());
+        if (byClass != null) byClass.remove(assignment.getId());
+    }
+
+    /**
+     * One assignment row and what the last run made of it.
+     */
+    private static final class Entry {
+        // Null once the assignment is deleted, until rejoin() drops the entry
+        Assignment assignment;
+        // Null when the assignment is left out of the run
+        SchoolIndex.JoinedTask task;
+        // Joined again since the last run
+        boolean changed;
+        int solverId = -1;
+        long domain;
+        TaskData data;
+    }
+
+    /**
+     * @param changedEntities rows reloaded from the version log (0 for a full load)
+     * @param rebuiltTasks    assignments joined again
+     * @param reducedTasks    tasks whose domain was reduced again rather than reused
+     * @param domains         feasible-slot statistics of the tasks sent to the engine
+     */
+    public record Stats(boolean fullLoad, int changedEntities, int rebuiltTasks, int reducedTasks, int totalTasks,
+                        DomainReducer.Stats domains) {
+    }
+}
@@ -0,0 +1,108 @@
+package application.utils;
+
+import application.models.ChangeEvent;
+import application.repository.ChangeBus;
+import javafx.application.Platform;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The rows of some entities that were written since a view last patched itself.
+ * <p>
+ * Events from the {@link ChangeBus} are collected on the FX thread and the owner is told each time more arrive.
+ * The usual owner re-reads the pending rows with an {@link AsyncLoader} (a newer batch cancels the running read, which
+ * is fine: {@link #peek()} still holds its rows) and calls {@link #acknowledge(Batch)} once it applied them.
+ */
+public final class PendingChanges {
+
+    private final Set<String> entities;
+    // Pending rows and bulk-written entities, each with the sequence number of its latest event
+    private final Map<String, Map<String, Long>> ids = new HashMap<>();
+    private final Map<String, Long> bulk = new HashMap<>();
+    private long sequence;
+    private final Runnable unsubscribe;
+
+    /**
+     * @param entities  entities to collect; events of others are ignored
+     * @param onChanged runs on the FX thread after new events were collected
+     */
+    public PendingChanges(ChangeBus bus, Set<String> entities, Consumer<PendingChanges> onChanged) {
+        this.entities = entities;
+        this.unsubscribe = bus.subscribe(events -> {
+            List<ChangeEvent> relevant = events.stream().filter(e -> entities.contains(e.entity())).toList();
+            if (relevant.isEmpty()) return;
+            Platform.runLater(() -> {
+                relevant.forEach(this::add);
+                onChanged.accept(this);
+            });
+        });
+    }
+
+    private void add(ChangeEvent event) {
+        long seq = ++sequence;
+        if (event.isBulk()) bulk.put(event.entity(), seq);
+        else ids.computeIfAbsent(event.entity(), k -> new LinkedHashMap<>()).put(event.entityId(), seq);
+    }
+
+    /**
+     * Everything pending right now, without clearing it.
+     */
+    public Batch peek() {
+        Map<String, Map<String, Long>> copy = new HashMap<>();
+        ids.forEach((entity, rows) -> copy.put(entity, Map.copyOf(rows)));
+        return new Batch(copy, Map.copyOf(bulk));
+    }
+
+    /**
+     * Forgets the rows of a batch that was applied. Rows written again since {@link #peek()} stay pending: a row is
+     * only forgotten while its latest event is still the one the batch saw.
+     */
+    public void acknowledge(Batch batch) {
+        for (String entity : entities) {
+            Map<String, Long> rows = ids.get(entity);
+            if (rows == null) continue;
+            batch.rows.getOrDefault(entity, Map.of()).forEach(rows::remove);
+            if (rows.isEmpty()) ids.remove(entity);
+        }
+        batch.bulk.forEach(bulk::remove);
+    }
+
+    /**
+     * Stops collecting; for views leaving the view cache.
+     */
+    public void close() {
+        unsubscribe.run();
+    }
+
+    /**
+     * Written rows by entity, and entities written by statements that did not name their rows (their views reload
+     * them all), each with the sequence number of its latest event at {@link #peek()}.
+     */
+    public static final class Batch {
+
+        private final Map<String, Map<String, Long>> rows;
+        private final Map<String, Long> bulk;
+
+        private Batch(Map<String, Map<String, Long>> rows, Map<String, Long> bulk) {
+            this.rows = rows;
+            this.bulk = bulk;
+        }
+
+        public Set<String> ids(String entity) {
+            return rows.getOrDefault(entity, Map.of()).keySet();
+        }
+
+        public boolean isBulk(String entity) {
+            return bulk.containsKey(entity);
+        }
+
+        public boolean isEmpty() {
+            return rows.isEmpty() && bulk.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package application.utils;
+
+import application.models.BusyMask;
+import application.models.ESession;
+import application.models.EWeekDay;
+import scheduler.common.models.Slot;
+import scheduler.common.models.Variable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Checks an engine result against the {@link SolverModel} it was solved from, before anything is saved.
+ * <p>
+ * The result is first folded into one slot bitmask per task; the checks are then bit operations, run in parallel
+ * over tasks, teachers and classes:
+ * <ul>
+ *     <li>every lesson names a known assignment and a valid slot of the task's session;</li>
+ *     <li>no slot where the teacher or the class is busy;</li>
+ *     <li>no two lessons of one teacher, or of one class, in the same slot;</li>
+ *     <li>each assignment gets exactly its periods per week;</li>
+ *     <li>double-period subjects come in pairs of consecutive periods (one single lesson allowed if odd).</li>
+ * </ul>
+ */
+public final class ScheduleValidator {
+
+    // Detailed messages kept per report; the counts are always complete
+    private static final int MAX_DETAILS = 50;
+
+    private ScheduleValidator() {
+    }
+
+    public static Report validate(SolverModel model, Map<Variable, Slot> result) {
+        int n = model.taskCount();
+        long[] placed = new long[n];
+        int[] lessons = new int[n];
+        Collector collector = new Collector();
+
+        // Sequential fold: cheap, and keeps the per-task masks race free
+        for (Map.Entry<Variable, Slot> entry : result.entrySet()) {
+            String assignmentId = entry.getKey().assignmentId();
+            int t = model.assignments().indexOf(assignmentId);
+            if (t == SymbolTable.MISSING) {
+                collector.add(Kind.UNKNOWN_ASSIGNMENT, assignmentId, "phân công không có trong dữ liệu đầu vào");
+                continue;
+            }
+
+            Slot slot = entry.getValue();
+            ESession session = ESession.valueOf(slot.session().name());
+            int s = TimetableIndex.slot(EWeekDay.valueOf(slot.day().name()), session, slot.period());
+            if (s < 0) {
+                collector.add(Kind.INVALID_SLOT, assignmentId, slot.day() + " tiết " + slot.period());
+                continue;
+            }
+            if (session != model.sessionOf(t)) {
+                collector.add(Kind.WRONG_SESSION, assignmentId, slot.day() + " " + session + " tiết " + slot.period());
+            }
+
+            long bit = 1L << s;
+            if ((placed[t] & bit) != 0) {
+                collector.add(Kind.CLASS_CLASH, model.classes().idOf(model.classOf(t)),
+                        "phân công " + assignmentId + " xếp hai lần vào " + slot.day() + " tiết " + slot.period());
+            }
+            placed[t] |= bit;
+            lessons[t]++;
+        }
+
+        IntStream.range(0, n).parallel().forEach(t -> checkTask(model, t, placed[t], lessons[t], collector));
+
+        int[][] byTeacher = DomainReducer.group(n, model.teachers().size(), model::teacherOf);
+        int[][] byClass = DomainReducer.group(n, model.classes().size(), model::classOf);
+        IntStream.range(0, byTeacher.length).parallel()
+                .forEach(k -> checkClashes(byTeacher[k], placed, Kind.TEACHER_CLASH, model.teachers().idOf(k), collector));
+        IntStream.range(0, byClass.length).parallel()
+                .forEach(k -> checkClashes(byClass[k], placed, Kind.CLASS_CLASH, model.classes().idOf(k), collector));
+
+        return collector.report(result.size());
+    }
+
+    private static void checkTask(SolverModel model, int t, long placed, int lessons, Collector collector) {
+        String assignmentId = model.assignments().idOf(t);
+
+        long busy = model.teacherBusy(model.teacherOf(t)) | model.classBusy(model.classOf(t));
+        if ((placed & busy) != 0) {
+            collector.add(Kind.BUSY_SLOT, assignmentId, Long.bitCount(placed & busy) + " tiết rơi vào giờ bận");
+        }
+
+        if (lessons != model.periodsOf(t)) {
+            collector.add(Kind.PERIOD_COUNT, assignmentId, lessons + "/" + model.periodsOf(t) + " tiết");
+        }
+
+        if (model.isDoubled(t) && oddRuns(placed) > model.periodsOf(t) % 2) {
+            collector.add(Kind.DOUBLE_PERIOD, assignmentId, "tiết đôi bị tách rời");
+        }
+    }
+
+    /**
+     * Runs of consecutive periods (within one session of one day) with an odd length.
+     */
+    static int oddRuns(long placed) {
+        int odd = 0;
+        for (int segment = 0; segment < BusyMask.SIZE; segment += BusyMask.PERIODS_PER_SESSION) {
+            int run = 0;
+            for (int p = 0; p <= BusyMask.PERIODS_PER_SESSION; p++) {
+                boolean set = p < BusyMask.PERIODS_PER_SESSION && (placed & (1L << (segment + p))) != 0;
+                if (set) {
+                    run++;
+                } else {
+                    if (run % 2 == 1) odd++;
+                    run = 0;
+                }
+            }
+        }
+        return odd;
+    }
+
+    private static void checkClashes(int[] tasks, long[] placed, Kind kind, String entityId, Collector collector) {
+        long seen = 0L;
+        long clashes = 0L;
+        for (int t : tasks) {
+            clashes |= seen & placed[t];
+            seen |= placed[t];
+        }
+        if (clashes != 0) {
+            collector.add(kind, entityId, Long.bitCount(clashes) + " tiết bị trùng");
+        }
+    }
+
+    public enum Kind {
+        UNKNOWN_ASSIGNMENT,
+        INVALID_SLOT,
+        WRONG_SESSION,
+        BUSY_SLOT,
+        TEACHER_CLASH,
+        CLASS_CLASH,
+        PERIOD_COUNT,
+        DOUBLE_PERIOD
+    }
+
+    /**
+     * @param entityId assignment, teacher or class the violation is about
+     */
+    public record Violation(Kind kind, String entityId, String detail) {
+        @Override
+        public String toString() {
+            return kind + " [" + entityId + "]: " + detail;
+        }
+    }
+
+    /**
+     * @param counts     violations per kind
+     * @param violations the first violations found, at most {@value #MAX_DETAILS}
+     */
+    public record Report(int lessons, Map<Kind, Integer> counts, List<Violation> violations) {
+
+        public boolean isValid() {
+            return counts.isEmpty();
+        }
+
+        public int total() {
+            return counts.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    private static final class Collector {
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(Kind.values().length);
+        private final Queue<Violation> details = new ConcurrentLinkedQueue<>();
+
+        void add(Kind kind, String entityId, String detail) {
+            counts.incrementAndGet(kind.ordinal());
+            // Approximate under contention, which is fine for a sample
+            if (details.size() < MAX_DETAILS) details.add(new Violation(kind, entityId, detail));
+        }
+
+        Report report(int lessons) {
+            Map<Kind, Integer> map = new EnumMap<>(Kind.class);
+            for (Kind kind : Kind.values()) {
+                int count = counts.get(kind.ordinal());
+                if (count > 0) map.put(kind, count);
+            }
+            return new Report(lessons, Collections.unmodifiableMap(map), List.copyOf(details));
+        }
+    }
+}
@@ -1,117 +1,65 @@
 package application.utils;
 
-import application.models.*;
+import application.models.RunTiming;
+import application.models.SchoolSnapshot;
 import application.repository.RepositoryOrchestrator;
 import scheduler.common.models.TaskData;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class SchedulerDataPreparer {
 
     private final RepositoryOrchestrator repo;
 
+    private DomainReducer.Stats lastDomainStats;
+
     public SchedulerDataPreparer(RepositoryOrchestrator repo) {
         this.repo = repo;
     }
 
     public List<TaskData> prepare() {
-        List<TaskData> taskDataList = new ArrayList<>();
-        int solverIdCounter = 0;
-
-        // Fetch Data (Bulk Load for optimization)
-        List<Assignment> assignments = repo.getAssignmentRepository().getAll();
-        List<Clazz> classes = repo.getClassRepository().getAll();
-        List<Grade> grades = repo.getGradeRepository().getAll();
-        List<Curriculum> curriculums = repo.getCurriculumRepository().getAll();
-        List<Teacher> teachers = repo.getTeacherRepository().getAll();
-        List<Session> sessions = repo.getSessionRepository().getAll();
-
-        // Build Lookup Maps (from O(n) to O(1))
-        Map<String, Clazz> classMap = new HashMap<>();
-        classes.forEach(c -> classMap.put(c.getId(), c));
-
-        Map<String, Grade> gradeMap = new HashMap<>();
-        grades.forEach(g -> gradeMap.put(g.getId(), g));
-
-        Map<String, Teacher> teacherMap = new HashMap<>();
-        teachers.forEach(t -> teacherMap.put(t.getId(), t));
-
-        Map<ESession, boolean[][]> sessionMatrixMap = new HashMap<>();
-        sessions.forEach(s -> sessionMatrixMap.put(s.getSessionName(), s.getBusyMatrix()));
-
-        // Curriculum map's key is: GradeID + "_" + SubjectID
-        Map<String, Curriculum> curriculumMap = new HashMap<>();
-        curriculums.forEach(c -> {
-            String key = c.getGradeId() + "_" + c.getSubjectId();
-            curriculumMap.put(key, c);
-        });
-
-        // Convert Assignment -> TaskData
-        for (Assignment assign : assignments) {
-            Clazz clazz = classMap.get(assign.getClassId());
-            if (clazz == null) continue;
-
-            Grade grade = gradeMap.get(clazz.getGradeId());
-            if (grade == null) continue;
-
-            // Find Curriculum config
-            String currKey = grade.getId() + "_" + assign.getSubjectId();
-            Curriculum curr = curriculumMap.get(currKey);
-
-            // Teacher
-            Teacher teacher = teacherMap.get(assign.getTeacherId());
-            if (teacher == null) {
-                System.err.println("WARN: Missing teacher for Assignment " + assign.getId());
-                continue;
-            }
-
-            if (curr == null) {
-                System.err.println("WARN: Missing curriculum for Class " + clazz.getClassName() + " Subject " + assign.getSubjectId());
-                continue;
-            }
-
-            boolean[][] sessionBusyMatrix = sessionMatrixMap.get(grade.getSession().getSessionName());
-            if (sessionBusyMatrix == null) {
-                sessionBusyMatrix = new boolean[EWeekDay.values().length][10];
-            }
+        return prepare(new RunTiming());
+    }
 
-            // Empty matrix for class specific busy (not yet implemented in DB)
-            boolean[][] classSpecificBusyMatrix = new boolean[EWeekDay.values().length][10];
+    /**
+     * Same as {@link #prepare()}, recording the DB load and the task building as separate phases of {@code timing}.
+     */
+    public List<TaskData> prepare(RunTiming timing) {
+        SolverModel model = buildModel(timing);
 
-            // Merge Session Busy Matrix into Class Busy Matrix
-            boolean[][] finalClassBusyMatrix = new boolean[EWeekDay.values().length][10];
-            for (int d = 0; d < EWeekDay.values().length; d++) {
-                for (int p = 0; p < 10; p++) {
-                    finalClassBusyMatrix[d][p] = sessionBusyMatrix[d][p] || classSpecificBusyMatrix[d][p];
-                }
-            }
+        // Merged into the PREPARE phase buildModel just closed
+        timing.begin(RunTiming.PREPARE);
+        DomainReducer.Result domains = DomainReducer.reduce(model);
+        List<TaskData> taskDataList = model.toTaskData(domains.domains());
+        timing.end(0);
 
-            // Clone teacher busy matrix
-            boolean[][] originalTeacherMatrix = teacher.getBusyMatrix();
-            boolean[][] teacherMatrixClone = new boolean[originalTeacherMatrix.length][];
-            for (int i = 0; i < originalTeacherMatrix.length; i++) {
-                // Clone every single row
-                teacherMatrixClone[i] = originalTeacherMatrix[i].clone();
-            }
+        lastDomainStats = domains.stats();
+        return taskDataList;
+    }
 
-            taskDataList.add(new TaskData(
-                    solverIdCounter++,
-                    assign.getId(),
-                    assign.getClassId(),
-                    assign.getSubjectId(),
-                    curr.getPeriodsPerWeek(),
-                    curr.isShouldBeDoubled(),
-                    EnumMapper.toEngineSession(grade.getSession().getSessionName()),
-                    grade.getLevel(),
-                    teacher.getId(),
-                    teacherMatrixClone,
-                    finalClassBusyMatrix
-            ));
-        }
+    /**
+     * Domain sizes of the last {@link #prepare(RunTiming)}, or null before the first one.
+     */
+    public DomainReducer.Stats getLastDomainStats() {
+        return lastDomainStats;
+    }
 
-        return taskDataList;
+    /**
+     * Loads everything and joins it into an int-indexed {@link SolverModel}; the load and the join are timed as
+     * the LOAD and PREPARE phases.
+     */
+    public SolverModel buildModel(RunTiming timing) {
+        // Fetch Data (Bulk Load for optimization, one consistent read)
+        timing.begin(RunTiming.LOAD);
+        SchoolSnapshot snapshot = repo.loadSnapshot(false);
+        timing.end(snapshot.getAssignments().size() + snapshot.getClasses().size() + snapshot.getGrades().size()
+                + snapshot.getCurricula().size() + snapshot.getTeachers().size() + snapshot.getSessions().size());
+
+        // Ids are interned once here; the join itself only indexes arrays
+        timing.begin(RunTiming.PREPARE);
+        SolverModel model = SolverModel.build(snapshot.getAssignments(), snapshot.getClasses(), snapshot.getGrades(),
+                snapshot.getCurricula(), snapshot.getTeachers(), snapshot.getSessions());
+        timing.end(model.taskCount());
+        return model;
     }
-}
\ No newline at end of file
+}
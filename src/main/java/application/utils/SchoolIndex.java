@@ -0,0 +1,191 @@
+package application.utils;
+
+import application.models.*;
+
+import java.util.Arrays;
+
+/**
+ * The rows a {@link SolverModel} is joined from, with every id interned into a {@link SymbolTable} so each lookup
+ * of the join is an array index. Rows are put and removed one at a time, so a long-lived index (see
+ * {@link IncrementalDataPreparer}) is patched with the rows that changed instead of being rebuilt. Ids are never
+ * un-interned: a removed row leaves a hole, and the indexes of all other rows stay valid across patches.
+ * <p>
+ * {@link #join(Assignment)} is the only place an assignment is matched with its class, grade, curriculum, teacher
+ * and session.
+ */
+final class SchoolIndex {
+
+    private static final int NONE = -1;
+
+    final SymbolTable teachers = new SymbolTable();
+    final SymbolTable grades = new SymbolTable();
+    final SymbolTable subjects = new SymbolTable();
+    final SymbolTable classes = new SymbolTable();
+
+    private final long[] sessionBusy = new long[ESession.values().length];
+
+    private boolean[] teacherPresent = new boolean[0];
+    private long[] teacherBusy = new long[0];
+
+    // A grade without a session is missing
+    private ESession[] gradeSession = new ESession[0];
+    private int[] gradeLevel = new int[0];
+
+    // Curriculum of (grade, subject), per grade by subject; NONE periods = no curriculum
+    private int[][] curriculumPeriods = new int[0][];
+    private boolean[][] curriculumDoubled = new boolean[0][];
+
+    private boolean[] classPresent = new boolean[0];
+    private int[] classGrade = new int[0];
+    private String[] classNames = new String[0];
+
+    void putSession(Session session) {
+        sessionBusy[session.getSessionName().ordinal()] = session.getBusyMask().bits();
+    }
+
+    void removeSession(ESession sessionName) {
+        sessionBusy[sessionName.ordinal()] = 0L;
+    }
+
+    void putTeacher(Teacher teacher) {
+        int t = teachers.intern(teacher.getId());
+        growTeachers();
+        teacherPresent[t] = true;
+        teacherBusy[t] = teacher.getBusyMask().bits();
+    }
+
+    void removeTeacher(String id) {
+        int t = teachers.indexOf(id);
+        if (t == SymbolTable.MISSING) return;
+        teacherPresent[t] = false;
+        teacherBusy[t] = 0L;
+    }
+
+    void putGrade(Grade grade) {
+        int g = grades.intern(grade.getId());
+        growGrades();
+        gradeLevel[g] = grade.getLevel();
+        gradeSession[g] = grade.getSession() != null ? grade.getSession().getSessionName() : null;
+    }
+
+    void removeGrade(String id) {
+        int g = grades.indexOf(id);
+        if (g != SymbolTable.MISSING) gradeSession[g] = null;
+    }
+
+    void putCurriculum(Curriculum curriculum) {
+        int g = grades.intern(curriculum.getGradeId());
+        int s = subjects.intern(curriculum.getSubjectId());
+        growGrades();
+        int[] periods = curriculumPeriods[g];
+        if (periods.length <= s) {
+            int old = periods.length;
+            int length = Math.max(subjects.size(), old * 2);
+            periods = curriculumPeriods[g] = Arrays.copyOf(periods, length);
+            Arrays.fill(periods, old, length, NONE);
+            curriculumDoubled[g] = Arrays.copyOf(curriculumDoubled[g], length);
+        }
+        periods[s] = curriculum.getPeriodsPerWeek();
+        curriculumDoubled[g][s] = curriculum.isShouldBeDoubled();
+    }
+
+    void removeCurriculum(String gradeId, String subjectId) {
+        int g = grades.indexOf(gradeId);
+        int s = subjects.indexOf(subjectId);
+        if (g == SymbolTable.MISSING || s == SymbolTable.MISSING || curriculumPeriods[g].length <= s) return;
+        curriculumPeriods[g][s] = NONE;
+    }
+
+    void putClass(Clazz clazz) {
+        int c = classes.intern(clazz.getId());
+        int g = clazz.getGradeId() != null ? grades.intern(clazz.getGradeId()) : NONE;
+        growClasses();
+        growGrades();
+        classPresent[c] = true;
+        classGrade[c] = g;
+        classNames[c] = clazz.getClassName();
+    }
+
+    void removeClass(String id) {
+        int c = classes.indexOf(id);
+        if (c != SymbolTable.MISSING) classPresent[c] = false;
+    }
+
+    /**
+     * The task of one assignment, or null when a row it refers to is missing and the assignment is left out of the
+     * run; a missing teacher or curriculum is warned about.
+     */
+    JoinedTask join(Assignment assign) {
+        int c = classes.indexOf(assign.getClassId());
+        if (c == SymbolTable.MISSING || !classPresent[c]) return null;
+        int g = classGrade[c];
+        if (g == NONE || gradeSession[g] == null) return null;
+
+        int t = teachers.indexOf(assign.getTeacherId());
+        if (t == SymbolTable.MISSING || !teacherPresent[t]) {
+            System.err.println("WARN: Missing teacher for Assignment " + assign.getId());
+            return null;
+        }
+
+        int s = subjects.indexOf(assign.getSubjectId());
+        int[] periods = curriculumPeriods[g];
+        if (s == SymbolTable.MISSING || s >= periods.length || periods[s] == NONE) {
+            System.err.println("WARN: Missing curriculum for Class " + classNames[c] + " Subject " + assign.getSubjectId());
+            return null;
+        }
+
+        return new JoinedTask(c, s, t, periods[s], curriculumDoubled[g][s], gradeSession[g], gradeLevel[g]);
+    }
+
+    /**
+     * Busy slots of a class: those of its grade's session. Class specific busy slots are not yet stored in the DB.
+     */
+    long classBusy(int clazz) {
+        if (!classPresent[clazz] || classGrade[clazz] == NONE) return 0L;
+        ESession session = gradeSession[classGrade[clazz]];
+        return session != null ? sessionBusy[session.ordinal()] : 0L;
+    }
+
+    long teacherBusy(int teacher) {
+        return teacherBusy[teacher];
+    }
+
+    private void growTeachers() {
+        int size = teachers.size();
+        if (teacherPresent.length >= size) return;
+        int length = Math.max(size, teacherPresent.length * 2);
+        teacherPresent = Arrays.copyOf(teacherPresent, length);
+        teacherBusy = Arrays.copyOf(teacherBusy, length);
+    }
+
+    private void growGrades() {
+        int size = grades.size();
+        int old = gradeSession.length;
+        if (old >= size) return;
+        int length = Math.max(size, old * 2);
+        gradeSession = Arrays.copyOf(gradeSession, length);
+        gradeLevel = Arrays.copyOf(gradeLevel, length);
+        curriculumPeriods = Arrays.copyOf(curriculumPeriods, length);
+        curriculumDoubled = Arrays.copyOf(curriculumDoubled, length);
+        for (int g = old; g < length; g++) {
+            curriculumPeriods[g] = new int[0];
+            curriculumDoubled[g] = new boolean[0];
+        }
+    }
+
+    private void growClasses() {
+        int size = classes.size();
+        if (classPresent.length >= size) return;
+        int length = Math.max(size, classPresent.length * 2);
+        classPresent = Arrays.copyOf(classPresent, length);
+        classGrade = Arrays.copyOf(classGrade, length);
+        classNames = Arrays.copyOf(classNames, length);
+    }
+
+    /**
+     * One joined assignment; the ints are indexes into the tables of the index it was joined by.
+     */
+    record JoinedTask(int clazz, int subject, int teacher, int periods, boolean doubled, ESession session,
+                      int gradeLevel) {
+    }
+}
@@ -0,0 +1,233 @@
+package application.utils;
+
+import application.models.*;
+import scheduler.common.models.TaskData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * The scheduling problem with every entity replaced by a dense int: task {@code t} is the t-th schedulable
+ * assignment (and its solver id), classes and teachers are indexes into {@link #classes()} and {@link #teachers()}.
+ * <p>
+ * Built once per run from the joined rows; string ids are only looked at again when the model is turned into
+ * {@link TaskData} for the engine.
+ */
+public final class SolverModel {
+
+    private final SymbolTable assignments;
+    private final SymbolTable classes;
+    private final SymbolTable subjects;
+    private final SymbolTable teachers;
+
+    // Per task
+    private final int[] taskClass;
+    private final int[] taskSubject;
+    private final int[] taskTeacher;
+    private final int[] taskPeriods;
+    private final boolean[] taskDoubled;
+    private final ESession[] taskSession;
+    private final int[] taskGradeLevel;
+
+    // Per class / teacher
+    private final long[] classBusy;
+    private final long[] teacherBusy;
+
+    private SolverModel(SymbolTable assignments, SymbolTable classes, SymbolTable subjects, SymbolTable teachers,
+                        int[] taskClass, int[] taskSubject, int[] taskTeacher, int[] taskPeriods, boolean[] taskDoubled,
+                        ESession[] taskSession, int[] taskGradeLevel, long[] classBusy, long[] teacherBusy) {
+        this.assignments = assignments;
+        this.classes = classes;
+        this.subjects = subjects;
+        this.teachers = teachers;
+        this.taskClass = taskClass;
+        this.taskSubject = taskSubject;
+        this.taskTeacher = taskTeacher;
+        this.taskPeriods = taskPeriods;
+        this.taskDoubled = taskDoubled;
+        this.taskSession = taskSession;
+        this.taskGradeLevel = taskGradeLevel;
+        this.classBusy = classBusy;
+        this.teacherBusy = teacherBusy;
+    }
+
+    /**
+     * Joins the rows of one load (see {@link SchoolIndex#join(Assignment)}). Assignments whose class, grade,
+     * teacher or curriculum is missing are left out; tasks keep the order of {@code assignmentRows}.
+     */
+    public static SolverModel build(Collection<Assignment> assignmentRows, Collection<Clazz> classRows,
+                                    Collection<Grade> gradeRows, Collection<Curriculum> curriculumRows,
+                                    Collection<Teacher> teacherRows, Collection<Session> sessionRows) {
+        SchoolIndex index = new SchoolIndex();
+        sessionRows.forEach(index::putSession);
+        teacherRows.forEach(index::putTeacher);
+        gradeRows.forEach(index::putGrade);
+        curriculumRows.forEach(index::putCurriculum);
+        classRows.forEach(index::putClass);
+
+        List<String> assignmentIds = new ArrayList<>(assignmentRows.size());
+        List<SchoolIndex.JoinedTask> tasks = new ArrayList<>(assignmentRows.size());
+        for (Assignment assign : assignmentRows) {
+            SchoolIndex.JoinedTask task = index.join(assign);
+            if (task == null) continue;
+            assignmentIds.add(assign.getId());
+            tasks.add(task);
+        }
+        return assemble(index, assignmentIds, tasks);
+    }
+
+    /**
+     * Model of already joined tasks, in the given order. The tables of {@code index} are copied, so patching the
+     * index afterwards does not change this model.
+     *
+     * @param assignmentIds id of the assignment of each task, parallel to {@code tasks}
+     */
+    static SolverModel assemble(SchoolIndex index, List<String> assignmentIds, List<SchoolIndex.JoinedTask> tasks) {
+        int n = tasks.size();
+        SymbolTable assignments = new SymbolTable(n);
+        int[] taskClass = new int[n];
+        int[] taskSubject = new int[n];
+        int[] taskTeacher = new int[n];
+        int[] taskPeriods = new int[n];
+        boolean[] taskDoubled = new boolean[n];
+        ESession[] taskSession = new ESession[n];
+        int[] taskGradeLevel = new int[n];
+        for (int t = 0; t < n; t++) {
+            SchoolIndex.JoinedTask task = tasks.get(t);
+            assignments.intern(assignmentIds.get(t));
+            taskClass[t] = task.clazz();
+            taskSubject[t] = task.subject();
+            taskTeacher[t] = task.teacher();
+            taskPeriods[t] = task.periods();
+            taskDoubled[t] = task.doubled();
+            taskSession[t] = task.session();
+            taskGradeLevel[t] = task.gradeLevel();
+        }
+
+        long[] classBusy = new long[index.classes.size()];
+        for (int c = 0; c < classBusy.length; c++) classBusy[c] = index.classBusy(c);
+        long[] teacherBusy = new long[index.teachers.size()];
+        for (int t = 0; t < teacherBusy.length; t++) teacherBusy[t] = index.teacherBusy(t);
+
+        return new SolverModel(assignments, index.classes.copy(), index.subjects.copy(), index.teachers.copy(),
+                taskClass, taskSubject, taskTeacher, taskPeriods, taskDoubled, taskSession, taskGradeLevel,
+                classBusy, teacherBusy);
+    }
+
+    /**
+     * The engine input, solver id = task index. This is where the ints are mapped back to ids.
+     */
+    public List<TaskData> toTaskData() {
+        return toTaskData(null);
+    }
+
+    /**
+     * Same as {@link #toTaskData()}, shipping what the reduced domains prove for a whole class. The proto contract
+     * has no per-task domain field, and the engine may read a class's availability from any one of its tasks, so
+     * the class busy matrix must be the same for all tasks of a class: it marks the slots where <em>no</em> task of
+     * the class can go (its busy slots, plus slots every task lost to its teacher, session or propagation).
+     * Reductions that hold for one task only, e.g. a slot forced for one subject, are not sent until the contract
+     * has a domain field. The teacher matrix is sent unchanged.
+     *
+     * @param domains feasible slots per task from {@link DomainReducer}, or null to send the raw busy slots
+     */
+    public List<TaskData> toTaskData(long[] domains) {
+        return toTaskData(domains, t -> null);
+    }
+
+    /**
+     * Same as {@link #toTaskData(long[])}, taking the element of task {@code t} from {@code reuse} when it returns
+     * one: a caller that knows nothing a task's {@link TaskData} is made from has changed since an earlier run
+     * hands that one back instead of building two fresh matrices.
+     */
+    List<TaskData> toTaskData(long[] domains, IntFunction<TaskData> reuse) {
+        long[] classUnavailable = classBusy.clone();
+        if (domains != null) {
+            long[] classFeasible = new long[classBusy.length];
+            for (int t = 0; t < taskCount(); t++) {
+                classFeasible[taskClass[t]] |= domains[t];
+            }
+            for (int c = 0; c < classFeasible.length; c++) {
+                classUnavailable[c] |= ~classFeasible[c];
+            }
+        }
+
+        List<TaskData> list = new ArrayList<>(taskCount());
+        for (int t = 0; t < taskCount(); t++) {
+            TaskData reused = reuse.apply(t);
+            if (reused != null) {
+                list.add(reused);
+                continue;
+            }
+            list.add(new TaskData(
+                    t,
+                    assignments.idOf(t),
+                    classes.idOf(taskClass[t]),
+                    subjects.idOf(taskSubject[t]),
+                    taskPeriods[t],
+                    taskDoubled[t],
+                    EnumMapper.toEngineSession(taskSession[t]),
+                    taskGradeLevel[t],
+                    teachers.idOf(taskTeacher[t]),
+                    // The engine contract takes matrices; toMatrix() always returns fresh arrays
+                    new BusyMask(teacherBusy[taskTeacher[t]]).toMatrix(),
+                    new BusyMask(classUnavailable[taskClass[t]]).toMatrix()
+            ));
+        }
+        return list;
+    }
+
+    public int taskCount() {
+        return taskClass.length;
+    }
+
+    public SymbolTable assignments() {
+        return assignments;
+    }
+
+    public SymbolTable classes() {
+        return classes;
+    }
+
+    public SymbolTable subjects() {
+        return subjects;
+    }
+
+    public SymbolTable teachers() {
+        return teachers;
+    }
+
+    public int classOf(int task) {
+        return taskClass[task];
+    }
+
+    public int subjectOf(int task) {
+        return taskSubject[task];
+    }
+
+    public int teacherOf(int task) {
+        return taskTeacher[task];
+    }
+
+    public int periodsOf(int task) {
+        return taskPeriods[task];
+    }
+
+    public boolean isDoubled(int task) {
+        return taskDoubled[task];
+    }
+
+    public ESession sessionOf(int task) {
+        return taskSession[task];
+    }
+
+    public long classBusy(int clazz) {
+        return classBusy[clazz];
+    }
+
+    public long teacherBusy(int teacher) {
+        return teacherBusy[teacher];
+    }
+}
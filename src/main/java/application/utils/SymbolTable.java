@@ -0,0 +1,65 @@
+package application.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps entity ids (UUID strings) to dense ints {@code 0..size()-1}, in first-seen order, so the solver pipeline can
+ * work on plain arrays. Strings are hashed once when the table is filled; afterwards the int is the only key.
+ */
+public final class SymbolTable {
+
+    public static final int MISSING = -1;
+
+    private final Map<String, Integer> indexes;
+    private final List<String> ids;
+
+    public SymbolTable() {
+        this(16);
+    }
+
+    public SymbolTable(int expectedSize) {
+        this.indexes = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+        this.ids = new ArrayList<>(expectedSize);
+    }
+
+    /**
+     * Index of {@code id}, adding it if it is new.
+     */
+    public int intern(String id) {
+        Integer index = indexes.get(id);
+        if (index != null) return index;
+        int next = ids.size();
+        indexes.put(id, next);
+        ids.add(id);
+        return next;
+    }
+
+    /**
+     * Index of {@code id}, or {@link #MISSING} if it was never interned.
+     */
+    public int indexOf(String id) {
+        if (id == null) return MISSING;
+        Integer index = indexes.get(id);
+        return index != null ? index : MISSING;
+    }
+
+    /**
+     * Independent table with the same indexes, for a model that must not see later interning.
+     */
+    public SymbolTable copy() {
+        SymbolTable copy = new SymbolTable(ids.size());
+        ids.forEach(copy::intern);
+        return copy;
+    }
+
+    public String idOf(int index) {
+        return ids.get(index);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,295 @@
+package application.utils;
+
+import application.models.BusyMask;
+import application.models.ESession;
+import application.models.EWeekDay;
+import application.models.ScheduleItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The saved timetable as dense occupancy arrays, built once and shared by views instead of re-querying and
+ * re-scanning {@link ScheduleItem} lists. {@link #move} keeps it current while lessons are edited by hand.
+ * <p>
+ * Slots use the {@link BusyMask} layout ({@code day * 10 + period}, afternoon periods 5-9). Classes and teachers
+ * get dense ids through {@link SymbolTable}; {@code [entity * 60 + slot]} holds the index of the lesson there, or
+ * {@link #EMPTY}. If more lessons claim the same slot the first one stays in the array, the others go to a per-cell
+ * overflow list, and the slot is marked as a conflict of that class or teacher; nothing is dropped.
+ */
+public final class TimetableIndex {
+
+    public static final int EMPTY = -1;
+
+    private final List<ScheduleItem> items;
+    private final SymbolTable classes;
+    private final SymbolTable teachers;
+    private final int[] itemSlot;
+    private final int[] itemClass;
+    private final int[] itemTeacher;
+    private final int[] classSlots;
+    private final int[] teacherSlots;
+    private final long[] classMasks;
+    private final long[] teacherMasks;
+    // Lessons after the first one of a cell, and the slots holding more than one lesson; empty without collisions
+    private final Map<Integer, List<Integer>> classOverflow = new HashMap<>();
+    private final Map<Integer, List<Integer>> teacherOverflow = new HashMap<>();
+    private final long[] classConflicts;
+    private final long[] teacherConflicts;
+
+    private TimetableIndex(List<ScheduleItem> items) {
+        this.items = new ArrayList<>(items);
+        int n = this.items.size();
+        this.classes = new SymbolTable();
+        this.teachers = new SymbolTable();
+        this.itemSlot = new int[n];
+        this.itemClass = new int[n];
+        this.itemTeacher = new int[n];
+        for (int i = 0; i < n; i++) {
+            ScheduleItem item = this.items.get(i);
+            itemSlot[i] = slot(item.day(), item.session(), item.period());
+            itemClass[i] = classes.intern(item.classId());
+            itemTeacher[i] = teachers.intern(item.teacherId());
+        }
+
+        this.classSlots = new int[classes.size() * BusyMask.SIZE];
+        this.teacherSlots = new int[teachers.size() * BusyMask.SIZE];
+        this.classMasks = new long[classes.size()];
+        this.teacherMasks = new long[teachers.size()];
+        this.classConflicts = new long[classes.size()];
+        this.teacherConflicts = new long[teachers.size()];
+        Arrays.fill(classSlots, EMPTY);
+        Arrays.fill(teacherSlots, EMPTY);
+
+        for (int i = 0; i < n; i++) {
+            int s = itemSlot[i];
+            if (s < 0) continue;
+            placeClass(i, s);
+            placeTeacher(i, s);
+        }
+    }
+
+    public static TimetableIndex build(List<ScheduleItem> items) {
+        return new TimetableIndex(items);
+    }
+
+    private void placeClass(int item, int slot) {
+        place(classSlots, classMasks, classOverflow, classConflicts, itemClass[item], slot, item);
+    }
+
+    private void placeTeacher(int item, int slot) {
+        place(teacherSlots, teacherMasks, teacherOverflow, teacherConflicts, itemTeacher[item], slot, item);
+    }
+
+    private static void place(int[] slots, long[] masks, Map<Integer, List<Integer>> overflow, long[] conflicts,
+                              int entity, int slot, int item) {
+        int cell = entity * BusyMask.SIZE + slot;
+        masks[entity] |= 1L << slot;
+        if (slots[cell] == EMPTY) {
+            slots[cell] = item;
+            return;
+        }
+        overflow.computeIfAbsent(cell, k -> new ArrayList<>(1)).add(item);
+        conflicts[entity] |= 1L << slot;
+    }
+
+    private static void unplace(int[] slots, long[] masks, Map<Integer, List<Integer>> overflow, long[] conflicts,
+                                int entity, int slot, int item) {
+        int cell = entity * BusyMask.SIZE + slot;
+        List<Integer> extra = overflow.get(cell);
+        if (slots[cell] == item) {
+            // The next colliding lesson, if any, takes the cell
+            slots[cell] = extra != null ? extra.remove(0) : EMPTY;
+        } else if (extra != null) {
+            extra.remove(Integer.valueOf(item));
+        }
+        if (extra != null && extra.isEmpty()) {
+            overflow.remove(cell);
+            conflicts[entity] &= ~(1L << slot);
+        }
+        if (slots[cell] == EMPTY) masks[entity] &= ~(1L << slot);
+    }
+
+    /**
+     * Slot of a lesson period (1-5 within its session), or -1 if it is out of range.
+     */
+    public static int slot(EWeekDay day, ESession session, int period) {
+        if (period < 1 || period > BusyMask.PERIODS_PER_SESSION) return -1;
+        int offset = session == ESession.AFTERNOON ? BusyMask.PERIODS_PER_SESSION : 0;
+        return BusyMask.index(day.ordinal(), offset + period - 1);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public ScheduleItem item(int index) {
+        return items.get(index);
+    }
+
+    /**
+     * Lesson of the class in that slot, or null; the first one if the slot is a {@link #classConflicts conflict}.
+     */
+    public ScheduleItem atClass(String classId, int slot) {
+        return at(classSlots, classes.indexOf(classId), slot);
+    }
+
+    /**
+     * Lesson of the teacher in that slot, or null; the first one if the slot is a {@link #teacherConflicts conflict}.
+     */
+    public ScheduleItem atTeacher(String teacherId, int slot) {
+        return at(teacherSlots, teachers.indexOf(teacherId), slot);
+    }
+
+    private ScheduleItem at(int[] slots, int entity, int slot) {
+        if (entity == SymbolTable.MISSING || slot < 0) return null;
+        int item = slots[entity * BusyMask.SIZE + slot];
+        return item != EMPTY ? items.get(item) : null;
+    }
+
+    /**
+     * Every lesson of the class in that slot, in load order; more than one only in a conflict.
+     */
+    public List<ScheduleItem> allAtClass(String classId, int slot) {
+        return all(classSlots, classOverflow, classes.indexOf(classId), slot);
+    }
+
+    /**
+     * Every lesson of the teacher in that slot, in load order; more than one only in a conflict.
+     */
+    public List<ScheduleItem> allAtTeacher(String teacherId, int slot) {
+        return all(teacherSlots, teacherOverflow, teachers.indexOf(teacherId), slot);
+    }
+
+    private List<ScheduleItem> all(int[] slots, Map<Integer, List<Integer>> overflow, int entity, int slot) {
+        List<ScheduleItem> list = new ArrayList<>(1);
+        if (entity == SymbolTable.MISSING || slot < 0) return list;
+        int cell = entity * BusyMask.SIZE + slot;
+        if (slots[cell] == EMPTY) return list;
+        list.add(items.get(slots[cell]));
+        overflow.getOrDefault(cell, List.of()).forEach(i -> list.add(items.get(i)));
+        return list;
+    }
+
+    /**
+     * Slots where the class has more than one lesson.
+     */
+    public BusyMask classConflicts(String classId) {
+        int c = classes.indexOf(classId);
+        return c != SymbolTable.MISSING ? new BusyMask(classConflicts[c]) : BusyMask.EMPTY;
+    }
+
+    /**
+     * Slots where the teacher has more than one lesson.
+     */
+    public BusyMask teacherConflicts(String teacherId) {
+        int t = teachers.indexOf(teacherId);
+        return t != SymbolTable.MISSING ? new BusyMask(teacherConflicts[t]) : BusyMask.EMPTY;
+    }
+
+    /**
+     * Slots of the lesson's session where both its class and its teacher are free, minus {@code unavailable}
+     * (e.g. the teacher's and the session's busy slots). The lesson's own slot is not included.
+     */
+    public BusyMask freeTargets(ScheduleItem item, BusyMask unavailable) {
+        long occupied = classMask(item.classId()).bits() | teacherMask(item.teacherId()).bits();
+        return BusyMask.session(item.session()).minus(new BusyMask(occupied)).minus(unavailable);
+    }
+
+    /**
+     * Moves a lesson to another slot of its session and returns the updated item. The caller checks the target
+     * with {@link #freeTargets} first.
+     */
+    public ScheduleItem move(ScheduleItem item, int toSlot) {
+        int from = slot(item.day(), item.session(), item.period());
+        int index = indexOf(item, from);
+        if (index == EMPTY) {
+            throw new IllegalArgumentException("Lesson is not in the index: " + item);
+        }
+
+        int day = toSlot / BusyMask.PERIODS_PER_DAY;
+        int period = toSlot % BusyMask.PERIODS_PER_DAY % BusyMask.PERIODS_PER_SESSION + 1;
+        ScheduleItem moved = new ScheduleItem(item.id(), item.assignmentId(), item.subjectId(), item.classId(),
+                item.teacherId(), EWeekDay.values()[day], item.session(), period);
+
+        unplace(classSlots, classMasks, classOverflow, classConflicts, itemClass[index], from, index);
+        unplace(teacherSlots, teacherMasks, teacherOverflow, teacherConflicts, itemTeacher[index], from, index);
+        items.set(index, moved);
+        itemSlot[index] = toSlot;
+        placeClass(index, toSlot);
+        placeTeacher(index, toSlot);
+        return moved;
+    }
+
+    // Index of the lesson among those its class has in that slot, or EMPTY
+    private int indexOf(ScheduleItem item, int slot) {
+        int c = classes.indexOf(item.classId());
+        if (c == SymbolTable.MISSING || slot < 0) return EMPTY;
+        int cell = c * BusyMask.SIZE + slot;
+        if (classSlots[cell] == EMPTY) return EMPTY;
+        if (items.get(classSlots[cell]).id() == item.id()) return classSlots[cell];
+        for (int i : classOverflow.getOrDefault(cell, List.of())) {
+            if (items.get(i).id() == item.id()) return i;
+        }
+        return EMPTY;
+    }
+
+    public boolean isTeacherFree(String teacherId, int slot) {
+        return !teacherMask(teacherId).isBusy(slot / BusyMask.PERIODS_PER_DAY, slot % BusyMask.PERIODS_PER_DAY);
+    }
+
+    public BusyMask classMask(String classId) {
+        int c = classes.indexOf(classId);
+        return c != SymbolTable.MISSING ? new BusyMask(classMasks[c]) : BusyMask.EMPTY;
+    }
+
+    public BusyMask teacherMask(String teacherId) {
+        int t = teachers.indexOf(teacherId);
+        return t != SymbolTable.MISSING ? new BusyMask(teacherMasks[t]) : BusyMask.EMPTY;
+    }
+
+    /**
+     * True if the class has the same subject in the period just before or after, within the same session.
+     */
+    public boolean isDoublePeriod(ScheduleItem item) {
+        int s = slot(item.day(), item.session(), item.period());
+        if (s < 0) return false;
+        int periodInSession = (s % BusyMask.PERIODS_PER_DAY) % BusyMask.PERIODS_PER_SESSION;
+        return (periodInSession > 0 && sameLesson(atClass(item.classId(), s - 1), item))
+                || (periodInSession < BusyMask.PERIODS_PER_SESSION - 1 && sameLesson(atClass(item.classId(), s + 1), item));
+    }
+
+    private static boolean sameLesson(ScheduleItem neighbour, ScheduleItem item) {
+        return neighbour != null && Objects.equals(neighbour.subjectId(), item.subjectId());
+    }
+
+    /**
+     * Lessons of the class, by day then period; colliding lessons follow each other in load order.
+     */
+    public List<ScheduleItem> ofClass(String classId) {
+        return collect(classSlots, classOverflow, classes.indexOf(classId));
+    }
+
+    /**
+     * Lessons of the teacher, by day then period; colliding lessons follow each other in load order.
+     */
+    public List<ScheduleItem> ofTeacher(String teacherId) {
+        return collect(teacherSlots, teacherOverflow, teachers.indexOf(teacherId));
+    }
+
+    private List<ScheduleItem> collect(int[] slots, Map<Integer, List<Integer>> overflow, int entity) {
+        List<ScheduleItem> list = new ArrayList<>();
+        if (entity == SymbolTable.MISSING) return list;
+        int base = entity * BusyMask.SIZE;
+        for (int s = 0; s < BusyMask.SIZE; s++) {
+            if (slots[base + s] == EMPTY) continue;
+            list.add(items.get(slots[base + s]));
+            overflow.getOrDefault(base + s, List.of()).forEach(i -> list.add(items.get(i)));
+        }
+        return list;
+    }
+}
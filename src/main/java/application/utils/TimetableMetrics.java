@@ -0,0 +1,237 @@
+package application.utils;
+
+import application.models.*;
+
+import java.util.*;
+
+/**
+ * Quality indicators of a timetable, per teacher, per class and for the whole school:
+ * <ul>
+ *     <li>idle gaps: free periods between two lessons of the same session;</li>
+ *     <li>days taught per teacher;</li>
+ *     <li>subject spread: lessons of one assignment that share a day with another of its lessons (a double period
+ *     counts once for double-period subjects);</li>
+ *     <li>double-period compliance: double-period subjects placed as pairs of consecutive periods.</li>
+ * </ul>
+ * Computed in one pass over the schedule. {@link #move} keeps them current when one lesson moves, recomputing only
+ * the teacher and class involved and adjusting the school totals by the difference.
+ */
+public final class TimetableMetrics {
+
+    private static final long SEGMENT = (1L << BusyMask.PERIODS_PER_SESSION) - 1;
+    private static final long DAY = (1L << BusyMask.PERIODS_PER_DAY) - 1;
+
+    private final Map<String, Lessons> assignments = new HashMap<>();
+    private final Map<String, List<Lessons>> assignmentsByTeacher = new HashMap<>();
+    private final Map<String, List<Lessons>> assignmentsByClass = new HashMap<>();
+
+    private final Map<String, TeacherMetrics> teachers = new HashMap<>();
+    private final Map<String, ClassMetrics> classes = new HashMap<>();
+
+    // School totals, kept as sums so that one entity can be swapped out
+    private int teacherGaps;
+    private int teacherDays;
+    private int classGaps;
+    private int sameDayLessons;
+    private int doubledAssignments;
+    private int doubledCompliant;
+
+    private TimetableMetrics() {
+    }
+
+    /**
+     * @param snapshot loaded with the schedule
+     */
+    public static TimetableMetrics compute(SchoolSnapshot snapshot) {
+        TimetableMetrics metrics = new TimetableMetrics();
+        for (ScheduleItem item : snapshot.getSchedule()) {
+            int slot = TimetableIndex.slot(item.day(), item.session(), item.period());
+            if (slot < 0) continue;
+            metrics.assignments.computeIfAbsent(item.assignmentId(), id -> metrics.newLessons(snapshot, item)).add(slot);
+        }
+        metrics.assignmentsByTeacher.keySet().forEach(metrics::refreshTeacher);
+        metrics.assignmentsByClass.keySet().forEach(metrics::refreshClass);
+        return metrics;
+    }
+
+    private Lessons newLessons(SchoolSnapshot snapshot, ScheduleItem item) {
+        Clazz clazz = snapshot.getClazz(item.classId());
+        Curriculum curriculum = clazz != null ? snapshot.getCurriculum(clazz.getGradeId(), item.subjectId()) : null;
+        Lessons lessons = new Lessons(item.teacherId(), item.classId(), curriculum != null && curriculum.isShouldBeDoubled());
+        assignmentsByTeacher.computeIfAbsent(item.teacherId(), k -> new ArrayList<>()).add(lessons);
+        assignmentsByClass.computeIfAbsent(item.classId(), k -> new ArrayList<>()).add(lessons);
+        return lessons;
+    }
+
+    /**
+     * Updates the indicators after one lesson of {@code assignmentId} moved between two slots
+     * ({@link TimetableIndex#slot} layout).
+     */
+    public void move(String assignmentId, int fromSlot, int toSlot) {
+        Lessons lessons = assignments.get(assignmentId);
+        if (lessons == null || fromSlot == toSlot) return;
+
+        lessons.remove(fromSlot);
+        lessons.add(toSlot);
+        refreshTeacher(lessons.teacherId);
+        refreshClass(lessons.classId);
+    }
+
+    private void refreshTeacher(String teacherId) {
+        TeacherMetrics old = teachers.get(teacherId);
+        if (old != null) {
+            teacherGaps -= old.gaps();
+            teacherDays -= old.days();
+        }
+
+        long mask = 0L;
+        int total = 0;
+        for (Lessons lessons : assignmentsByTeacher.getOrDefault(teacherId, List.of())) {
+            mask |= lessons.mask;
+            total += lessons.total;
+        }
+        TeacherMetrics updated = new TeacherMetrics(total, days(mask), gaps(mask));
+        teachers.put(teacherId, updated);
+        teacherGaps += updated.gaps();
+        teacherDays += updated.days();
+    }
+
+    private void refreshClass(String classId) {
+        ClassMetrics old = classes.get(classId);
+        if (old != null) {
+            classGaps -= old.gaps();
+            sameDayLessons -= old.sameDayLessons();
+            doubledAssignments -= old.doubledAssignments();
+            doubledCompliant -= old.doubledCompliant();
+        }
+
+        long mask = 0L;
+        int total = 0;
+        int sameDay = 0;
+        int doubled = 0;
+        int compliant = 0;
+        for (Lessons lessons : assignmentsByClass.getOrDefault(classId, List.of())) {
+            mask |= lessons.mask;
+            total += lessons.total;
+            // Lessons stacked in one slot each count; a double period still counts once
+            int units = lessons.doubled ? blocks(lessons.mask) + lessons.total - Long.bitCount(lessons.mask) : lessons.total;
+            sameDay += units - days(lessons.mask);
+            if (lessons.doubled) {
+                doubled++;
+                if (ScheduleValidator.oddRuns(lessons.mask) <= Long.bitCount(lessons.mask) % 2) compliant++;
+            }
+        }
+
+        ClassMetrics updated = new ClassMetrics(total, gaps(mask), sameDay, doubled, compliant);
+        classes.put(classId, updated);
+        classGaps += updated.gaps();
+        sameDayLessons += updated.sameDayLessons();
+        doubledAssignments += updated.doubledAssignments();
+        doubledCompliant += updated.doubledCompliant();
+    }
+
+    public TeacherMetrics getTeacher(String teacherId) {
+        return teachers.getOrDefault(teacherId, TeacherMetrics.NONE);
+    }
+
+    public ClassMetrics getClazz(String classId) {
+        return classes.getOrDefault(classId, ClassMetrics.NONE);
+    }
+
+    public SchoolMetrics getSchool() {
+        return new SchoolMetrics(teachers.size(), teacherGaps, teacherDays, classes.size(), classGaps, sameDayLessons,
+                doubledAssignments, doubledCompliant);
+    }
+
+    /**
+     * Free periods between the first and the last lesson of each session of each day.
+     */
+    static int gaps(long mask) {
+        int gaps = 0;
+        for (int shift = 0; shift < BusyMask.SIZE; shift += BusyMask.PERIODS_PER_SESSION) {
+            long segment = (mask >>> shift) & SEGMENT;
+            if (segment == 0) continue;
+            int span = 64 - Long.numberOfLeadingZeros(segment) - Long.numberOfTrailingZeros(segment);
+            gaps += span - Long.bitCount(segment);
+        }
+        return gaps;
+    }
+
+    static int days(long mask) {
+        int days = 0;
+        for (int d = 0; d < BusyMask.DAYS; d++) {
+            if (((mask >>> (d * BusyMask.PERIODS_PER_DAY)) & DAY) != 0) days++;
+        }
+        return days;
+    }
+
+    /**
+     * Runs of consecutive periods within a session.
+     */
+    static int blocks(long mask) {
+        int blocks = 0;
+        for (int shift = 0; shift < BusyMask.SIZE; shift += BusyMask.PERIODS_PER_SESSION) {
+            long segment = (mask >>> shift) & SEGMENT;
+            blocks += Long.bitCount(segment & ~(segment << 1));
+        }
+        return blocks;
+    }
+
+    /**
+     * Lessons of one assignment. Two lessons can share a slot (a conflict the timetable keeps), so each slot has a
+     * count; the mask marks the slots with at least one lesson.
+     */
+    private static final class Lessons {
+        final String teacherId;
+        final String classId;
+        final boolean doubled;
+        final byte[] counts = new byte[BusyMask.SIZE];
+        long mask;
+        int total;
+
+        Lessons(String teacherId, String classId, boolean doubled) {
+            this.teacherId = teacherId;
+            this.classId = classId;
+            this.doubled = doubled;
+        }
+
+        void add(int slot) {
+            counts[slot]++;
+            mask |= 1L << slot;
+            total++;
+        }
+
+        void remove(int slot) {
+            if (counts[slot] == 0) return;
+            total--;
+            // The slot stays taken while another lesson of the assignment is still there
+            if (--counts[slot] == 0) mask &= ~(1L << slot);
+        }
+    }
+
+    public record TeacherMetrics(int lessons, int days, int gaps) {
+        static final TeacherMetrics NONE = new TeacherMetrics(0, 0, 0);
+    }
+
+    /**
+     * @param sameDayLessons lessons sharing a day with another lesson of the same assignment
+     */
+    public record ClassMetrics(int lessons, int gaps, int sameDayLessons, int doubledAssignments, int doubledCompliant) {
+        static final ClassMetrics NONE = new ClassMetrics(0, 0, 0, 0, 0);
+    }
+
+    public record SchoolMetrics(int teachers, int teacherGaps, int teacherDays, int classes, int classGaps,
+                                int sameDayLessons, int doubledAssignments, int doubledCompliant) {
+
+        public double averageTeacherDays() {
+            return teachers > 0 ? (double) teacherDays / teachers : 0;
+        }
+
+        /**
+         * Share of double-period assignments placed as pairs, 1 if there are none.
+         */
+        public double doubledCompliance() {
+            return doubledAssignments > 0 ? (double) doubledCompliant / doubledAssignments : 1;
+        }
+    }
+}
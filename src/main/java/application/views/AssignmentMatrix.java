@@ -0,0 +1,324 @@
+package application.views;
+
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Teacher-assignment matrix drawn on one {@link Canvas} the size of the viewport, with sticky row and column headers.
+ * <p>
+ * Only the visible cells are painted, from the {@link Model}, so a school with thousands of subject x class cells
+ * costs no more scene-graph nodes than a small one, and scrolling or transposing is one repaint.
+ */
+public class AssignmentMatrix extends Region {
+
+    private static final double CELL_WIDTH = 100;
+    private static final double CELL_HEIGHT = 50;
+    private static final double HEADER_WIDTH = 100;
+    private static final double HEADER_HEIGHT = 40;
+    private static final double GAP = 1;
+
+    private static final Color GAP_COLOR = Color.web("#cbd5e1");
+    private static final Color HEADER_COLOR = Color.web("#e2e8f0");
+    private static final Color CORNER_COLOR = Color.web("#94a3b8");
+    private static final Color HEADER_TEXT = Color.web("#1e293b");
+    private static final Color HOVER_COLOR = Color.web("#e2e8f0");
+    // Same colours as the former node-per-cell grid: red tint = empty, yellow = pending, white = assigned
+    private static final Color EMPTY_COLOR = Color.web("#fff1f2");
+    private static final Color EMPTY_TEXT = Color.web("#ef4444");
+    private static final Color PENDING_COLOR = Color.web("#fef9c3");
+    private static final Color PENDING_BORDER = Color.web("#eab308");
+    private static final Color PENDING_TEXT = Color.web("#854d0e");
+    private static final Color TEACHER_TEXT = Color.web("#0f172a");
+
+    private static final Font HEADER_FONT = Font.font("System", FontWeight.BOLD, 12);
+    private static final Font TEACHER_FONT = Font.font("System", 12);
+    private static final Font PENDING_FONT = Font.font("System", FontWeight.BOLD, 12);
+    private static final Font EMPTY_FONT = Font.font("System", FontWeight.NORMAL, FontPosture.ITALIC, 11);
+
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar hBar = new ScrollBar();
+    private final ScrollBar vBar = new ScrollBar();
+
+    private Model model;
+    private String placeholder;
+    private CellHandler onCellClicked;
+    private int hoverRow = -1;
+    private int hoverColumn = -1;
+
+    /**
+     * What the matrix shows; asked only for visible cells, on every repaint.
+     */
+    public interface Model {
+        int rowCount();
+
+        int columnCount();
+
+        String corner();
+
+        String rowHeader(int row);
+
+        String columnHeader(int column);
+
+        /**
+         * Teacher shown in the cell, or null if unassigned.
+         */
+        String teacher(int row, int column);
+
+        /**
+         * Edited and not yet saved.
+         */
+        boolean isPending(int row, int column);
+    }
+
+    @FunctionalInterface
+    public interface CellHandler {
+        void handle(int row, int column);
+    }
+
+    public AssignmentMatrix() {
+        vBar.setOrientation(Orientation.VERTICAL);
+        hBar.valueProperty().addListener((obs, oldVal, newVal) -> repaint());
+        vBar.valueProperty().addListener((obs, oldVal, newVal) -> repaint());
+        getChildren().addAll(canvas, hBar, vBar);
+
+        canvas.setOnScroll(this::onScroll);
+        canvas.setOnMouseMoved(this::onMouseMoved);
+        canvas.setOnMouseExited(e -> setHover(-1, -1));
+        canvas.setOnMouseClicked(e -> {
+            int row = rowAt(e.getY());
+            int column = columnAt(e.getX());
+            if (row >= 0 && column >= 0 && onCellClicked != null) onCellClicked.handle(row, column);
+        });
+    }
+
+    public void setModel(Model model) {
+        this.model = model;
+        hBar.setValue(0);
+        vBar.setValue(0);
+        requestLayout();
+        repaint();
+    }
+
+    /**
+     * Text shown instead of the matrix while there is no model (e.g. "loading").
+     */
+    public void setPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+        repaint();
+    }
+
+    public void setOnCellClicked(CellHandler onCellClicked) {
+        this.onCellClicked = onCellClicked;
+    }
+
+    private double contentWidth() {
+        return HEADER_WIDTH + (model != null ? model.columnCount() * CELL_WIDTH : 0);
+    }
+
+    private double contentHeight() {
+        return HEADER_HEIGHT + (model != null ? model.rowCount() * CELL_HEIGHT : 0);
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return contentWidth() + vBar.prefWidth(-1);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return contentHeight() + hBar.prefHeight(-1);
+    }
+
+    @Override
+    protected double computeMinWidth(double height) {
+        return HEADER_WIDTH + CELL_WIDTH;
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return HEADER_HEIGHT + CELL_HEIGHT;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        double barWidth = vBar.prefWidth(-1);
+        double barHeight = hBar.prefHeight(-1);
+
+        // A bar takes room from the other direction, which can make that one needed too
+        boolean needV = contentHeight() > height;
+        boolean needH = contentWidth() > width - (needV ? barWidth : 0);
+        needV = contentHeight() > height - (needH ? barHeight : 0);
+
+        double viewWidth = Math.max(0, width - (needV ? barWidth : 0));
+        double viewHeight = Math.max(0, height - (needH ? barHeight : 0));
+
+        configure(hBar, needH, contentWidth() - viewWidth, viewWidth);
+        configure(vBar, needV, contentHeight() - viewHeight, viewHeight);
+        hBar.resizeRelocate(0, viewHeight, viewWidth, barHeight);
+        vBar.resizeRelocate(viewWidth, 0, barWidth, viewHeight);
+
+        canvas.setWidth(viewWidth);
+        canvas.setHeight(viewHeight);
+        repaint();
+    }
+
+    private static void configure(ScrollBar bar, boolean visible, double max, double visibleAmount) {
+        bar.setVisible(visible);
+        bar.setMax(Math.max(0, max));
+        bar.setVisibleAmount(visibleAmount);
+        bar.setUnitIncrement(CELL_HEIGHT);
+        bar.setBlockIncrement(visibleAmount);
+        if (!visible) bar.setValue(0);
+        else if (bar.getValue() > bar.getMax()) bar.setValue(bar.getMax());
+    }
+
+    private void onScroll(ScrollEvent e) {
+        // Shift+wheel scrolls sideways on mice without a horizontal wheel
+        double dx = e.isShiftDown() && e.getDeltaX() == 0 ? e.getDeltaY() : e.getDeltaX();
+        double dy = e.isShiftDown() ? 0 : e.getDeltaY();
+        if (hBar.isVisible()) hBar.setValue(clamp(hBar.getValue() - dx, hBar.getMax()));
+        if (vBar.isVisible()) vBar.setValue(clamp(vBar.getValue() - dy, vBar.getMax()));
+        e.consume();
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    private void onMouseMoved(MouseEvent e) {
+        setHover(rowAt(e.getY()), columnAt(e.getX()));
+    }
+
+    private void setHover(int row, int column) {
+        if (row < 0 || column < 0) row = column = -1;
+        canvas.setCursor(row >= 0 ? Cursor.HAND : Cursor.DEFAULT);
+        if (row == hoverRow && column == hoverColumn) return;
+        hoverRow = row;
+        hoverColumn = column;
+        repaint();
+    }
+
+    /**
+     * Row of the cell under a canvas y coordinate, or -1 over the header or past the last row.
+     */
+    private int rowAt(double y) {
+        if (model == null || y < HEADER_HEIGHT) return -1;
+        int row = (int) ((y - HEADER_HEIGHT + vBar.getValue()) / CELL_HEIGHT);
+        return row < model.rowCount() ? row : -1;
+    }
+
+    private int columnAt(double x) {
+        if (model == null || x < HEADER_WIDTH) return -1;
+        int column = (int) ((x - HEADER_WIDTH + hBar.getValue()) / CELL_WIDTH);
+        return column < model.columnCount() ? column : -1;
+    }
+
+    /**
+     * Redraws the visible part from the model.
+     */
+    public void repaint() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.setFill(GAP_COLOR);
+        gc.fillRect(0, 0, width, height);
+        if (width == 0 || height == 0) return;
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        if (model == null) {
+            if (placeholder != null) {
+                gc.setFill(HEADER_TEXT);
+                gc.setFont(HEADER_FONT);
+                gc.fillText(placeholder, width / 2, height / 2);
+            }
+            return;
+        }
+
+        double dx = hBar.getValue();
+        double dy = vBar.getValue();
+        int firstRow = (int) (dy / CELL_HEIGHT);
+        int lastRow = Math.min(model.rowCount() - 1, (int) ((dy + height - HEADER_HEIGHT) / CELL_HEIGHT));
+        int firstColumn = (int) (dx / CELL_WIDTH);
+        int lastColumn = Math.min(model.columnCount() - 1, (int) ((dx + width - HEADER_WIDTH) / CELL_WIDTH));
+
+        // 1. Cells
+        for (int r = firstRow; r <= lastRow; r++) {
+            double y = HEADER_HEIGHT + r * CELL_HEIGHT - dy;
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                double x = HEADER_WIDTH + c * CELL_WIDTH - dx;
+                paintCell(gc, r, c, x, y);
+            }
+        }
+
+        // 2. Sticky headers, on top of the cells scrolled under them
+        for (int c = firstColumn; c <= lastColumn; c++) {
+            double x = HEADER_WIDTH + c * CELL_WIDTH - dx;
+            paintHeader(gc, model.columnHeader(c), x, 0, CELL_WIDTH, HEADER_HEIGHT, HEADER_COLOR);
+        }
+        for (int r = firstRow; r <= lastRow; r++) {
+            double y = HEADER_HEIGHT + r * CELL_HEIGHT - dy;
+            paintHeader(gc, model.rowHeader(r), 0, y, HEADER_WIDTH, CELL_HEIGHT, HEADER_COLOR);
+        }
+        paintHeader(gc, model.corner(), 0, 0, HEADER_WIDTH, HEADER_HEIGHT, CORNER_COLOR);
+    }
+
+    private void paintHeader(GraphicsContext gc, String text, double x, double y, double w, double h, Color background) {
+        gc.setFill(background);
+        gc.fillRect(x, y, w - GAP, h - GAP);
+        gc.setFill(HEADER_TEXT);
+        gc.setFont(HEADER_FONT);
+        gc.fillText(text, x + w / 2, y + h / 2, w - 8);
+    }
+
+    private void paintCell(GraphicsContext gc, int row, int column, double x, double y) {
+        String teacher = model.teacher(row, column);
+        boolean pending = teacher != null && model.isPending(row, column);
+        double w = CELL_WIDTH - GAP;
+        double h = CELL_HEIGHT - GAP;
+
+        String text;
+        Color textColor;
+        if (teacher == null) {
+            gc.setFill(EMPTY_COLOR);
+            text = "Empty";
+            textColor = EMPTY_TEXT;
+            gc.setFont(EMPTY_FONT);
+        } else if (pending) {
+            gc.setFill(PENDING_COLOR);
+            text = teacher + " (*)";
+            textColor = PENDING_TEXT;
+            gc.setFont(PENDING_FONT);
+        } else {
+            gc.setFill(Color.WHITE);
+            text = teacher;
+            textColor = TEACHER_TEXT;
+            gc.setFont(TEACHER_FONT);
+        }
+        if (row == hoverRow && column == hoverColumn) gc.setFill(HOVER_COLOR);
+        gc.fillRect(x, y, w, h);
+
+        if (pending) {
+            gc.setStroke(PENDING_BORDER);
+            gc.setLineWidth(1.5);
+            gc.strokeRect(x + 0.75, y + 0.75, w - 1.5, h - 1.5);
+        }
+
+        gc.setFill(textColor);
+        gc.fillText(text, x + w / 2, y + h / 2, w - 8);
+    }
+}
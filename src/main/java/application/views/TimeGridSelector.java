@@ -1,25 +1,65 @@
 package application.views;
 
+import application.models.BusyMask;
 import application.models.ESession;
-import javafx.geometry.Pos;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.geometry.VPos;
 import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
-import javafx.scene.control.ToggleButton;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.VBox;
-
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Weekly availability grid (days x periods) of a teacher, a session or a grade, drawn on one {@link Canvas}.
+ * <p>
+ * The state is a single {@link BusyMask} property; loading another teacher is one property change and one repaint.
+ * Clicking a cell toggles it and dragging paints the same value over the cells passed; clicking a day header or a
+ * period label toggles the whole column (within the session) or row.
+ */
 public class TimeGridSelector extends VBox {
 
-    private final int PERIOD_PER_SESSION = 5;
-    private final int totalPeriods;
-    private final ToggleButton[][] cells;
-    // UI String: Days of the week (Monday to Saturday)
-    private final String[] DAYS = {"T2", "T3", "T4", "T5", "T6", "T7"};
+    private static final String[] DAYS = {"T2", "T3", "T4", "T5", "T6", "T7"};
+
+    // Geometry of one session block: title, day headers, then a period label column and the cells
+    private static final double CELL_WIDTH = 50;
+    private static final double CELL_HEIGHT = 40;
+    private static final double GAP = 5;
+    private static final double LABEL_WIDTH = 50;
+    private static final double TITLE_HEIGHT = 24;
+    private static final double HEADER_HEIGHT = 26;
+    private static final double BLOCK_SPACING = 30;
+    private static final double BLOCK_WIDTH = LABEL_WIDTH + DAYS.length * (CELL_WIDTH + GAP);
+    private static final double BLOCK_HEIGHT = TITLE_HEIGHT + HEADER_HEIGHT + GAP
+            + BusyMask.PERIODS_PER_SESSION * (CELL_HEIGHT + GAP);
+
+    private static final Color FREE_COLOR = Color.web("#e3f2fd");
+    private static final Color BUSY_COLOR = Color.web("#ef9a9a");
+    private static final Color BORDER_COLOR = Color.web("#b0bec5");
+    private static final Color LABEL_COLOR = Color.web("#eeeeee");
+    private static final Color TEXT_COLOR = Color.web("#2c3e50");
+    private static final Font TITLE_FONT = Font.font("System", FontWeight.BOLD, 12);
+    private static final Font LABEL_FONT = Font.font("System", 11);
+    private static final Font MARK_FONT = Font.font("System", FontWeight.BOLD, 12);
+
     private final ESession session;
-    private int remainPeriods;
+    // First period (0 or 5) of each session block shown, left to right
+    private final int[] blockStarts;
+    // Slots this selector can show; anything else is dropped from the mask
+    private final BusyMask editable;
+    private final Canvas canvas;
+    private final ObjectProperty<BusyMask> busyMask = new SimpleObjectProperty<>(this, "busyMask", BusyMask.EMPTY);
     private boolean isReadOnly = false;
 
+    // Drag-paint state: value written to every cell the drag passes over
+    private boolean painting;
+    private boolean paintValue;
 
     public TimeGridSelector() {
         this(null);
@@ -27,214 +67,213 @@ public class TimeGridSelector extends VBox {
 
     public TimeGridSelector(ESession session) {
         this.session = session;
-        this.totalPeriods = 10;
-        this.cells = new ToggleButton[6][totalPeriods];
+        if (session == ESession.MORNING) blockStarts = new int[]{0};
+        else if (session == ESession.AFTERNOON) blockStarts = new int[]{BusyMask.PERIODS_PER_SESSION};
+        else blockStarts = new int[]{0, BusyMask.PERIODS_PER_SESSION};
+        this.editable = session != null ? BusyMask.session(session) : BusyMask.FULL;
         this.setSpacing(10);
-        this.remainPeriods = DAYS.length * this.totalPeriods;
 
         // Title Label
         Label title = new Label("Đăng ký tiết nghỉ (Bấm vào ô để chọn nghỉ)");
         title.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #2c3e50;");
-        HBox gridsContainer = new HBox(30); // Spacing between two grids
-        gridsContainer.setAlignment(Pos.TOP_CENTER);
 
-        if (session == null || session == ESession.MORNING) {
-            // Morning Grid (Periods 0-4)
-            VBox morningBox = createSessionGrid("BUỔI SÁNG", 0);
-            gridsContainer.getChildren().add(morningBox);
-        }
+        canvas = new Canvas(blockStarts.length * BLOCK_WIDTH + (blockStarts.length - 1) * BLOCK_SPACING, BLOCK_HEIGHT);
+        canvas.setOnMousePressed(this::onPressed);
+        canvas.setOnMouseDragged(this::onDragged);
+        canvas.setOnMouseReleased(e -> painting = false);
+        canvas.setOnMouseMoved(e -> canvas.setCursor(!isReadOnly && hit(e.getX(), e.getY()) != null ? Cursor.HAND : Cursor.DEFAULT));
 
-        if (session == null || session == ESession.AFTERNOON) {
-            // Afternoon Grid (Periods 5-9)
-            VBox afternoonBox = createSessionGrid("BUỔI CHIỀU", 5);
-            gridsContainer.getChildren().add(afternoonBox);
-        }
+        busyMask.addListener((obs, oldVal, newVal) -> repaint());
 
+        this.getChildren().addAll(title, canvas);
+        repaint();
+    }
+
+    // --- HIT TESTING ---
 
-        this.getChildren().addAll(title, gridsContainer);
+    private enum Area {CELL, DAY_HEADER, PERIOD_LABEL}
+
+    /**
+     * @param period period of the day (0-9); for a day header, the first period of its session
+     */
+    private record Hit(Area area, int day, int period) {
     }
 
-    private VBox createSessionGrid(String sessionTitle, int startPeriod) {
-        VBox container = new VBox(5);
-        container.setAlignment(Pos.TOP_CENTER); // Align content to center
+    private Hit hit(double x, double y) {
+        for (int b = 0; b < blockStarts.length; b++) {
+            double bx = x - b * (BLOCK_WIDTH + BLOCK_SPACING);
+            if (bx < 0 || bx >= BLOCK_WIDTH) continue;
 
-        Label lblSession = new Label(sessionTitle);
-        lblSession.setStyle("-fx-font-weight: bold; -fx-text-fill: #2c3e50; -fx-padding: 0 0 5 0;");
-        lblSession.setAlignment(Pos.CENTER); // Center text within label
-        lblSession.setMaxWidth(Double.MAX_VALUE); // Allow label to grow to fill width
+            double by = y - TITLE_HEIGHT;
+            if (by < 0) return null;
 
-        GridPane grid = new GridPane();
-        grid.setHgap(5);
-        grid.setVgap(5);
-        grid.setAlignment(Pos.CENTER_LEFT);
+            int day = bx < LABEL_WIDTH ? -1 : (int) ((bx - LABEL_WIDTH) / (CELL_WIDTH + GAP));
+            if (by < HEADER_HEIGHT) {
+                return day >= 0 ? new Hit(Area.DAY_HEADER, day, blockStarts[b]) : null;
+            }
 
-        // --- 1. Draw Header (Days of the week) ---
-        for (int i = 0; i < DAYS.length; i++) {
-            Label lbl = new Label(DAYS[i]);
-            lbl.setStyle("-fx-font-weight: bold; -fx-background-color: #eee; -fx-padding: 5; -fx-text-fill: #2c3e50;");
-            lbl.setMinWidth(40);
-            lbl.setAlignment(Pos.CENTER);
-            lbl.setMaxWidth(Double.MAX_VALUE);
-            int finalI = i;
-            lbl.setOnMouseClicked(_ -> handleSelectAllDay(finalI, startPeriod));
-            grid.add(lbl, i + 1, 0); // Column i+1, Row 0
+            by -= HEADER_HEIGHT + GAP;
+            if (by < 0) return null;
+            int row = (int) (by / (CELL_HEIGHT + GAP));
+            if (row >= BusyMask.PERIODS_PER_SESSION) return null;
+            int period = blockStarts[b] + row;
+            return day >= 0 ? new Hit(Area.CELL, day, period) : new Hit(Area.PERIOD_LABEL, -1, period);
         }
+        return null;
+    }
 
-        int currentGridRow = 1;
-
-        // --- 2. Loop through periods for this session ---
-        for (int i = 0; i < PERIOD_PER_SESSION; i++) {
-            int periodIndex = startPeriod + i;
-
-            // Display Period Number (1-5)
-            Label lblPeriod = getLabel(startPeriod, i, currentGridRow);
-            grid.add(lblPeriod, 0, currentGridRow);
-
-            // Draw Toggle Buttons
-            for (int day = 0; day < DAYS.length; day++) {
-                ToggleButton btn = new ToggleButton();
-                btn.setPrefSize(50, 40);
-                btn.setStyle("-fx-base: #e3f2fd;");
-
-                btn.selectedProperty().addListener((obs, oldVal, newVal) -> {
-                    if (newVal) {
-                        btn.setStyle("-fx-base: #ef9a9a; -fx-text-fill: red; -fx-font-weight: bold;");
-                        btn.setText("X");
-                        remainPeriods--;
-                    } else {
-                        btn.setStyle("-fx-base: #e3f2fd;");
-                        btn.setText("");
-                        remainPeriods++;
-                    }
-                });
-
-                // Store reference
-                cells[day][periodIndex] = btn;
-
-                grid.add(btn, day + 1, currentGridRow);
+    private void onPressed(MouseEvent e) {
+        if (isReadOnly) return;
+        Hit hit = hit(e.getX(), e.getY());
+        if (hit == null) return;
+
+        switch (hit.area()) {
+            case CELL -> {
+                painting = true;
+                paintValue = !getBusyMask().isBusy(hit.day(), hit.period());
+                setBusyMask(getBusyMask().with(hit.day(), hit.period(), paintValue));
             }
-            currentGridRow++;
+            case DAY_HEADER -> handleSelectAllDay(hit.day(), hit.period());
+            case PERIOD_LABEL -> handleSelectAllRow(hit.period());
         }
-
-        container.getChildren().addAll(lblSession, grid);
-        return container;
     }
 
-    private Label getLabel(int startPeriod, int i, int currentGridRow) {
-        int displayPeriod = i + 1;
-
-        Label lblPeriod = new Label("Tiết " + displayPeriod);
-        lblPeriod.setMinWidth(20);
-        lblPeriod.setAlignment(Pos.CENTER_RIGHT);
-        lblPeriod.setStyle("-fx-font-size: 11px; -fx-text-fill: #2c3e50; -fx-background-color: #eee; -fx-padding: 5;");
-        lblPeriod.setCursor(Cursor.HAND);
-        lblPeriod.setOnMouseClicked(e -> {
-            handleSelectAllRow(startPeriod + currentGridRow - 1);
-        });
-        return lblPeriod;
+    private void onDragged(MouseEvent e) {
+        if (!painting) return;
+        Hit hit = hit(e.getX(), e.getY());
+        if (hit == null || hit.area() != Area.CELL) return;
+        // No-op (and no repaint) while the drag stays on already painted cells
+        setBusyMask(getBusyMask().with(hit.day(), hit.period(), paintValue));
     }
 
     private void handleSelectAllRow(int periodIndex) {
-        if (isReadOnly) return;
-        // Check if all are currently selected to toggle state
-        boolean allSelected = true;
-        for (int i = 0; i < DAYS.length; i++) {
-            if (!cells[i][periodIndex].isSelected()) {
-                allSelected = false;
-                break;
-            }
-        }
-
-        boolean newState = !allSelected;
-        for (int i = 0; i < DAYS.length; i++) {
-            cells[i][periodIndex].setSelected(newState);
+        long row = 0L;
+        for (int d = 0; d < DAYS.length; d++) {
+            row |= 1L << BusyMask.index(d, periodIndex);
         }
+        toggleAll(new BusyMask(row));
     }
 
     private void handleSelectAllDay(int dayIndex, int startPeriod) {
-        if (isReadOnly) return;
-        // Check if all in this session are currently selected
-        boolean allSelected = true;
-        for (int i = 0; i < PERIOD_PER_SESSION; i++) {
-            if (!cells[dayIndex][startPeriod + i].isSelected()) {
-                allSelected = false;
-                break;
-            }
+        long column = 0L;
+        for (int i = 0; i < BusyMask.PERIODS_PER_SESSION; i++) {
+            column |= 1L << BusyMask.index(dayIndex, startPeriod + i);
         }
+        toggleAll(new BusyMask(column));
+    }
 
-        boolean newState = !allSelected;
-        for (int i = 0; i < PERIOD_PER_SESSION; i++) {
-            cells[dayIndex][startPeriod + i].setSelected(newState);
+    /**
+     * Clears the cells if they are all busy, otherwise marks them all busy.
+     */
+    private void toggleAll(BusyMask cells) {
+        BusyMask current = getBusyMask();
+        boolean allSelected = current.intersect(cells).equals(cells);
+        setBusyMask(allSelected ? current.minus(cells) : current.union(cells));
+    }
+
+    // --- RENDERING ---
+
+    private void repaint() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        gc.setGlobalAlpha(isReadOnly ? 0.6 : 1.0);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+
+        BusyMask mask = getBusyMask();
+        for (int b = 0; b < blockStarts.length; b++) {
+            paintBlock(gc, b * (BLOCK_WIDTH + BLOCK_SPACING), blockStarts[b], mask);
         }
     }
 
-    // --- DATA ACCESS METHODS ---
+    private void paintBlock(GraphicsContext gc, double x0, int startPeriod, BusyMask mask) {
+        gc.setFill(TEXT_COLOR);
+        gc.setFont(TITLE_FONT);
+        gc.fillText(startPeriod == 0 ? "BUỔI SÁNG" : "BUỔI CHIỀU", x0 + BLOCK_WIDTH / 2, TITLE_HEIGHT / 2);
 
-    /**
-     * Retrieves the configuration matrix.
-     *
-     * @return boolean[6][10] where true means BUSY (Teacher cannot teach), false means AVAILABLE.
-     */
-    public boolean[][] getBusyMatrix() {
-        boolean[][] matrix = new boolean[DAYS.length][totalPeriods];
+        // Header (Days of the week)
+        double headerY = TITLE_HEIGHT;
         for (int d = 0; d < DAYS.length; d++) {
-            for (int t = 0; t < totalPeriods; t++) {
-                if (cells[d][t] != null) {
-                    matrix[d][t] = cells[d][t].isSelected();
+            double x = x0 + LABEL_WIDTH + d * (CELL_WIDTH + GAP);
+            gc.setFill(LABEL_COLOR);
+            gc.fillRect(x, headerY, CELL_WIDTH, HEADER_HEIGHT);
+            gc.setFill(TEXT_COLOR);
+            gc.setFont(TITLE_FONT);
+            gc.fillText(DAYS[d], x + CELL_WIDTH / 2, headerY + HEADER_HEIGHT / 2);
+        }
+
+        for (int i = 0; i < BusyMask.PERIODS_PER_SESSION; i++) {
+            int period = startPeriod + i;
+            double y = TITLE_HEIGHT + HEADER_HEIGHT + GAP + i * (CELL_HEIGHT + GAP);
+
+            // Period label (1-5 within the session)
+            gc.setFill(LABEL_COLOR);
+            gc.fillRect(x0, y, LABEL_WIDTH - GAP, CELL_HEIGHT);
+            gc.setFill(TEXT_COLOR);
+            gc.setFont(LABEL_FONT);
+            gc.fillText("Tiết " + (i + 1), x0 + (LABEL_WIDTH - GAP) / 2, y + CELL_HEIGHT / 2);
+
+            for (int d = 0; d < DAYS.length; d++) {
+                double x = x0 + LABEL_WIDTH + d * (CELL_WIDTH + GAP);
+                boolean busy = mask.isBusy(d, period);
+                gc.setFill(busy ? BUSY_COLOR : FREE_COLOR);
+                gc.fillRoundRect(x, y, CELL_WIDTH, CELL_HEIGHT, 6, 6);
+                gc.setStroke(BORDER_COLOR);
+                gc.setLineWidth(1);
+                gc.strokeRoundRect(x + 0.5, y + 0.5, CELL_WIDTH - 1, CELL_HEIGHT - 1, 6, 6);
+                if (busy) {
+                    gc.setFill(Color.RED);
+                    gc.setFont(MARK_FONT);
+                    gc.fillText("X", x + CELL_WIDTH / 2, y + CELL_HEIGHT / 2);
                 }
             }
         }
-        return matrix;
     }
 
+    // --- DATA ACCESS METHODS ---
+
     /**
-     * Loads an existing configuration matrix into the UI.
-     *
-     * @param matrix boolean[6][10] or boolean[6][5]
+     * The configuration as a bindable property; a set bit means BUSY (Teacher cannot teach), clear means AVAILABLE.
      */
-    public void setBusyMatrix(boolean[][] matrix) {
-        if (matrix == null) return;
+    public ObjectProperty<BusyMask> busyMaskProperty() {
+        return busyMask;
+    }
 
-        // Reset to default state first
-        clear();
+    /**
+     * Retrieves the configuration.
+     *
+     * @return mask where a set bit means BUSY (Teacher cannot teach), clear means AVAILABLE.
+     */
+    public BusyMask getBusyMask() {
+        return busyMask.get();
+    }
 
-        for (int d = 0; d < DAYS.length; d++) {
-            for (int t = 0; t < totalPeriods; t++) {
-                // Check bounds to prevent errors if the loaded data has different dimensions
-                if (d < matrix.length && t < matrix[d].length) {
-                    if (cells[d][t] != null) {
-                        cells[d][t].setSelected(matrix[d][t]);
-                    }
-                }
-            }
-        }
+    /**
+     * Loads an existing configuration into the UI. Slots outside this selector's session are ignored.
+     */
+    public void setBusyMask(BusyMask mask) {
+        if (mask == null) return;
+        busyMask.set(mask.intersect(editable));
     }
 
     /**
      * Resets all cells to available (unselected).
      */
     public void clear() {
-        for (int d = 0; d < DAYS.length; d++) {
-            for (int t = 0; t < totalPeriods; t++) {
-                if (cells[d][t] != null) {
-                    cells[d][t].setSelected(false);
-                }
-            }
-        }
+        busyMask.set(BusyMask.EMPTY);
     }
 
     public void setReadOnly(boolean readOnly) {
         this.isReadOnly = readOnly;
-        for (int d = 0; d < DAYS.length; d++) {
-            for (int t = 0; t < totalPeriods; t++) {
-                if (cells[d][t] != null) {
-                    cells[d][t].setDisable(readOnly);
-                }
-            }
-        }
+        painting = false;
+        repaint();
     }
 
+    /**
+     * Free slots in this selector's session, or in the whole week when it shows both sessions.
+     */
     public int getRemainPeriods() {
-        return remainPeriods;
+        BusyMask mask = getBusyMask();
+        return session == null ? mask.invert().count() : mask.freeIn(session);
     }
 }